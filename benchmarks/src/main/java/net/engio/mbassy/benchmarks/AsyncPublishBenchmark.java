@@ -0,0 +1,85 @@
+package net.engio.mbassy.benchmarks;
+
+import net.engio.mbassy.bus.IMessagePublication;
+import net.engio.mbassy.bus.MBassador;
+import net.engio.mbassy.bus.config.BusConfiguration;
+import net.engio.mbassy.bus.config.Feature;
+import net.engio.mbassy.common.RingBufferQueue;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of asynchronous message dispatch using {@code post(message).asynchronously()}.
+ * The message queue is bounded such that the producers are throttled to the sustainable
+ * throughput of the dispatchers instead of filling up the heap.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AsyncPublishBenchmark {
+
+    @Param({"1", "10"})
+    public int listeners;
+
+    @Param({"1", "4"})
+    public int dispatchers;
+
+    @Param({"LinkedBlockingQueue", "RingBuffer", "Sharded"})
+    public String queue;
+
+    private MBassador<BenchmarkListeners.Event> messageBus;
+
+    private final BenchmarkListeners.Event event = new BenchmarkListeners.Event();
+
+    @Setup
+    public void setup() {
+        Feature.AsynchronousMessageDispatch dispatch;
+        if ("RingBuffer".equals(queue)) {
+            dispatch = Feature.AsynchronousMessageDispatch.RingBuffer(1 << 16, RingBufferQueue.WaitStrategy.Block);
+        } else if ("Sharded".equals(queue)) {
+            final int capacity = (1 << 16) / dispatchers;
+            dispatch = Feature.AsynchronousMessageDispatch.Sharded(dispatchers)
+                    .setDispatcherQueueFactory(() -> new LinkedBlockingQueue<IMessagePublication>(capacity));
+        } else {
+            dispatch = Feature.AsynchronousMessageDispatch.Default()
+                    .setMessageQueue(new LinkedBlockingQueue<IMessagePublication>(1 << 16));
+        }
+        messageBus = new MBassador<BenchmarkListeners.Event>(new BusConfiguration()
+                .addFeature(Feature.SyncPubSub.Default())
+                .addFeature(Feature.AsynchronousHandlerInvocation.Default())
+                .addFeature(dispatch.setNumberOfMessageDispatchers(dispatchers))
+                .addPublicationErrorHandler(new BenchmarkListeners.IgnoreErrors()));
+        for (int i = 0; i < listeners; i++) {
+            messageBus.subscribe(new BenchmarkListeners.EventListener());
+        }
+    }
+
+    // do not carry over pending publications into the next iteration
+    @TearDown(Level.Iteration)
+    public void drain() throws InterruptedException {
+        while (messageBus.hasPendingMessages()) {
+            Thread.sleep(1);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        messageBus.shutdown();
+    }
+
+    @Benchmark
+    public IMessagePublication postAsynchronously() {
+        return messageBus.post(event).asynchronously();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public IMessagePublication postAsynchronouslyConcurrently() {
+        return messageBus.post(event).asynchronously();
+    }
+}
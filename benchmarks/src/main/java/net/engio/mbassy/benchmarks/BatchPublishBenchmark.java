@@ -0,0 +1,62 @@
+package net.engio.mbassy.benchmarks;
+
+import net.engio.mbassy.bus.IMessagePublication;
+import net.engio.mbassy.bus.MBassador;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Synchronous publication of a batch of messages of the same type, either one by one using
+ * {@link MBassador#publish(Object)} or as a single batch using {@link MBassador#publishAll(java.util.Collection)}.
+ * The score is the number of batches per time unit.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BatchPublishBenchmark {
+
+    @Param({"10", "1000"})
+    public int batchSize;
+
+    @Param({"1", "10"})
+    public int listeners;
+
+    private MBassador<BenchmarkListeners.Event> messageBus;
+
+    private final List<BenchmarkListeners.Event> batch = new ArrayList<BenchmarkListeners.Event>();
+
+    @Setup
+    public void setup() {
+        messageBus = new MBassador<BenchmarkListeners.Event>(BenchmarkListeners.SyncAsyncConfiguration());
+        for (int i = 0; i < listeners; i++) {
+            messageBus.subscribe(new BenchmarkListeners.EventListener());
+        }
+        for (int i = 0; i < batchSize; i++) {
+            batch.add(new BenchmarkListeners.Event());
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        messageBus.shutdown();
+    }
+
+    @Benchmark
+    public void publishOneByOne(Blackhole blackhole) {
+        for (BenchmarkListeners.Event event : batch) {
+            blackhole.consume(messageBus.publish(event));
+        }
+    }
+
+    @Benchmark
+    public IMessagePublication publishAll() {
+        return messageBus.publishAll(batch);
+    }
+}
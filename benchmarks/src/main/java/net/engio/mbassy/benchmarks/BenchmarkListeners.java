@@ -0,0 +1,102 @@
+package net.engio.mbassy.benchmarks;
+
+import net.engio.mbassy.bus.config.BusConfiguration;
+import net.engio.mbassy.bus.config.Feature;
+import net.engio.mbassy.bus.config.IBusConfiguration;
+import net.engio.mbassy.bus.error.IPublicationErrorHandler;
+import net.engio.mbassy.bus.error.PublicationError;
+import net.engio.mbassy.listener.*;
+import net.engio.mbassy.subscription.MessageEnvelope;
+import net.engio.mbassy.subscription.SubscriptionContext;
+
+/**
+ * Messages, listeners and bus configurations shared by all benchmarks. Handlers are kept as cheap
+ * as possible such that the benchmarks measure the overhead of the bus and not the handler code.
+ * Listeners are strongly referenced to prevent them from being garbage collected during a run unless
+ * the benchmark explicitly measures weak references.
+ */
+public final class BenchmarkListeners {
+
+    private BenchmarkListeners() {
+    }
+
+    public static class Event {
+    }
+
+    public static class SubEvent extends Event {
+    }
+
+    @Listener(references = References.Strong)
+    public static class EventListener {
+
+        public long received;
+
+        @Handler
+        public void handle(Event event) {
+            received++;
+        }
+    }
+
+    // weakly referenced (default)
+    public static class WeakEventListener {
+
+        public long received;
+
+        @Handler
+        public void handle(Event event) {
+            received++;
+        }
+    }
+
+    @Listener(references = References.Strong)
+    public static class FilteredEventListener {
+
+        public long received;
+
+        @Handler(filters = @Filter(AcceptAll.class))
+        public void handle(Event event) {
+            received++;
+        }
+    }
+
+    @Listener(references = References.Strong)
+    public static class EnvelopedEventListener {
+
+        public long received;
+
+        @Handler
+        @Enveloped(messages = Event.class)
+        public void handle(MessageEnvelope envelope) {
+            received++;
+        }
+    }
+
+    public static final class AcceptAll implements IMessageFilter<Event> {
+
+        @Override
+        public boolean accepts(Event message, SubscriptionContext context) {
+            return true;
+        }
+    }
+
+    public static final class IgnoreErrors implements IPublicationErrorHandler {
+
+        @Override
+        public void handleError(PublicationError error) {
+        }
+    }
+
+    public static IBusConfiguration SyncConfiguration() {
+        return new BusConfiguration()
+                .addFeature(Feature.SyncPubSub.Default())
+                .addPublicationErrorHandler(new IgnoreErrors());
+    }
+
+    public static IBusConfiguration SyncAsyncConfiguration() {
+        return new BusConfiguration()
+                .addFeature(Feature.SyncPubSub.Default())
+                .addFeature(Feature.AsynchronousHandlerInvocation.Default())
+                .addFeature(Feature.AsynchronousMessageDispatch.Default())
+                .addPublicationErrorHandler(new IgnoreErrors());
+    }
+}
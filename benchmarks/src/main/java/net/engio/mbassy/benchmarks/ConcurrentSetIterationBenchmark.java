@@ -0,0 +1,66 @@
+package net.engio.mbassy.benchmarks;
+
+import net.engio.mbassy.common.NonBlockingConcurrentSet;
+import net.engio.mbassy.common.StrongConcurrentSet;
+import net.engio.mbassy.common.WeakConcurrentSet;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Iteration over the listener sets used by subscriptions. The elements are kept reachable
+ * such that the weak set does not have to clean up orphaned entries.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConcurrentSetIterationBenchmark {
+
+    @Param({"Strong", "Weak", "NonBlockingStrong", "NonBlockingWeak"})
+    public String set;
+
+    @Param({"10", "1000"})
+    public int size;
+
+    private Set<Object> listeners;
+
+    // keeps the elements of the weak set reachable
+    private final List<Object> elements = new ArrayList<Object>();
+
+    @Setup
+    public void setup() {
+        if ("Strong".equals(set)) {
+            listeners = new StrongConcurrentSet<Object>();
+        } else if ("Weak".equals(set)) {
+            listeners = new WeakConcurrentSet<Object>();
+        } else if ("NonBlockingStrong".equals(set)) {
+            listeners = NonBlockingConcurrentSet.strong();
+        } else {
+            listeners = NonBlockingConcurrentSet.weak();
+        }
+        for (int i = 0; i < size; i++) {
+            Object element = new Object();
+            elements.add(element);
+            listeners.add(element);
+        }
+    }
+
+    @Benchmark
+    public void iterate(Blackhole blackhole) {
+        for (Object listener : listeners) {
+            blackhole.consume(listener);
+        }
+    }
+
+    @Benchmark
+    public boolean contains() {
+        return listeners.contains(elements.get(0));
+    }
+}
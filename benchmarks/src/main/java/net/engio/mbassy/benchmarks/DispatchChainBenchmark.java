@@ -0,0 +1,54 @@
+package net.engio.mbassy.benchmarks;
+
+import net.engio.mbassy.bus.IMessagePublication;
+import net.engio.mbassy.bus.SyncMessageBus;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Synchronous publication through the different dispatcher chains: plain delivery, delivery through
+ * a {@link net.engio.mbassy.dispatch.FilteredMessageDispatcher} and through an
+ * {@link net.engio.mbassy.dispatch.EnvelopedMessageDispatcher}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DispatchChainBenchmark {
+
+    @Param({"Plain", "Filtered", "Enveloped"})
+    public String chain;
+
+    @Param({"1", "10"})
+    public int listeners;
+
+    private SyncMessageBus<BenchmarkListeners.Event> messageBus;
+
+    private final BenchmarkListeners.Event event = new BenchmarkListeners.SubEvent();
+
+    @Setup
+    public void setup() {
+        messageBus = new SyncMessageBus<BenchmarkListeners.Event>(BenchmarkListeners.SyncConfiguration());
+        for (int i = 0; i < listeners; i++) {
+            messageBus.subscribe(createListener());
+        }
+    }
+
+    private Object createListener() {
+        if ("Filtered".equals(chain)) {
+            return new BenchmarkListeners.FilteredEventListener();
+        }
+        if ("Enveloped".equals(chain)) {
+            return new BenchmarkListeners.EnvelopedEventListener();
+        }
+        return new BenchmarkListeners.EventListener();
+    }
+
+    @Benchmark
+    public IMessagePublication publish() {
+        return messageBus.publish(event);
+    }
+}
@@ -0,0 +1,65 @@
+package net.engio.mbassy.benchmarks;
+
+import net.engio.mbassy.bus.BusRuntime;
+import net.engio.mbassy.bus.MessagePublication;
+import net.engio.mbassy.bus.config.IBusConfiguration;
+import net.engio.mbassy.bus.error.IPublicationErrorHandler;
+import net.engio.mbassy.dispatch.GeneratedHandlerInvocation;
+import net.engio.mbassy.dispatch.IHandlerInvocation;
+import net.engio.mbassy.dispatch.MethodHandleInvocation;
+import net.engio.mbassy.dispatch.ReflectiveHandlerInvocation;
+import net.engio.mbassy.listener.MessageHandler;
+import net.engio.mbassy.listener.MetadataReader;
+import net.engio.mbassy.subscription.Subscription;
+import net.engio.mbassy.subscription.SubscriptionContext;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Raw cost of a single handler invocation using the different {@link IHandlerInvocation} strategies,
+ * without any dispatch logic around it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HandlerInvocationBenchmark {
+
+    @Param({"Generated", "MethodHandle", "Reflective"})
+    public String invocation;
+
+    private IHandlerInvocation handlerInvocation;
+
+    private MessagePublication publication;
+
+    private final BenchmarkListeners.EventListener listener = new BenchmarkListeners.EventListener();
+
+    private final BenchmarkListeners.Event event = new BenchmarkListeners.Event();
+
+    @Setup
+    public void setup() {
+        BusRuntime runtime = new BusRuntime(null)
+                .add(IBusConfiguration.Properties.PublicationErrorHandlers, Collections.<IPublicationErrorHandler>emptySet());
+        MessageHandler handler = new MetadataReader().getMessageListener(BenchmarkListeners.EventListener.class).getHandlers()[0];
+        SubscriptionContext context = new SubscriptionContext(runtime, handler, Collections.<IPublicationErrorHandler>emptySet());
+        if ("Generated".equals(invocation)) {
+            handlerInvocation = GeneratedHandlerInvocation.create(context);
+        } else if ("MethodHandle".equals(invocation)) {
+            handlerInvocation = new MethodHandleInvocation(context);
+        } else {
+            handlerInvocation = new ReflectiveHandlerInvocation(context);
+        }
+        publication = new MessagePublication.Factory()
+                .createPublication(runtime, Collections.<Subscription>emptyList(), event);
+    }
+
+    @Benchmark
+    public long invoke() {
+        handlerInvocation.invoke(listener, event, publication);
+        return listener.received;
+    }
+}
@@ -0,0 +1,67 @@
+package net.engio.mbassy.benchmarks;
+
+import net.engio.mbassy.bus.IMessagePublication;
+import net.engio.mbassy.bus.MBassador;
+import net.engio.mbassy.bus.SyncMessageBus;
+import net.engio.mbassy.bus.common.PubSubSupport;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Synchronous publication of a single message to a varying number of listeners of the same class.
+ * Compares {@link MBassador#publish(Object)} with {@link SyncMessageBus#publish(Object)} and the
+ * fire-and-forget publication {@link PubSubSupport#fire(Object)}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PublishBenchmark {
+
+    @Param({"1", "10", "1000"})
+    public int listeners;
+
+    @Param({"MBassador", "SyncMessageBus"})
+    public String bus;
+
+    private PubSubSupport<BenchmarkListeners.Event> messageBus;
+
+    private final BenchmarkListeners.Event event = new BenchmarkListeners.Event();
+
+    @Setup
+    public void setup() {
+        messageBus = "MBassador".equals(bus)
+                ? new MBassador<BenchmarkListeners.Event>(BenchmarkListeners.SyncAsyncConfiguration())
+                : new SyncMessageBus<BenchmarkListeners.Event>(BenchmarkListeners.SyncConfiguration());
+        for (int i = 0; i < listeners; i++) {
+            messageBus.subscribe(new BenchmarkListeners.EventListener());
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (messageBus instanceof MBassador) {
+            ((MBassador) messageBus).shutdown();
+        }
+    }
+
+    @Benchmark
+    public IMessagePublication publish() {
+        return messageBus.publish(event);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public IMessagePublication publishConcurrently() {
+        return messageBus.publish(event);
+    }
+
+    // fire-and-forget, run with -prof gc to see the allocation rate per operation
+    @Benchmark
+    public void fire() {
+        messageBus.fire(event);
+    }
+}
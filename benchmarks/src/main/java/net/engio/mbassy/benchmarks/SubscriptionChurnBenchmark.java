@@ -0,0 +1,90 @@
+package net.engio.mbassy.benchmarks;
+
+import net.engio.mbassy.bus.SyncMessageBus;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Subscription and removal of short-lived listeners of an already known listener class,
+ * optionally while other threads keep publishing messages to the same bus.
+ * The batch benchmarks compare the bulk operations with subscribing each listener of the batch individually.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SubscriptionChurnBenchmark {
+
+    @Param({"Strong", "Weak"})
+    public String references;
+
+    private SyncMessageBus<BenchmarkListeners.Event> messageBus;
+
+    private final BenchmarkListeners.Event event = new BenchmarkListeners.Event();
+
+    private final List<Object> batch = new ArrayList<Object>();
+
+    @Setup
+    public void setup() {
+        messageBus = new SyncMessageBus<BenchmarkListeners.Event>(BenchmarkListeners.SyncConfiguration());
+        // some long-lived listeners that receive the published messages
+        for (int i = 0; i < 100; i++) {
+            messageBus.subscribe(createListener());
+        }
+        for (int i = 0; i < 1000; i++) {
+            batch.add(createListener());
+        }
+    }
+
+    private Object createListener() {
+        return "Strong".equals(references)
+                ? new BenchmarkListeners.EventListener()
+                : new BenchmarkListeners.WeakEventListener();
+    }
+
+    @Benchmark
+    public boolean subscribeUnsubscribe() {
+        Object listener = createListener();
+        messageBus.subscribe(listener);
+        return messageBus.unsubscribe(listener);
+    }
+
+    @Benchmark
+    public boolean subscribeBatchIndividually() {
+        for (Object listener : batch) {
+            messageBus.subscribe(listener);
+        }
+        boolean removed = true;
+        for (Object listener : batch) {
+            removed &= messageBus.unsubscribe(listener);
+        }
+        return removed;
+    }
+
+    @Benchmark
+    public boolean subscribeBatchInBulk() {
+        messageBus.subscribeAll(batch);
+        return messageBus.unsubscribeAll(batch);
+    }
+
+    @Benchmark
+    @Group("churnWhilePublishing")
+    @GroupThreads(2)
+    public boolean churn() {
+        Object listener = createListener();
+        messageBus.subscribe(listener);
+        return messageBus.unsubscribe(listener);
+    }
+
+    @Benchmark
+    @Group("churnWhilePublishing")
+    @GroupThreads(2)
+    public Object publish() {
+        return messageBus.publish(event);
+    }
+}
@@ -0,0 +1,553 @@
+package net.engio.mbassy.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.StandardLocation;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Resolves the message handlers of all listener classes at compile time and generates an implementation of
+ * <code>net.engio.mbassy.listener.ICompiledListener</code> for each of them. The generated class provides the handler
+ * methods without scanning the class hierarchy and a direct invocation of each handler that is accessible from
+ * the package of the listener.
+ * <p/>
+ * Handlers are resolved with the same rules as the <code>MetadataReader</code> applies at runtime: handlers are
+ * inherited from super classes and interfaces, the bottom most override of a handler is invoked, and custom
+ * annotations that are annotated with <code>@Handler</code> are supported. Bridge methods are not considered.
+ * Listeners with handlers whose parameter type is not a class are skipped and thus read by reflection at runtime.
+ * <p/>
+ * The processor also writes the listener index (<code>META-INF/mbassador/listeners.idx</code>) that lists all concrete
+ * classes declaring handlers, i.e. the classes <code>MBassador.autoScan</code> would find by scanning the class files.
+ * An index that exists in the class output (e.g. of an incremental build) is merged: its entries are kept unless the
+ * class has been compiled again or can not be found anymore, such that listeners compiled earlier remain indexed.
+ */
+@SupportedAnnotationTypes("*")
+public class ListenerProcessor extends AbstractProcessor {
+
+    static final String Handler = "net.engio.mbassy.listener.Handler";
+    static final String Enveloped = "net.engio.mbassy.listener.Enveloped";
+    static final String MessageEnvelope = "net.engio.mbassy.subscription.MessageEnvelope";
+    static final String ClassSuffix = "_MBassadorListener";
+    static final String Index = "META-INF/mbassador/listeners.idx";
+
+    private final Set<String> generated = new HashSet<String>();
+
+    private final Set<String> indexed = new TreeSet<String>();
+
+    // the binary names of all classes of the current compilation
+    private final Set<String> processed = new HashSet<String>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment round) {
+        for (Element root : round.getRootElements()) {
+            processType(root);
+        }
+        if (round.processingOver()) {
+            writeIndex();
+        }
+        // the processor only generates code, it never claims any annotation
+        return false;
+    }
+
+    private void processType(Element element) {
+        if (!element.getKind().isClass() && !element.getKind().isInterface()) {
+            return;
+        }
+        for (Element enclosed : element.getEnclosedElements()) {
+            processType(enclosed);
+        }
+        TypeElement type = (TypeElement) element;
+        processed.add(processingEnv.getElementUtils().getBinaryName(type).toString());
+        if (type.getKind() != ElementKind.CLASS || type.getModifiers().contains(Modifier.ABSTRACT)) {
+            return;
+        }
+        if (declaresHandlers(type)) {
+            indexed.add(processingEnv.getElementUtils().getBinaryName(type).toString());
+        }
+        if (!isAccessible(type)) {
+            return;
+        }
+        List<ResolvedHandler> handlers = resolveHandlers(type);
+        if (handlers == null || handlers.isEmpty()) {
+            return;
+        }
+        String name = processingEnv.getElementUtils().getBinaryName(type) + ClassSuffix;
+        if (generated.add(name)) {
+            write(type, name, handlers);
+        }
+    }
+
+    // see ClassFileHandlerScanner: methods annotated with @Handler or a custom handler annotation
+    private boolean declaresHandlers(TypeElement type) {
+        for (ExecutableElement method : ElementFilter.methodsIn(type.getEnclosedElements())) {
+            if (getAnnotation(method, Handler) != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void writeIndex() {
+        Set<String> listeners = new TreeSet<String>(indexed);
+        listeners.addAll(readPreviousIndex());
+        if (listeners.isEmpty()) {
+            return;
+        }
+        try {
+            Writer writer = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", Index).openWriter();
+            try {
+                writer.write("# Listeners indexed by " + getClass().getName() + "\n");
+                for (String listener : listeners) {
+                    writer.write(listener + "\n");
+                }
+            } finally {
+                writer.close();
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, "Could not write listener index: " + e.getMessage());
+        }
+    }
+
+    // the listeners of an existing index that have not been compiled again and still exist
+    private Set<String> readPreviousIndex() {
+        Set<String> listeners = new TreeSet<String>();
+        BufferedReader reader;
+        try {
+            reader = new BufferedReader(processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", Index).openReader(true));
+        } catch (IOException e) {
+            return listeners; // no index has been written before
+        }
+        try {
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    line = line.trim();
+                    if (line.isEmpty() || line.startsWith("#") || processed.contains(line)) {
+                        continue;
+                    }
+                    // binary names of nested classes use '$', canonical names '.'
+                    if (processingEnv.getElementUtils().getTypeElement(line.replace('$', '.')) != null) {
+                        listeners.add(line);
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, "Could not read listener index: " + e.getMessage());
+        }
+        return listeners;
+    }
+
+    // generated code lives in the package of the listener and can not refer to private types
+    private boolean isAccessible(TypeElement type) {
+        Element current = type;
+        while (current.getKind().isClass() || current.getKind().isInterface()) {
+            if (current.getModifiers().contains(Modifier.PRIVATE)) {
+                return false;
+            }
+            current = current.getEnclosingElement();
+        }
+        return true;
+    }
+
+    // see MetadataReader#getMessageListener
+    private List<ResolvedHandler> resolveHandlers(TypeElement target) {
+        List<ExecutableElement> allHandlers = new ArrayList<ExecutableElement>();
+        addHandlers(target, allHandlers);
+        for (TypeElement superType : getSuperTypes(target)) {
+            if (!superType.getQualifiedName().contentEquals(Object.class.getName())) {
+                addHandlers(superType, allHandlers);
+            }
+        }
+        List<ResolvedHandler> resolved = new ArrayList<ResolvedHandler>();
+        Set<String> processedMethods = new HashSet<String>();
+        // handlers that are defined in the class hierarchy
+        for (ExecutableElement handler : allHandlers) {
+            if (containsOverridingMethod(allHandlers, handler)) {
+                continue;
+            }
+            if (!isEnabled(getAnnotation(handler, Handler)) || !isValidMessageHandler(handler)) {
+                continue;
+            }
+            ExecutableElement overriding = getOverridingMethod(handler, target);
+            ExecutableElement actual = overriding == null ? handler : overriding;
+            processedMethods.add(getMethodKey(actual));
+            resolved.add(new ResolvedHandler(actual, handler));
+        }
+        // handlers that are defined in interfaces only
+        for (ExecutableElement interfaceMethod : getInterfaceMethods(target)) {
+            ExecutableElement classMethod = findClassMethod(target, interfaceMethod);
+            if (classMethod == null || processedMethods.contains(getMethodKey(classMethod))) {
+                continue;
+            }
+            if (getDirectAnnotation(classMethod, Handler) == null
+                    && isEnabled(getAnnotation(interfaceMethod, Handler))
+                    && isValidMessageHandler(interfaceMethod)) {
+                processedMethods.add(getMethodKey(classMethod));
+                resolved.add(new ResolvedHandler(classMethod, interfaceMethod));
+            }
+        }
+        for (ResolvedHandler handler : resolved) {
+            if (getParameterType(handler.handler) == null || getParameterType(handler.configuration) == null) {
+                // the method can not be looked up by the name of its parameter type
+                return null;
+            }
+        }
+        return resolved;
+    }
+
+    private void addHandlers(TypeElement type, List<ExecutableElement> handlers) {
+        for (ExecutableElement method : ElementFilter.methodsIn(type.getEnclosedElements())) {
+            if (getAnnotation(method, Handler) != null) {
+                handlers.add(method);
+            }
+        }
+    }
+
+    // see ReflectionUtils#getSuperTypeHierarchy
+    private Set<TypeElement> getSuperTypes(TypeElement from) {
+        Set<TypeElement> superTypes = new LinkedHashSet<TypeElement>();
+        collectInterfaces(from, superTypes);
+        TypeElement current = getSuperclass(from);
+        while (current != null) {
+            superTypes.add(current);
+            collectInterfaces(current, superTypes);
+            current = getSuperclass(current);
+        }
+        return superTypes;
+    }
+
+    private void collectInterfaces(TypeElement from, Set<TypeElement> accumulator) {
+        for (TypeMirror mirror : from.getInterfaces()) {
+            TypeElement intface = asTypeElement(mirror);
+            if (accumulator.add(intface)) {
+                collectInterfaces(intface, accumulator);
+            }
+        }
+    }
+
+    // see ReflectionUtils#getInterfaceMethods
+    private List<ExecutableElement> getInterfaceMethods(TypeElement target) {
+        List<ExecutableElement> methods = new ArrayList<ExecutableElement>();
+        collectInterfaceMethods(target, methods, new HashSet<TypeElement>());
+        return methods;
+    }
+
+    private void collectInterfaceMethods(TypeElement target, List<ExecutableElement> methods, Set<TypeElement> visited) {
+        if (target.getKind() != ElementKind.INTERFACE) {
+            TypeElement superclass = getSuperclass(target);
+            if (superclass != null) {
+                collectInterfaceMethods(superclass, methods, visited);
+            }
+        }
+        for (TypeMirror mirror : target.getInterfaces()) {
+            TypeElement intface = asTypeElement(mirror);
+            if (visited.add(intface)) {
+                collectInterfaceMethods(intface, methods, visited);
+                addHandlers(intface, methods);
+            }
+        }
+    }
+
+    // see ReflectionUtils#isOverriddenBy
+    private boolean containsOverridingMethod(List<ExecutableElement> allMethods, ExecutableElement methodToCheck) {
+        TypeElement superclass = (TypeElement) methodToCheck.getEnclosingElement();
+        for (ExecutableElement method : allMethods) {
+            TypeElement subclass = (TypeElement) method.getEnclosingElement();
+            if (superclass.equals(subclass)
+                    || !processingEnv.getTypeUtils().isSubtype(erasure(subclass.asType()), erasure(superclass.asType()))) {
+                continue;
+            }
+            if (hasSameSignature(methodToCheck, method)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // see ReflectionUtils#getOverridingMethod
+    private ExecutableElement getOverridingMethod(ExecutableElement overridden, TypeElement subclass) {
+        TypeElement current = subclass;
+        while (current != null && !current.equals(overridden.getEnclosingElement())) {
+            for (ExecutableElement method : ElementFilter.methodsIn(current.getEnclosedElements())) {
+                if (hasSameSignature(overridden, method)) {
+                    return method;
+                }
+            }
+            current = getSuperclass(current);
+        }
+        return null;
+    }
+
+    // see Class#getMethod, the public method of the class hierarchy that implements the interface method
+    private ExecutableElement findClassMethod(TypeElement target, ExecutableElement interfaceMethod) {
+        Set<TypeElement> candidates = new LinkedHashSet<TypeElement>();
+        for (TypeElement current = target; current != null; current = getSuperclass(current)) {
+            candidates.add(current);
+        }
+        collectInterfaces(target, candidates);
+        for (TypeElement candidate : candidates) {
+            for (ExecutableElement method : ElementFilter.methodsIn(candidate.getEnclosedElements())) {
+                if (method.getModifiers().contains(Modifier.PUBLIC) && hasSameSignature(interfaceMethod, method)) {
+                    return method;
+                }
+            }
+        }
+        return null;
+    }
+
+    private boolean hasSameSignature(ExecutableElement method, ExecutableElement other) {
+        if (!method.getSimpleName().equals(other.getSimpleName())
+                || method.getParameters().size() != other.getParameters().size()) {
+            return false;
+        }
+        for (int i = 0; i < method.getParameters().size(); i++) {
+            if (!processingEnv.getTypeUtils().isSameType(erasure(method.getParameters().get(i).asType()),
+                    erasure(other.getParameters().get(i).asType()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String getMethodKey(ExecutableElement method) {
+        StringBuilder key = new StringBuilder();
+        key.append(method.getSimpleName());
+        for (VariableElement parameter : method.getParameters()) {
+            key.append("_").append(erasure(parameter.asType()));
+        }
+        return key.toString();
+    }
+
+    // see MetadataReader#isValidMessageHandler
+    private boolean isValidMessageHandler(ExecutableElement handler) {
+        if (getAnnotation(handler, Handler) == null || handler.getParameters().size() != 1) {
+            return false;
+        }
+        AnnotationMirror envelope = getAnnotation(handler, Enveloped);
+        if (envelope == null) {
+            return true;
+        }
+        TypeElement messageEnvelope = processingEnv.getElementUtils().getTypeElement(MessageEnvelope);
+        if (messageEnvelope == null || !processingEnv.getTypeUtils().isAssignable(
+                erasure(handler.getParameters().get(0).asType()), erasure(messageEnvelope.asType()))) {
+            return false;
+        }
+        Object messages = getValue(envelope, "messages");
+        return messages instanceof List && !((List) messages).isEmpty();
+    }
+
+    private boolean isEnabled(AnnotationMirror handler) {
+        return handler != null && Boolean.TRUE.equals(getValue(handler, "enabled"));
+    }
+
+    private Object getValue(AnnotationMirror annotation, String name) {
+        Map<? extends ExecutableElement, ? extends AnnotationValue> values =
+                processingEnv.getElementUtils().getElementValuesWithDefaults(annotation);
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> value : values.entrySet()) {
+            if (value.getKey().getSimpleName().contentEquals(name)) {
+                return value.getValue().getValue();
+            }
+        }
+        return null;
+    }
+
+    // see ReflectionUtils#getAnnotation, supports meta annotations
+    private AnnotationMirror getAnnotation(Element from, String annotationType) {
+        return getAnnotation(from, annotationType, new HashSet<Element>());
+    }
+
+    private AnnotationMirror getAnnotation(Element from, String annotationType, Set<Element> visited) {
+        if (!visited.add(from)) {
+            return null;
+        }
+        AnnotationMirror annotation = getDirectAnnotation(from, annotationType);
+        if (annotation != null) {
+            return annotation;
+        }
+        for (AnnotationMirror metaAnnotation : from.getAnnotationMirrors()) {
+            annotation = getAnnotation(metaAnnotation.getAnnotationType().asElement(), annotationType, visited);
+            if (annotation != null) {
+                return annotation;
+            }
+        }
+        return null;
+    }
+
+    private AnnotationMirror getDirectAnnotation(Element from, String annotationType) {
+        for (AnnotationMirror annotation : from.getAnnotationMirrors()) {
+            if (((TypeElement) annotation.getAnnotationType().asElement()).getQualifiedName().contentEquals(annotationType)) {
+                return annotation;
+            }
+        }
+        return null;
+    }
+
+    private TypeElement getSuperclass(TypeElement type) {
+        TypeMirror superclass = type.getSuperclass();
+        return superclass.getKind() == TypeKind.NONE ? null : asTypeElement(superclass);
+    }
+
+    private TypeElement asTypeElement(TypeMirror type) {
+        return (TypeElement) processingEnv.getTypeUtils().asElement(type);
+    }
+
+    private TypeMirror erasure(TypeMirror type) {
+        return processingEnv.getTypeUtils().erasure(type);
+    }
+
+    // the erased class of the only parameter or null if it is no class (e.g. a primitive or an array)
+    private TypeElement getParameterType(ExecutableElement method) {
+        TypeMirror type = erasure(method.getParameters().get(0).asType());
+        return type.getKind() == TypeKind.DECLARED ? asTypeElement(type) : null;
+    }
+
+    private void write(TypeElement target, String name, List<ResolvedHandler> handlers) {
+        PackageElement targetPackage = processingEnv.getElementUtils().getPackageOf(target);
+        String simpleName = targetPackage.isUnnamed() ? name : name.substring(targetPackage.getQualifiedName().length() + 1);
+        // each distinct method is looked up only once
+        Map<ExecutableElement, String> variables = new LinkedHashMap<ExecutableElement, String>();
+        for (ResolvedHandler handler : handlers) {
+            for (ExecutableElement method : new ExecutableElement[]{handler.handler, handler.configuration}) {
+                if (!variables.containsKey(method)) {
+                    variables.put(method, "method" + variables.size());
+                }
+            }
+        }
+        StringBuilder source = new StringBuilder();
+        if (!targetPackage.isUnnamed()) {
+            source.append("package ").append(targetPackage.getQualifiedName()).append(";\n\n");
+        }
+        source.append("/**\n")
+              .append(" * The message handlers of ").append(target.getQualifiedName()).append(" resolved at compile time.\n")
+              .append(" * Generated by ").append(ListenerProcessor.class.getName()).append(", do not edit.\n")
+              .append(" */\n")
+              .append("public final class ").append(simpleName).append(" implements net.engio.mbassy.listener.ICompiledListener {\n\n")
+              .append("    @Override\n")
+              .append("    public net.engio.mbassy.listener.CompiledHandler[] getHandlers() throws ReflectiveOperationException {\n")
+              .append("        ClassLoader loader = ").append(simpleName).append(".class.getClassLoader();\n");
+        for (Map.Entry<ExecutableElement, String> variable : variables.entrySet()) {
+            ExecutableElement method = variable.getKey();
+            source.append("        java.lang.reflect.Method ").append(variable.getValue())
+                  .append(" = net.engio.mbassy.listener.CompiledHandler.findMethod(loader, \"")
+                  .append(processingEnv.getElementUtils().getBinaryName((TypeElement) method.getEnclosingElement()))
+                  .append("\", \"").append(method.getSimpleName())
+                  .append("\", \"").append(processingEnv.getElementUtils().getBinaryName(getParameterType(method)))
+                  .append("\");\n");
+        }
+        source.append("        return new net.engio.mbassy.listener.CompiledHandler[]{\n");
+        for (ResolvedHandler handler : handlers) {
+            source.append("            new net.engio.mbassy.listener.CompiledHandler(")
+                  .append(variables.get(handler.handler)).append(", ")
+                  .append(variables.get(handler.configuration)).append(", ");
+            appendInvoker(source, target, targetPackage, handler.handler);
+            source.append("),\n");
+        }
+        source.append("        };\n")
+              .append("    }\n")
+              .append("}\n");
+        try {
+            Writer writer = processingEnv.getFiler().createSourceFile(name, target).openWriter();
+            try {
+                writer.write(source.toString());
+            } finally {
+                writer.close();
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                    "Could not generate the handler metadata of " + target.getQualifiedName() + ": " + e.getMessage(), target);
+        }
+    }
+
+    // a direct invocation of the handler or null if the handler is not accessible from the package of the listener
+    private void appendInvoker(StringBuilder source, TypeElement target, PackageElement targetPackage, ExecutableElement handler) {
+        TypeElement parameterType = getParameterType(handler);
+        if (!isInvokable(handler, targetPackage) || !isAccessibleFrom(parameterType, targetPackage)) {
+            source.append("null");
+            return;
+        }
+        String invocation = "((" + target.getQualifiedName() + ") listener)." + handler.getSimpleName()
+                + "((" + parameterType.getQualifiedName() + ") message);";
+        source.append("new java.util.function.BiConsumer<Object, Object>() {\n")
+              .append("                @Override\n")
+              .append("                public void accept(Object listener, Object message) {\n");
+        if (handler.getThrownTypes().isEmpty()) {
+            source.append("                    ").append(invocation).append("\n");
+        } else {
+            source.append("                    try {\n")
+                  .append("                        ").append(invocation).append("\n")
+                  .append("                    } catch (Throwable e) {\n")
+                  .append("                        throw net.engio.mbassy.listener.CompiledHandler.<RuntimeException>rethrow(e);\n")
+                  .append("                    }\n");
+        }
+        source.append("                }\n")
+              .append("            }");
+    }
+
+    private boolean isInvokable(ExecutableElement handler, PackageElement from) {
+        Set<Modifier> modifiers = handler.getModifiers();
+        if (modifiers.contains(Modifier.PRIVATE) || modifiers.contains(Modifier.STATIC)) {
+            return false;
+        }
+        return modifiers.contains(Modifier.PUBLIC)
+                || processingEnv.getElementUtils().getPackageOf(handler).equals(from);
+    }
+
+    private boolean isAccessibleFrom(TypeElement type, PackageElement from) {
+        boolean samePackage = processingEnv.getElementUtils().getPackageOf(type).equals(from);
+        Element current = type;
+        while (current.getKind().isClass() || current.getKind().isInterface()) {
+            Set<Modifier> modifiers = current.getModifiers();
+            if (modifiers.contains(Modifier.PRIVATE) || (!samePackage && !modifiers.contains(Modifier.PUBLIC))) {
+                return false;
+            }
+            current = current.getEnclosingElement();
+        }
+        return true;
+    }
+
+    private static final class ResolvedHandler {
+
+        // the method that is invoked
+        private final ExecutableElement handler;
+
+        // the method that carries the handler configuration
+        private final ExecutableElement configuration;
+
+        private ResolvedHandler(ExecutableElement handler, ExecutableElement configuration) {
+            this.handler = handler;
+            this.configuration = configuration;
+        }
+    }
+}
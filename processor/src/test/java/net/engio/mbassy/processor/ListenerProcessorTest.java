@@ -0,0 +1,188 @@
+package net.engio.mbassy.processor;
+
+import net.engio.mbassy.listener.MessageHandler;
+import net.engio.mbassy.listener.MetadataReader;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.annotation.processing.Processor;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Compiles listeners with and without the processor and compares the handler metadata read by the
+ * {@link MetadataReader} from the generated classes with the metadata read by reflection
+ */
+public class ListenerProcessorTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final String[][] Sources = new String[][]{
+            {"demo/other/Base.java",
+                    "package demo.other;\n"
+                    + "import net.engio.mbassy.listener.Handler;\n"
+                    + "public class Base {\n"
+                    + "    @Handler public void inherited(Integer message) {}\n"
+                    + "    @Handler(priority = 3) protected void overridden(Long message) {}\n"
+                    + "    @Handler void packagePrivate(Short message) {}\n"
+                    + "}\n"},
+            {"demo/Api.java",
+                    "package demo;\n"
+                    + "import net.engio.mbassy.listener.Handler;\n"
+                    + "public interface Api {\n"
+                    + "    @Handler void api(Character message);\n"
+                    + "}\n"},
+            {"demo/Async.java",
+                    "package demo;\n"
+                    + "import java.lang.annotation.*;\n"
+                    + "import net.engio.mbassy.listener.*;\n"
+                    + "@Retention(RetentionPolicy.RUNTIME) @Target(ElementType.METHOD)\n"
+                    + "@Handler(delivery = Invoke.Asynchronously)\n"
+                    + "public @interface Async {}\n"},
+            {"demo/Root.java",
+                    "package demo;\n"
+                    + "import net.engio.mbassy.listener.Handler;\n"
+                    + "public interface Root {\n"
+                    + "    @Handler void root(Float message);\n"
+                    + "}\n"},
+            {"demo/Left.java", "package demo;\npublic interface Left extends Root {}\n"},
+            {"demo/Right.java", "package demo;\npublic interface Right extends Root {}\n"},
+            {"demo/Diamond.java",
+                    "package demo;\n"
+                    + "public class Diamond implements Left, Right {\n"
+                    + "    public void root(Float message) {}\n"
+                    + "}\n"},
+            {"demo/Custom.java",
+                    "package demo;\n"
+                    + "public class Custom {\n"
+                    + "    @Async public void custom(Object message) {}\n"
+                    + "}\n"},
+            {"demo/Listener.java",
+                    "package demo;\n"
+                    + "import net.engio.mbassy.listener.Handler;\n"
+                    + "public class Listener extends demo.other.Base implements Api {\n"
+                    + "    @Handler public void handle(String message) throws Exception {}\n"
+                    + "    @Handler(enabled = false) public void disabled(Double message) {}\n"
+                    + "    @Override protected void overridden(Long message) {}\n"
+                    + "    @Override public void api(Character message) {}\n"
+                    + "    @Handler private void hidden(Byte message) {}\n"
+                    + "    @Async public void custom(Object message) {}\n"
+                    + "    @Handler public void invalid(String first, String second) {}\n"
+                    + "    public static class Nested {\n"
+                    + "        @Handler public void nested(String message) {}\n"
+                    + "    }\n"
+                    + "}\n"}
+    };
+
+    @Test
+    public void testCompiledMetadataMatchesReflection() throws Exception {
+        File compiled = compile(new ListenerProcessor());
+        File reflective = compile();
+        Assert.assertTrue(new File(compiled, "demo/Listener" + ListenerProcessor.ClassSuffix + ".class").exists());
+        Assert.assertTrue(new File(compiled, "demo/Listener$Nested" + ListenerProcessor.ClassSuffix + ".class").exists());
+        Assert.assertFalse(new File(reflective, "demo/Listener" + ListenerProcessor.ClassSuffix + ".class").exists());
+
+        for (String listener : Arrays.asList("demo.Custom", "demo.Diamond", "demo.Listener", "demo.Listener$Nested", "demo.other.Base")) {
+            Assert.assertEquals(describe(reflective, listener, false), describe(compiled, listener, false));
+        }
+        // interfaces that are inherited via multiple paths contribute their handlers once
+        Assert.assertEquals(1, describe(compiled, "demo.Diamond", false).size());
+        // private handlers and package private handlers of other packages are invoked by reflection
+        List<String> invokers = describe(compiled, "demo.Listener", true);
+        Assert.assertEquals(7, invokers.size());
+        for (String invoker : invokers) {
+            boolean inaccessible = invoker.startsWith("Listener.hidden") || invoker.startsWith("Base.packagePrivate");
+            Assert.assertEquals(!inaccessible, invoker.endsWith("invoker"));
+        }
+    }
+
+    @Test
+    public void testListenerIndex() throws Exception {
+        List<String> listeners = readIndex(new File(compile(new ListenerProcessor()), ListenerProcessor.Index));
+        // interfaces and annotations are not indexed
+        Assert.assertEquals(Arrays.asList("demo.Custom", "demo.Listener", "demo.Listener$Nested", "demo.other.Base"), listeners);
+        Assert.assertFalse(new File(compile(), ListenerProcessor.Index).exists());
+    }
+
+    @Test
+    public void testIncrementalListenerIndex() throws Exception {
+        File classes = compile(new ListenerProcessor());
+        // a listener is removed and another one is added by an incremental build that compiles only the new listener
+        Assert.assertTrue(new File(classes, "demo/Custom.class").delete());
+        compile(classes, new String[][]{{"demo/Added.java",
+                "package demo;\n"
+                + "import net.engio.mbassy.listener.Handler;\n"
+                + "public class Added {\n"
+                + "    @Handler public void added(String message) {}\n"
+                + "}\n"}}, new ListenerProcessor());
+        Assert.assertEquals(Arrays.asList("demo.Added", "demo.Listener", "demo.Listener$Nested", "demo.other.Base"),
+                readIndex(new File(classes, ListenerProcessor.Index)));
+    }
+
+    private List<String> readIndex(File index) throws IOException {
+        List<String> listeners = new ArrayList<String>();
+        for (String line : Files.readAllLines(index.toPath(), StandardCharsets.UTF_8)) {
+            if (!line.startsWith("#")) {
+                listeners.add(line);
+            }
+        }
+        return listeners;
+    }
+
+    private List<String> describe(File classes, String listener, boolean invokers) throws Exception {
+        URLClassLoader loader = new URLClassLoader(new URL[]{classes.toURI().toURL()}, getClass().getClassLoader());
+        List<String> handlers = new ArrayList<String>();
+        for (MessageHandler handler : new MetadataReader().getMessageListener(loader.loadClass(listener)).getHandlers()) {
+            handlers.add(handler.getMethod().getDeclaringClass().getSimpleName() + "." + handler.getMethod().getName()
+                    + " priority=" + handler.getPriority()
+                    + " async=" + handler.isAsynchronous()
+                    + (invokers && handler.getInvoker() != null ? " invoker" : ""));
+        }
+        Collections.sort(handlers);
+        return handlers;
+    }
+
+    private File compile(Processor... processors) throws IOException {
+        File classes = new File(folder.newFolder(), "classes");
+        classes.mkdirs();
+        return compile(classes, Sources, processors);
+    }
+
+    // compiles the given sources into the given directory, which is also part of the class path
+    private File compile(File classes, String[][] sourceFiles, Processor... processors) throws IOException {
+        File sources = new File(folder.newFolder(), "src");
+        List<File> files = new ArrayList<File>();
+        for (String[] source : sourceFiles) {
+            File file = new File(sources, source[0]);
+            file.getParentFile().mkdirs();
+            Files.write(file.toPath(), source[1].getBytes(StandardCharsets.UTF_8));
+            files.add(file);
+        }
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, StandardCharsets.UTF_8);
+        Iterable<? extends JavaFileObject> units = fileManager.getJavaFileObjectsFromFiles(files);
+        List<String> options = Arrays.asList("-d", classes.getPath(),
+                "-classpath", classes.getPath() + File.pathSeparator + System.getProperty("java.class.path"),
+                processors.length == 0 ? "-proc:none" : "-implicit:class");
+        JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, null, options, null, units);
+        task.setProcessors(Arrays.asList(processors));
+        Assert.assertTrue(task.call());
+        fileManager.close();
+        return classes;
+    }
+}
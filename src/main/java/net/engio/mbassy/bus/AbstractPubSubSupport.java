@@ -7,6 +7,7 @@ import net.engio.mbassy.bus.config.Feature;
 import net.engio.mbassy.bus.config.IBusConfiguration;
 import net.engio.mbassy.bus.error.IPublicationErrorHandler;
 import net.engio.mbassy.bus.error.PublicationError;
+import net.engio.mbassy.bus.metrics.IMetricsCollector;
 import net.engio.mbassy.subscription.Subscription;
 import net.engio.mbassy.subscription.SubscriptionManager;
 
@@ -32,6 +33,9 @@ public abstract class AbstractPubSubSupport<T> implements PubSubSupport<T> {
 
     private final BusRuntime runtime;
 
+    // null if no metrics are collected
+    private final IMetricsCollector metrics;
+
     public static final String ERROR_HANDLER_MSG = "INFO: No error handler has been configured to handle exceptions during publication.\n" +
             "Publication error handlers can be added by IBusConfiguration.addPublicationErrorHandler()\n" +
             "Falling back to console logger.";
@@ -46,6 +50,12 @@ public abstract class AbstractPubSubSupport<T> implements PubSubSupport<T> {
         this.runtime = new BusRuntime(this)
                 .add(PublicationErrorHandlers, configuration.getRegisteredPublicationErrorHandlers())
                 .add(BusId, configuration.getProperty(BusId, UUID.randomUUID().toString()));
+        // configure the optional metrics feature before any subscription is created
+        Feature.Metrics metricsFeature = configuration.getFeature(Feature.Metrics.class);
+        this.metrics = metricsFeature != null ? metricsFeature.getCollector() : null;
+        if (metrics != null) {
+            runtime.add(IBusConfiguration.Properties.MetricsCollector, metrics);
+        }
         // configure the pub sub feature
         Feature.SyncPubSub pubSubFeature = configuration.getFeature(Feature.SyncPubSub.class);
         if(pubSubFeature == null){
@@ -74,6 +84,14 @@ public abstract class AbstractPubSubSupport<T> implements PubSubSupport<T> {
         subscriptionManager.subscribe(listener);
     }
 
+    public boolean unsubscribeAll(Collection<?> listeners) {
+        return subscriptionManager.unsubscribeAll(listeners);
+    }
+
+    public void subscribeAll(Collection<?> listeners) {
+        subscriptionManager.subscribeAll(listeners);
+    }
+
 
     @Override
     public BusRuntime getRuntime() {
@@ -81,14 +99,122 @@ public abstract class AbstractPubSubSupport<T> implements PubSubSupport<T> {
     }
 
     protected MessagePublication createMessagePublication(T message) {
-        Collection<Subscription> subscriptions = getSubscriptionsByMessageType(message.getClass());
-        if ((subscriptions == null || subscriptions.isEmpty()) && !message.getClass()
+        Subscription[] subscriptions = getSortedSubscriptions(message.getClass());
+        MessagePublication publication;
+        if (subscriptions.length == 0 && !message.getClass()
                 .equals(DeadMessage.class)) {
             // DeadMessage Event
-            subscriptions = getSubscriptionsByMessageType(DeadMessage.class);
-            return getPublicationFactory().createPublication(runtime, subscriptions, new DeadMessage(message));
+            subscriptions = getSortedSubscriptions(DeadMessage.class);
+            publication = getPublicationFactory().createPublication(runtime, Arrays.asList(subscriptions), new DeadMessage(message));
+            if (metrics != null) {
+                metrics.deadMessage(message);
+            }
         } else {
-            return getPublicationFactory().createPublication(runtime, subscriptions, message);
+            publication = getPublicationFactory().createPublication(runtime, Arrays.asList(subscriptions), message);
+        }
+        if (metrics != null) {
+            measure(publication, message);
+        }
+        return publication;
+    }
+
+    private void measure(MessagePublication publication, Object message) {
+        metrics.messagePublished(message.getClass());
+        publication.markCreated(System.nanoTime());
+    }
+
+    // null if no metrics are collected
+    protected IMetricsCollector getMetrics() {
+        return metrics;
+    }
+
+    protected BatchPublication createBatchPublication(Collection<? extends T> messages) {
+        BatchPublication batch = new BatchPublication(messages.size());
+        // resolve the subscriptions only once per message type
+        Map<Class, Collection<Subscription>> resolved = new HashMap<Class, Collection<Subscription>>();
+        for (T message : messages) {
+            Class messageType = message.getClass();
+            Collection<Subscription> subscriptions = resolved.get(messageType);
+            if (subscriptions == null) {
+                subscriptions = Arrays.asList(getSortedSubscriptions(messageType));
+                resolved.put(messageType, subscriptions);
+            }
+            if (subscriptions.isEmpty() && !messageType.equals(DeadMessage.class)) {
+                batch.add(createMessagePublication(message));
+            } else {
+                MessagePublication publication = getPublicationFactory().createPublication(runtime, subscriptions, message);
+                if (metrics != null) {
+                    measure(publication, message);
+                }
+                batch.add(messageType, subscriptions, publication);
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * Synchronously publish all messages as a single batch. Subscriptions are resolved once per message type
+     * and each handler is invoked with all messages of a type before the next handler is invoked.
+     * The call returns when all messages have been delivered to all matching handlers.
+     */
+    public BatchPublication publishAll(Collection<? extends T> messages) {
+        BatchPublication publication = createBatchPublication(messages);
+        try {
+            publication.execute();
+        } catch (Throwable e) {
+            handlePublicationError(new PublicationError().setMessage("Error during publication of message batch")
+                                                         .setCause(e)
+                                                         .setPublication(publication));
+        }
+        return publication;
+    }
+
+    /**
+     * Synchronously publish a message without tracking the state of the publication. In contrast to
+     * {@link #publish(Object)} this does not allocate a new publication for each message, unless a matching handler
+     * is invoked asynchronously. Errors are reported to the registered error handlers only.
+     */
+    public void fire(T message) {
+        Subscription[] subscriptions = getSortedSubscriptions(message.getClass());
+        if (subscriptions.length == 0 || hasAsynchronousHandlers(subscriptions)) {
+            // dead messages are not expected on the hot path and asynchronous handlers keep the publication
+            execute(createMessagePublication(message));
+            return;
+        }
+        ReusableMessagePublication publication = ReusableMessagePublication.start(runtime, message);
+        if (metrics != null) {
+            measure(publication, message);
+        }
+        try {
+            for (Subscription subscription : subscriptions) {
+                subscription.publish(publication, message);
+            }
+            publication.finish();
+        } catch (Throwable e) {
+            handlePublicationError(new PublicationError().setMessage("Error during publication of message")
+                                                         .setCause(e)
+                                                         .setPublication(publication));
+        } finally {
+            publication.release();
+        }
+    }
+
+    private static boolean hasAsynchronousHandlers(Subscription[] subscriptions) {
+        for (Subscription subscription : subscriptions) {
+            if (subscription.isAsynchronous()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void execute(IMessagePublication publication) {
+        try {
+            publication.execute();
+        } catch (Throwable e) {
+            handlePublicationError(new PublicationError().setMessage("Error during publication of message")
+                                                         .setCause(e)
+                                                         .setPublication(publication));
         }
     }
 
@@ -98,6 +224,12 @@ public abstract class AbstractPubSubSupport<T> implements PubSubSupport<T> {
         return subscriptionManager.getSubscriptionsByMessageType(messageType);
     }
 
+    // obtain the (shared and cached) dispatch table for the given message type
+    // Note: never returns null and must not be modified!
+    protected Subscription[] getSortedSubscriptions(Class messageType) {
+        return subscriptionManager.getSortedSubscriptions(messageType);
+    }
+
 
     protected void handlePublicationError(PublicationError error) {
         for (IPublicationErrorHandler errorHandler : errorHandlers) {
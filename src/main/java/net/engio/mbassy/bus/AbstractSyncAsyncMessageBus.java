@@ -1,17 +1,33 @@
 package net.engio.mbassy.bus;
 
+import net.engio.mbassy.bus.common.DeadMessage;
 import net.engio.mbassy.bus.common.IMessageBus;
+import net.engio.mbassy.bus.common.MessagePartitioner;
+import net.engio.mbassy.bus.config.BackpressurePolicy;
 import net.engio.mbassy.bus.config.ConfigurationError;
 import net.engio.mbassy.bus.config.Feature;
 import net.engio.mbassy.bus.config.IBusConfiguration;
 import net.engio.mbassy.bus.error.InternalPublicationError;
+import net.engio.mbassy.bus.error.MessageBusException;
+import net.engio.mbassy.bus.metrics.IMetricsCollector;
 import net.engio.mbassy.bus.publication.ISyncAsyncPublicationCommand;
+import net.engio.mbassy.common.ReflectionUtils;
+import net.engio.mbassy.dispatch.HandlerWatchdog;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToIntFunction;
 
 /**
  * The base class for all message bus implementations with support for asynchronous message dispatch
@@ -29,7 +45,50 @@ public abstract class AbstractSyncAsyncMessageBus<T, P extends ISyncAsyncPublica
     private final List<Thread> dispatchers;
 
     // all pending messages scheduled for asynchronous dispatch are queued here
-    private final BlockingQueue<IMessagePublication> pendingMessages;
+    // (a single queue shared by all dispatchers or one queue per dispatcher if the dispatch is partitioned or sharded)
+    private final List<BlockingQueue<IMessagePublication>> pendingMessages;
+
+    // assigns messages to the queues of a partitioned dispatch (null otherwise)
+    private final MessagePartitioner partitioner;
+
+    // selects the queue of a producer in a sharded dispatch (null otherwise)
+    private final Feature.AsynchronousMessageDispatch.ShardSelection shardSelection;
+
+    // distributes messages without partition key across the queues
+    private final AtomicInteger nextQueue = new AtomicInteger(0);
+
+    // number of publications that have been scheduled but not yet dispatched completely
+    // the count is increased before a publication is queued and decreased after its dispatch, such that
+    // publications that are taken from the queue but still wait in a batch of a dispatcher are counted as well
+    private final AtomicInteger pendingPublications = new AtomicInteger(0);
+
+    // bounds of the interval in which an idle dispatcher of a sharded dispatch looks for publications in other shards (in µs)
+    private static final long MinStealInterval = 50;
+    private static final long MaxStealInterval = 10000;
+
+    // the work-stealing pool that runs each publication as a separate task (null if dedicated dispatcher threads are used)
+    private final ForkJoinPool dispatchPool;
+
+    // number of publications submitted to the dispatch pool that have not yet been started
+    private final AtomicInteger pendingTasks = new AtomicInteger(0);
+
+    // the number of pending publications a DropOldest or Sample policy evicts at most to make room for a new one
+    // producers that compete for the freed capacity could otherwise evict each other's publications without end
+    private static final int MaxEvictions = 16;
+
+    // applied if a queue is full
+    private final BackpressurePolicy backpressure;
+    private final Map<Class<?>, BackpressurePolicy> backpressureByType;
+    private final Map<Class<?>, BackpressurePolicy> resolvedBackpressure = new ConcurrentHashMap<Class<?>, BackpressurePolicy>();
+
+    // number of messages dropped due to backpressure
+    private final LongAdder droppedMessages = new LongAdder();
+
+    // null if the watchdog is not enabled
+    private final HandlerWatchdog watchdog;
+
+    // set on shutdown, publications are not accepted anymore
+    private volatile boolean shutdown = false;
 
     protected AbstractSyncAsyncMessageBus(IBusConfiguration configuration) {
         super(configuration);
@@ -39,37 +98,90 @@ public abstract class AbstractSyncAsyncMessageBus<T, P extends ISyncAsyncPublica
         if(asyncDispatch == null){
             throw ConfigurationError.MissingFeature(Feature.AsynchronousMessageDispatch.class);
         }
-        pendingMessages = asyncDispatch.getMessageQueue();
+        dispatchPool = asyncDispatch.getDispatchPool();
+        if (dispatchPool != null && asyncDispatch.getQueueCapacity() > 0) {
+            throw ConfigurationError.InvalidFeature(asyncDispatch, "A work-stealing dispatch pool has no queue that could be bounded");
+        }
+        backpressure = asyncDispatch.getBackpressure();
+        backpressureByType = new HashMap<Class<?>, BackpressurePolicy>(asyncDispatch.getBackpressureByType());
+        partitioner = asyncDispatch.getPartitioner();
+        shardSelection = partitioner == null ? asyncDispatch.getShardSelection() : null;
+        if (dispatchPool != null) {
+            pendingMessages = Collections.emptyList();
+        } else if (partitioner == null && shardSelection == null) {
+            pendingMessages = Collections.singletonList(asyncDispatch.getMessageQueue());
+        } else {
+            pendingMessages = new ArrayList<BlockingQueue<IMessagePublication>>(asyncDispatch.getNumberOfMessageDispatchers());
+            for (int i = 0; i < asyncDispatch.getNumberOfMessageDispatchers(); i++) {
+                pendingMessages.add(asyncDispatch.getDispatcherQueueFactory().get());
+            }
+        }
         dispatchers = new ArrayList<Thread>(asyncDispatch.getNumberOfMessageDispatchers());
-        initDispatcherThreads(asyncDispatch);
+        if (dispatchPool == null) {
+            initDispatcherThreads(asyncDispatch);
+        }
 
         // configure asynchronous handler invocation
         Feature.AsynchronousHandlerInvocation asyncInvocation = configuration.getFeature(Feature.AsynchronousHandlerInvocation.class);
         if(asyncInvocation == null){
             throw ConfigurationError.MissingFeature(Feature.AsynchronousHandlerInvocation.class);
         }
-        this.executor = asyncInvocation.getExecutor();
+        if (asyncInvocation.getExecutor() != null) {
+            this.executor = asyncInvocation.getExecutor();
+        } else if (dispatchPool != null) {
+            // asynchronous handlers are forked into the dispatch pool
+            this.executor = dispatchPool;
+        } else {
+            throw ConfigurationError.InvalidFeature(asyncInvocation, "An executor is required unless the message dispatch uses a work-stealing pool");
+        }
         getRuntime().add(IBusConfiguration.Properties.AsynchronousHandlerExecutor, executor);
+        getRuntime().add(IBusConfiguration.Properties.ConflatedMessageTypes, asyncInvocation.getConflatedMessageTypes());
+        getRuntime().add(IBusConfiguration.Properties.ConflationKeys, asyncInvocation.getConflationKeys());
 
+        // configure the optional watchdog, its thread is stopped on shutdown
+        // the watchdog reports to all error handlers including the fallback logger
+        Feature.Watchdog watchdogFeature = configuration.getFeature(Feature.Watchdog.class);
+        this.watchdog = watchdogFeature != null
+                ? new HandlerWatchdog(watchdogFeature.getThresholdInNanos(), watchdogFeature.getCheckIntervalInNanos(), getRegisteredErrorHandlers())
+                : null;
+        if (watchdog != null) {
+            getRuntime().add(IBusConfiguration.Properties.HandlerWatchdog, watchdog);
+        }
     }
 
     // initialize the dispatch workers
     private void initDispatcherThreads(Feature.AsynchronousMessageDispatch configuration) {
         for (int i = 0; i < configuration.getNumberOfMessageDispatchers(); i++) {
-            // each thread will run forever and process incoming
+            // each thread will run until shutdown and process incoming
             // message publication requests
+            final int batchSize = configuration.getDispatchBatchSize();
+            final int shard = i % pendingMessages.size();
+            final BlockingQueue<IMessagePublication> queue = pendingMessages.get(shard);
             Thread dispatcher = configuration.getDispatcherThreadFactory().newThread(new Runnable() {
                 public void run() {
-                    while (true) {
-                        IMessagePublication publication = null;
+                    List<IMessagePublication> batch = new ArrayList<IMessagePublication>(batchSize);
+                    // a handler might have swallowed the interrupt of the shutdown
+                    while (!shutdown) {
+                        IMessagePublication publication;
                         try {
-                            publication = pendingMessages.take();
-                            publication.execute();
+                            publication = shardSelection != null ? takeOrSteal(shard) : queue.take();
                         } catch (InterruptedException e) {
                             Thread.currentThread().interrupt();
                             return;
-                        } catch(Throwable t){
-                            handlePublicationError(new InternalPublicationError(t, "Error in asynchronous dispatch",publication));
+                        }
+                        if (batchSize == 1) {
+                            dispatch(publication, queue);
+                            continue;
+                        }
+                        // take whatever else is available without waiting
+                        batch.add(publication);
+                        queue.drainTo(batch, batchSize - 1);
+                        try {
+                            for (int j = 0; j < batch.size(); j++) {
+                                dispatch(batch.get(j), queue);
+                            }
+                        } finally {
+                            batch.clear();
                         }
                     }
                 }
@@ -81,46 +193,372 @@ public abstract class AbstractSyncAsyncMessageBus<T, P extends ISyncAsyncPublica
     }
 
 
-    // this method queues a message delivery request
-    protected IMessagePublication addAsynchronousPublication(MessagePublication publication) {
+    // take the next publication from the given shard or from any other shard if the given one is empty
+    private IMessagePublication takeOrSteal(int shard) throws InterruptedException {
+        int shards = pendingMessages.size();
+        long idle = MinStealInterval;
+        while (true) {
+            IMessagePublication publication = pendingMessages.get(shard).poll();
+            for (int i = 1; publication == null && i < shards; i++) {
+                publication = pendingMessages.get((shard + i) % shards).poll();
+            }
+            if (publication != null) {
+                return publication;
+            }
+            // wait on the own queue and look for work of others from time to time
+            publication = pendingMessages.get(shard).poll(idle, TimeUnit.MICROSECONDS);
+            if (publication != null) {
+                return publication;
+            }
+            idle = Math.min(idle * 2, MaxStealInterval);
+        }
+    }
+
+    // select the queue of the dispatcher that will process the given publication
+    private BlockingQueue<IMessagePublication> selectQueue(IMessagePublication publication) {
+        if (pendingMessages.size() == 1) {
+            return pendingMessages.get(0);
+        }
+        if (shardSelection == Feature.AsynchronousMessageDispatch.ShardSelection.ThreadAffinity) {
+            long id = Thread.currentThread().threadId();
+            int hash = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+            return pendingMessages.get((hash >>> 1) % pendingMessages.size());
+        }
+        if (shardSelection == Feature.AsynchronousMessageDispatch.ShardSelection.RoundRobin) {
+            return pendingMessages.get((nextQueue.getAndIncrement() & Integer.MAX_VALUE) % pendingMessages.size());
+        }
+        if (publication instanceof BatchPublication) {
+            // batches are split by partition before they are queued, see scheduleBatch
+            return pendingMessages.get(((BatchPublication) publication).getPartition());
+        }
+        return pendingMessages.get(getPartition(publication.getMessage(), publication));
+    }
+
+    // the partition of the given message, messages without partition key are distributed round-robin
+    private int getPartition(Object message, IMessagePublication publication) {
+        int partition = -1;
+        if (message != null) {
+            try {
+                partition = partitioner.getPartition(message, pendingMessages.size());
+            } catch (RuntimeException e) {
+                handlePublicationError(new InternalPublicationError(e, "Error while extracting the partition key", publication));
+            }
+        }
+        if (partition < 0) {
+            partition = (nextQueue.getAndIncrement() & Integer.MAX_VALUE) % pendingMessages.size();
+        }
+        return partition;
+    }
+
+    private void queued(BlockingQueue<IMessagePublication> queue) {
+        IMetricsCollector metrics = getMetrics();
+        if (metrics != null) {
+            metrics.publicationQueued(queue != null ? queue.size() : pendingTasks.get());
+        }
+    }
+
+    private void dequeued(IMessagePublication publication, BlockingQueue<IMessagePublication> queue) {
+        IMetricsCollector metrics = getMetrics();
+        if (metrics != null) {
+            long now = System.nanoTime();
+            long waitTime = -1;
+            if (publication instanceof MessagePublication) {
+                waitTime = ((MessagePublication) publication).getTimeSinceCreation(now);
+            } else if (publication instanceof BatchPublication) {
+                waitTime = ((BatchPublication) publication).getTimeSinceCreation(now);
+            }
+            metrics.publicationDequeued(waitTime, queue != null ? queue.size() : pendingTasks.get());
+        }
+    }
+
+    private void dispatch(IMessagePublication publication, BlockingQueue<IMessagePublication> queue) {
+        dequeued(publication, queue);
         try {
-            pendingMessages.put(publication);
-            return publication.markScheduled();
-        } catch (InterruptedException e) {
-            handlePublicationError(new InternalPublicationError(e, "Error while adding an asynchronous message publication", publication));
-            return publication;
+            publication.execute();
+        } catch(Throwable t){
+            handlePublicationError(new InternalPublicationError(t, "Error in asynchronous dispatch",publication));
+        } finally {
+            pendingPublications.decrementAndGet();
         }
     }
 
+    // this method queues a message delivery request
+    protected IMessagePublication addAsynchronousPublication(MessagePublication publication) {
+        return schedule(publication, -1, null) ? publication.markScheduled() : publication;
+    }
+
     // this method queues a message delivery request
     protected IMessagePublication addAsynchronousPublication(MessagePublication publication, long timeout, TimeUnit unit) {
+        return schedule(publication, timeout, unit) ? publication.markScheduled() : publication;
+    }
+
+    // this method queues a batch of messages as a single delivery request
+    protected IMessagePublication addAsynchronousPublication(BatchPublication publication) {
+        return scheduleBatch(publication, -1, null) ? publication.markScheduled() : publication;
+    }
+
+    // this method queues a batch of messages as a single delivery request
+    protected IMessagePublication addAsynchronousPublication(BatchPublication publication, long timeout, TimeUnit unit) {
+        return scheduleBatch(publication, timeout, unit) ? publication.markScheduled() : publication;
+    }
+
+    // a partitioned dispatch queues one part of the batch per partition, such that messages with equal keys
+    // can neither overtake nor be overtaken by the messages of their partition
+    private boolean scheduleBatch(final BatchPublication batch, long timeout, TimeUnit unit) {
+        if (partitioner == null || pendingMessages.size() == 1) {
+            return schedule(batch, timeout, unit);
+        }
+        boolean scheduled = false;
+        List<BatchPublication> parts = batch.split(new ToIntFunction<Object>() {
+            @Override
+            public int applyAsInt(Object message) {
+                return getPartition(message, batch);
+            }
+        });
+        for (BatchPublication part : parts) {
+            scheduled |= schedule(part, timeout, unit);
+        }
+        return scheduled;
+    }
+
+    // hand the publication over to the dispatchers, waiting at most the given timeout (if positive) for space in the queue
+    private boolean schedule(final IMessagePublication publication, long timeout, TimeUnit unit) {
+        // counted before it becomes visible to the dispatchers, a publication that is not scheduled is not pending
+        pendingPublications.incrementAndGet();
+        boolean scheduled = false;
+        try {
+            scheduled = submit(publication, timeout, unit);
+            return scheduled;
+        } finally {
+            if (!scheduled) {
+                pendingPublications.decrementAndGet();
+            }
+        }
+    }
+
+    private boolean submit(final IMessagePublication publication, long timeout, TimeUnit unit) {
+        if (shutdown) {
+            abort(publication, new MessageBusException("The publication was rejected since the bus has been shut down"));
+            return false;
+        }
+        if (dispatchPool != null) {
+            // the pool is unbounded, submitting a task never waits
+            pendingTasks.incrementAndGet();
+            try {
+                dispatchPool.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        pendingTasks.decrementAndGet();
+                        dispatch(publication, null);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                pendingTasks.decrementAndGet();
+                handlePublicationError(new InternalPublicationError(e, "Error while adding an asynchronous message publication", publication));
+                abort(publication, new MessageBusException("The publication was rejected by the dispatch pool", e));
+                return false;
+            }
+            queued(null);
+            return true;
+        }
         try {
-            return pendingMessages.offer(publication, timeout, unit)
-                    ? publication.markScheduled()
-                    : publication;
+            BlockingQueue<IMessagePublication> queue = selectQueue(publication);
+            if (timeout >= 0) {
+                // an explicit timeout of the caller takes precedence over the configured policy
+                if (!queue.offer(publication, timeout, unit)) {
+                    drop(publication, getBackpressure(publication));
+                    return false;
+                }
+            } else if (!enqueue(queue, publication)) {
+                return false;
+            }
+            queued(queue);
+            if (shutdown) {
+                // the bus has been shut down while the publication was added, nobody will take it from the queue
+                abortQueued(queue);
+            }
+            return true;
         } catch (InterruptedException e) {
+            // let the caller see the interrupt
+            Thread.currentThread().interrupt();
             handlePublicationError(new InternalPublicationError(e, "Error while adding an asynchronous message publication", publication));
-            return publication;
+            abort(publication, new MessageBusException("The publication was interrupted while waiting for space in the queue", e));
+            return false;
+        }
+    }
+
+    // complete a publication that will never be dispatched
+    private void abort(IMessagePublication publication, MessageBusException reason) {
+        if (publication instanceof BatchPublication) {
+            ((BatchPublication) publication).abort(reason);
+        } else if (publication instanceof MessagePublication) {
+            ((MessagePublication) publication).abort(reason);
+        }
+    }
+
+    // complete all publications that are still queued after shutdown
+    private void abortQueued(BlockingQueue<IMessagePublication> queue) {
+        List<IMessagePublication> aborted = new ArrayList<IMessagePublication>();
+        queue.drainTo(aborted);
+        for (IMessagePublication publication : aborted) {
+            pendingPublications.decrementAndGet();
+            abort(publication, new MessageBusException("The publication was not dispatched since the bus has been shut down"));
+        }
+    }
+
+    // add the publication to the queue according to the backpressure policy of its message
+    private boolean enqueue(BlockingQueue<IMessagePublication> queue, IMessagePublication publication) throws InterruptedException {
+        BackpressurePolicy policy = getBackpressure(publication);
+        switch (policy.getStrategy()) {
+            case Block:
+                queue.put(publication);
+                return true;
+            case BlockWithTimeout:
+                if (queue.offer(publication, policy.getTimeoutInNanos(), TimeUnit.NANOSECONDS)) {
+                    return true;
+                }
+                break;
+            case CallerRuns:
+                if (queue.offer(publication)) {
+                    return true;
+                }
+                if (partitioner != null) {
+                    // running the publication on the caller would overtake the queued messages of its partition
+                    queue.put(publication);
+                    return true;
+                }
+                try {
+                    publication.execute();
+                } catch (Throwable t) {
+                    handlePublicationError(new InternalPublicationError(t, "Error in synchronous dispatch of overflowing publication", publication));
+                }
+                return false;
+            case DropNewest:
+                if (queue.offer(publication)) {
+                    return true;
+                }
+                break;
+            case DropOldest:
+            case Sample:
+                if (queue.offer(publication)) {
+                    return true;
+                }
+                if (policy.getStrategy() == BackpressurePolicy.Strategy.Sample && !policy.sample()) {
+                    break;
+                }
+                // make room for the new publication, the new one is dropped if other producers keep taking the space
+                for (int evictions = 0; evictions < MaxEvictions; evictions++) {
+                    IMessagePublication oldest = queue.poll();
+                    if (oldest != null) {
+                        pendingPublications.decrementAndGet();
+                        drop(oldest, getBackpressure(oldest));
+                    }
+                    if (queue.offer(publication)) {
+                        return true;
+                    }
+                }
+                break;
+        }
+        drop(publication, policy);
+        return false;
+    }
+
+    private void drop(IMessagePublication publication, BackpressurePolicy policy) {
+        List<?> messages;
+        if (publication instanceof BatchPublication) {
+            ((BatchPublication) publication).markDropped();
+            messages = ((BatchPublication) publication).getMessage();
+        } else {
+            if (publication instanceof MessagePublication) {
+                ((MessagePublication) publication).markDropped();
+            }
+            messages = Collections.singletonList(publication.getMessage());
+        }
+        droppedMessages.add(messages.size());
+        IMetricsCollector metrics = getMetrics();
+        for (Object message : messages) {
+            if (metrics != null) {
+                metrics.messageDropped(message);
+            }
+            if (policy.isReportDropped()) {
+                getRuntime().getProvider().publish(message instanceof DeadMessage ? message : new DeadMessage(message));
+            }
         }
     }
 
+    // the most specific policy configured for the message type of the publication
+    private BackpressurePolicy getBackpressure(IMessagePublication publication) {
+        if (backpressureByType.isEmpty()) {
+            return backpressure;
+        }
+        Object message = publication.getMessage();
+        if (publication instanceof BatchPublication) {
+            // a batch is handled as a whole according to its first message
+            List<Object> messages = ((BatchPublication) publication).getMessage();
+            message = messages.isEmpty() ? null : messages.get(0);
+        } else if (message instanceof DeadMessage) {
+            message = ((DeadMessage) message).getMessage();
+        }
+        if (message == null) {
+            return backpressure;
+        }
+        BackpressurePolicy policy = resolvedBackpressure.get(message.getClass());
+        if (policy == null) {
+            policy = resolveBackpressure(message.getClass());
+            resolvedBackpressure.put(message.getClass(), policy);
+        }
+        return policy;
+    }
+
+    private BackpressurePolicy resolveBackpressure(Class<?> messageType) {
+        for (Class<?> type = messageType; type != null; type = type.getSuperclass()) {
+            if (backpressureByType.containsKey(type)) {
+                return backpressureByType.get(type);
+            }
+        }
+        for (Class<?> type : ReflectionUtils.getSuperTypeHierarchy(messageType)) {
+            if (type.isInterface() && backpressureByType.containsKey(type)) {
+                return backpressureByType.get(type);
+            }
+        }
+        return backpressure;
+    }
+
+    /**
+     * @return The number of messages that have been dropped because the queue of pending publications was full
+     * (see {@link BackpressurePolicy})
+     */
+    public long getDroppedMessageCount() {
+        return droppedMessages.sum();
+    }
+
     @Override
     protected void finalize() throws Throwable {
         super.finalize();
         shutdown();
     }
 
+    /**
+     * Stop all dispatcher threads and the executors of the bus. Publications that are still queued are not
+     * dispatched anymore, their completions fail. Publications that are added after shutdown are rejected.
+     */
     @Override
     public void shutdown() {
+        shutdown = true;
         for (Thread dispatcher : dispatchers) {
             dispatcher.interrupt();
         }
+        for (BlockingQueue<IMessagePublication> queue : pendingMessages) {
+            abortQueued(queue);
+        }
         if(executor != null) executor.shutdown();
+        if(dispatchPool != null && dispatchPool != executor) dispatchPool.shutdown();
+        if(watchdog != null) watchdog.shutdown();
     }
 
     @Override
     public boolean hasPendingMessages() {
-        return pendingMessages.size() > 0;
+        return pendingPublications.get() > 0;
     }
 
 }
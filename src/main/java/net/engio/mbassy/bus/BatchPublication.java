@@ -0,0 +1,296 @@
+package net.engio.mbassy.bus;
+
+import net.engio.mbassy.bus.error.MessageBusException;
+import net.engio.mbassy.bus.error.PublicationError;
+import net.engio.mbassy.subscription.Subscription;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * A batch publication delivers a collection of messages as a single unit. Messages are grouped by their type and
+ * the subscriptions of each type are resolved only once. Within a group, each subscription receives all messages
+ * of the group before the next subscription (in order of priority) is processed.
+ * <p/>
+ * Each message is still tracked by its own {@link MessagePublication} (see {@link #getPublications()}), this
+ * publication reflects the aggregate state of the whole batch: It has an error if any of the messages caused an error.
+ * Messages without any matching handler are published as {@link net.engio.mbassy.bus.common.DeadMessage} individually.
+ * <p/>
+ * A bus with partitioned dispatch splits the batch into one part per partition before it is queued, such that
+ * messages with equal keys are processed in order with the messages that are published individually. The batch is then
+ * finished when all of its parts are finished.
+ */
+public class BatchPublication implements IMessagePublication {
+
+    // message publications with the same subscriptions, in order of first appearance of their message type
+    private final Map<Class, Group> groups = new LinkedHashMap<Class, Group>();
+    // all message publications in order of the original messages
+    private final List<MessagePublication> publications;
+    private final List<Object> messages;
+    private volatile MessagePublication.State state = MessagePublication.State.Initial;
+    // the batch this batch is a part of (null if this is not a part)
+    private final BatchPublication whole;
+    // the partition of the messages of a part (-1 if this is not a part)
+    private final int partition;
+    // number of parts of a split batch that are neither finished nor dropped
+    private final AtomicInteger pendingParts = new AtomicInteger(0);
+    // set if any part of a split batch has been executed
+    private volatile boolean partExecuted = false;
+    // only created on request
+    private volatile CompletableFuture<IMessagePublication> completion;
+
+    private static final AtomicReferenceFieldUpdater<BatchPublication, CompletableFuture> Completion =
+            AtomicReferenceFieldUpdater.newUpdater(BatchPublication.class, CompletableFuture.class, "completion");
+
+    BatchPublication(int size) {
+        this(size, null, -1);
+    }
+
+    private BatchPublication(int size, BatchPublication whole, int partition) {
+        this.publications = new ArrayList<MessagePublication>(size);
+        this.messages = new ArrayList<Object>(size);
+        this.whole = whole;
+        this.partition = partition;
+    }
+
+    // add a publication that is processed together with all other publications of the same message type
+    void add(Class messageType, Collection<Subscription> subscriptions, MessagePublication publication) {
+        Group group = groups.get(messageType);
+        if (group == null) {
+            group = new Group(subscriptions);
+            groups.put(messageType, group);
+        }
+        group.publications.add(publication);
+        publications.add(publication);
+        messages.add(publication.getMessage());
+    }
+
+    // add a publication that is processed on its own
+    void add(MessagePublication publication) {
+        add(null, null, publication);
+    }
+
+    public void execute() {
+        state = MessagePublication.State.Running;
+        if (whole != null) {
+            whole.state = MessagePublication.State.Running;
+        }
+        try {
+            for (Group group : groups.values()) {
+                group.execute();
+            }
+        } finally {
+            state = MessagePublication.State.Finished;
+            if (whole != null) {
+                whole.partDone(true);
+            }
+        }
+    }
+
+    /**
+     * Split the messages of this batch by their partition. The parts keep the grouping of this batch and the order
+     * of the messages within each group. Publications of dead messages are partitioned by the dead message.
+     *
+     * @param partitioner Provides the partition of a message
+     * @return The parts of this batch, each part carries its partition
+     */
+    List<BatchPublication> split(ToIntFunction<Object> partitioner) {
+        Map<Integer, BatchPublication> parts = new LinkedHashMap<Integer, BatchPublication>();
+        for (Map.Entry<Class, Group> group : groups.entrySet()) {
+            for (MessagePublication publication : group.getValue().publications) {
+                int partition = partitioner.applyAsInt(publication.getMessage());
+                BatchPublication part = parts.get(partition);
+                if (part == null) {
+                    part = new BatchPublication(publications.size(), this, partition);
+                    parts.put(partition, part);
+                }
+                part.add(group.getKey(), group.getValue().subscriptions, publication);
+            }
+        }
+        pendingParts.set(parts.size());
+        return new ArrayList<BatchPublication>(parts.values());
+    }
+
+    /**
+     * @return The partition of the messages of this part or -1 if this batch is not a part of a split batch
+     */
+    int getPartition() {
+        return partition;
+    }
+
+    // called when a part has been executed or dropped
+    private void partDone(boolean executed) {
+        if (executed) {
+            partExecuted = true;
+        }
+        if (pendingParts.decrementAndGet() == 0 && partExecuted) {
+            state = MessagePublication.State.Finished;
+        }
+    }
+
+    public boolean isFinished() {
+        return state.equals(MessagePublication.State.Finished);
+    }
+
+    public boolean isRunning() {
+        return state.equals(MessagePublication.State.Running);
+    }
+
+    public boolean isScheduled() {
+        return state.equals(MessagePublication.State.Scheduled);
+    }
+
+    // a publication that was dropped due to backpressure is reported as not scheduled
+    void markDropped() {
+        abort(new MessageBusException("The publication was dropped due to backpressure"));
+    }
+
+    // a batch that will never be executed is reported as not scheduled and all its publications complete exceptionally
+    void abort(MessageBusException reason) {
+        state = MessagePublication.State.Initial;
+        for (MessagePublication publication : publications) {
+            publication.abort(reason);
+        }
+        if (whole != null) {
+            whole.partDone(false);
+        }
+    }
+
+    /**
+     * @return A future that is completed when all message publications of the batch are completed or completed
+     * exceptionally if any of them failed
+     */
+    @Override
+    public CompletableFuture<IMessagePublication> getCompletion() {
+        CompletableFuture<IMessagePublication> future = completion;
+        if (future == null) {
+            CompletableFuture<?>[] completions = new CompletableFuture<?>[publications.size()];
+            for (int i = 0; i < completions.length; i++) {
+                completions[i] = publications.get(i).getCompletion();
+            }
+            final BatchPublication batch = this;
+            // concurrent callers might both create a future, all of them get the one that was set first
+            Completion.compareAndSet(this, null, CompletableFuture.allOf(completions).thenApply(new Function<Void, IMessagePublication>() {
+                @Override
+                public IMessagePublication apply(Void done) {
+                    return batch;
+                }
+            }));
+            future = completion;
+        }
+        return future;
+    }
+
+    public BatchPublication markScheduled() {
+        if (state.equals(MessagePublication.State.Initial)) {
+            state = MessagePublication.State.Scheduled;
+        }
+        return this;
+    }
+
+    public boolean hasError() {
+        return getError() != null;
+    }
+
+    public boolean isExpired() {
+        for (MessagePublication publication : publications) {
+            if (publication.isExpired()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return The error of the first message publication that failed or null if none failed
+     */
+    @Override
+    public PublicationError getError() {
+        for (MessagePublication publication : publications) {
+            if (publication.hasError()) {
+                return publication.getError();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * A batch is never a dead message itself, see the individual publications.
+     */
+    public boolean isDeadMessage() {
+        return false;
+    }
+
+    /**
+     * A batch is never a filtered message itself, see the individual publications.
+     */
+    public boolean isFilteredMessage() {
+        return false;
+    }
+
+    /**
+     * @return The list of published messages (in order of publication)
+     */
+    public List<Object> getMessage() {
+        return Collections.unmodifiableList(messages);
+    }
+
+    /**
+     * @return The publications of the individual messages (in order of publication)
+     */
+    public List<IMessagePublication> getPublications() {
+        return Collections.<IMessagePublication>unmodifiableList(publications);
+    }
+
+    /**
+     * @see MessagePublication#getTimeSinceCreation(long)
+     */
+    public long getTimeSinceCreation(long nanoTime) {
+        return publications.isEmpty() ? -1 : publications.get(0).getTimeSinceCreation(nanoTime);
+    }
+
+    public int size() {
+        return publications.size();
+    }
+
+    private static class Group {
+
+        // null if the publications are processed one by one
+        private final Collection<Subscription> subscriptions;
+        private final List<MessagePublication> publications = new ArrayList<MessagePublication>();
+
+        private Group(Collection<Subscription> subscriptions) {
+            this.subscriptions = subscriptions;
+        }
+
+        private void execute() {
+            if (subscriptions == null) {
+                for (MessagePublication publication : publications) {
+                    publication.execute();
+                }
+                return;
+            }
+            for (MessagePublication publication : publications) {
+                publication.markRunning();
+            }
+            for (Subscription subscription : subscriptions) {
+                for (MessagePublication publication : publications) {
+                    subscription.publish(publication, publication.getMessage());
+                }
+            }
+            for (MessagePublication publication : publications) {
+                publication.finish();
+            }
+        }
+    }
+
+}
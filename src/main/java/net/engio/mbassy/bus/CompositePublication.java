@@ -0,0 +1,138 @@
+package net.engio.mbassy.bus;
+
+import net.engio.mbassy.bus.error.PublicationError;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Reflects the aggregate state of publications that have been processed one by one. It is returned by the default
+ * implementation of {@link net.engio.mbassy.bus.common.PubSubSupport#publishAll(java.util.Collection)}, which
+ * publishes each message on its own. In contrast to a {@link BatchPublication}, the subscriptions are resolved
+ * for each message.
+ * <p/>
+ * The composite is finished when all of its publications are finished and has an error if any of them has an error.
+ */
+public class CompositePublication implements IMessagePublication {
+
+    private final List<IMessagePublication> publications;
+
+    private final List<Object> messages;
+
+    public CompositePublication(List<? extends IMessagePublication> publications) {
+        this.publications = new ArrayList<IMessagePublication>(publications);
+        this.messages = new ArrayList<Object>(publications.size());
+        for (IMessagePublication publication : publications) {
+            messages.add(publication.getMessage());
+        }
+    }
+
+    public void execute() {
+        for (IMessagePublication publication : publications) {
+            publication.execute();
+        }
+    }
+
+    public boolean isFinished() {
+        for (IMessagePublication publication : publications) {
+            if (!publication.isFinished()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean isRunning() {
+        for (IMessagePublication publication : publications) {
+            if (publication.isRunning()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean isScheduled() {
+        for (IMessagePublication publication : publications) {
+            if (publication.isScheduled()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean hasError() {
+        return getError() != null;
+    }
+
+    @Override
+    public boolean isExpired() {
+        for (IMessagePublication publication : publications) {
+            if (publication.isExpired()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return The error of the first publication that failed or null if none failed
+     */
+    public PublicationError getError() {
+        for (IMessagePublication publication : publications) {
+            if (publication.hasError()) {
+                return publication.getError();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * A composite is never a dead message itself, see the individual publications.
+     */
+    public boolean isDeadMessage() {
+        return false;
+    }
+
+    /**
+     * A composite is never a filtered message itself, see the individual publications.
+     */
+    public boolean isFilteredMessage() {
+        return false;
+    }
+
+    /**
+     * @return The list of published messages (in order of publication)
+     */
+    public List<Object> getMessage() {
+        return Collections.unmodifiableList(messages);
+    }
+
+    /**
+     * @return The individual publications (in order of publication)
+     */
+    public List<IMessagePublication> getPublications() {
+        return Collections.unmodifiableList(publications);
+    }
+
+    /**
+     * @return A future that is completed when all publications are completed or completed exceptionally
+     * if any of them failed
+     */
+    @Override
+    public CompletableFuture<IMessagePublication> getCompletion() {
+        CompletableFuture<?>[] completions = new CompletableFuture<?>[publications.size()];
+        for (int i = 0; i < completions.length; i++) {
+            completions[i] = publications.get(i).getCompletion();
+        }
+        final CompositePublication composite = this;
+        return CompletableFuture.allOf(completions).thenApply(new Function<Void, IMessagePublication>() {
+            @Override
+            public IMessagePublication apply(Void done) {
+                return composite;
+            }
+        });
+    }
+}
@@ -3,13 +3,14 @@ package net.engio.mbassy.bus;
 import net.engio.mbassy.bus.error.PublicationError;
 import net.engio.mbassy.subscription.Subscription;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * A message publication is created for each asynchronous message dispatch. It reflects the state
  * of the corresponding message publication process, i.e. provides information whether the
  * publication was successfully scheduled, is currently running etc.
  * <p/>
- * A message publication lives within a single thread. It is not designed in a thread-safe manner -> not eligible to
- * be used in multiple threads simultaneously .
+ * A message publication is executed by a single thread, but its state and completion may be queried from any thread.
  *
  * @author bennidi
  *         Date: 11/16/12
@@ -18,6 +19,10 @@ public interface IMessagePublication {
 
     void execute();
 
+    /**
+     * @return True if the message has been passed to all handlers. Asynchronous handler invocations
+     * may still be running, see {@link #getCompletion()}.
+     */
     boolean isFinished();
 
     boolean isRunning();
@@ -26,6 +31,14 @@ public interface IMessagePublication {
 
     boolean hasError();
 
+    /**
+     * @return True if any handler invocation has been skipped because the deadline of the publication had passed.
+     * Publications that do not support deadlines never expire.
+     */
+    default boolean isExpired() {
+        return false;
+    }
+
     PublicationError getError();
 
     boolean isDeadMessage();
@@ -34,4 +47,15 @@ public interface IMessagePublication {
 
     Object getMessage();
 
+    /**
+     * @return A future that is completed with this publication when all synchronous and asynchronous handler
+     * invocations of the publication are finished. It is completed exceptionally if any handler invocation
+     * failed or if the publication was dropped. The default implementation does not track the completion
+     * and returns a future that failed with an {@link UnsupportedOperationException}.
+     */
+    default CompletableFuture<IMessagePublication> getCompletion() {
+        return CompletableFuture.failedFuture(
+                new UnsupportedOperationException("Completion is not tracked by " + getClass().getName()));
+    }
+
 }
@@ -1,6 +1,7 @@
 package net.engio.mbassy.bus;
 
 import java.util.List;
+import java.util.Collection;
 import net.engio.mbassy.bus.common.IMessageBus;
 import net.engio.mbassy.bus.config.BusConfiguration;
 import net.engio.mbassy.bus.config.Feature;
@@ -103,6 +104,31 @@ public class MBassador<T> extends AbstractSyncAsyncMessageBus<T, SyncAsyncPostCo
         return addAsynchronousPublication(createMessagePublication(message), timeout, unit);
     }
 
+    /**
+     * Publish a message asynchronously. The publication expires after the given time, i.e. the dispatch
+     * and all asynchronous handler invocations that did not start until then are skipped,
+     * see {@link MessagePublication#expireAfter(long, TimeUnit)}.
+     */
+    public IMessagePublication publishAsyncExpiring(T message, long expireAfter, TimeUnit unit) {
+        return addAsynchronousPublication(createMessagePublication(message).expireAfter(expireAfter, unit));
+    }
+
+    public IMessagePublication publishAsyncExpiring(T message, long expireAfter, long timeout, TimeUnit unit) {
+        return addAsynchronousPublication(createMessagePublication(message).expireAfter(expireAfter, unit), timeout, unit);
+    }
+
+
+    /**
+     * Publish all messages asynchronously as a single batch. The batch is queued as one unit and processed
+     * by a single dispatcher thread, see {@link #publishAll(java.util.Collection)}.
+     */
+    public IMessagePublication publishAllAsync(Collection<? extends T> messages) {
+        return addAsynchronousPublication(createBatchPublication(messages));
+    }
+
+    public IMessagePublication publishAllAsync(Collection<? extends T> messages, long timeout, TimeUnit unit) {
+        return addAsynchronousPublication(createBatchPublication(messages), timeout, unit);
+    }
 
     /**
      * Synchronously publish a message to all registered listeners (this includes listeners defined for super types)
@@ -126,6 +152,24 @@ public class MBassador<T> extends AbstractSyncAsyncMessageBus<T, SyncAsyncPostCo
     }
 
 
+    /**
+     * Synchronously publish a message that expires after the given time. Asynchronous handler invocations
+     * that did not start until then are skipped, see {@link MessagePublication#expireAfter(long, TimeUnit)}.
+     */
+    public IMessagePublication publishExpiring(T message, long expireAfter, TimeUnit unit) {
+        MessagePublication publication = createMessagePublication(message).expireAfter(expireAfter, unit);
+        try {
+            publication.execute();
+        } catch (Throwable e) {
+            handlePublicationError(new PublicationError()
+                    .setMessage("Error during publication of message")
+                    .setCause(e)
+                    .setPublication(publication));
+        }
+        return publication;
+    }
+
+
     @Override
     public SyncAsyncPostCommand<T> post(T message) {
         return new SyncAsyncPostCommand<T>(this, message);
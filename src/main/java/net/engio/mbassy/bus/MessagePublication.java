@@ -2,18 +2,25 @@ package net.engio.mbassy.bus;
 
 import net.engio.mbassy.bus.common.DeadMessage;
 import net.engio.mbassy.bus.common.FilteredMessage;
+import net.engio.mbassy.bus.config.IBusConfiguration;
+import net.engio.mbassy.bus.error.MessageBusException;
 import net.engio.mbassy.bus.error.PublicationError;
+import net.engio.mbassy.bus.metrics.IMetricsCollector;
 import net.engio.mbassy.subscription.Subscription;
 
 import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 /**
  * A message publication is created for each asynchronous message dispatch. It reflects the state
  * of the corresponding message publication process, i.e. provides information whether the
  * publication was successfully scheduled, is currently running etc.
  * <p/>
- * A message publication lives within a single thread. It is not designed in a thread-safe manner -> not eligible to
- * be used in multiple threads simultaneously .
+ * A message publication is executed by a single thread, but its state and completion may be queried from any thread.
+ * Asynchronous handler invocations complete it from the threads of the handler executor.
  *
  * @author bennidi
  *         Date: 11/16/12
@@ -26,7 +33,31 @@ public class MessagePublication implements IMessagePublication {
     private volatile State state = State.Initial;
     private volatile boolean dispatched = false;
     private final BusRuntime runtime;
-    private PublicationError error = null;
+    // subscriptions of a parallel publication may report errors concurrently
+    private volatile PublicationError error = null;
+    // only set if metrics are collected
+    private long creationTime = NotMeasured;
+
+    private static final long NotMeasured = Long.MIN_VALUE;
+
+    // the System.nanoTime() after which invocations that did not start yet are skipped
+    private long deadline = NoDeadline;
+    // set when an invocation has been skipped because the deadline passed
+    private volatile boolean expired = false;
+
+    private static final long NoDeadline = Long.MIN_VALUE;
+
+    // number of handler invocations that are scheduled but not yet finished, plus one until the dispatch is finished
+    private volatile int pendingInvocations = 1;
+    // set when all handler invocations are finished
+    private volatile boolean completed = false;
+    // only created on request
+    private volatile CompletableFuture<IMessagePublication> completion;
+
+    private static final AtomicIntegerFieldUpdater<MessagePublication> PendingInvocations =
+            AtomicIntegerFieldUpdater.newUpdater(MessagePublication.class, "pendingInvocations");
+    private static final AtomicReferenceFieldUpdater<MessagePublication, CompletableFuture> Completion =
+            AtomicReferenceFieldUpdater.newUpdater(MessagePublication.class, CompletableFuture.class, "completion");
 
 
     protected MessagePublication(BusRuntime runtime, Collection<Subscription> subscriptions, Object message, State initialState) {
@@ -40,14 +71,38 @@ public class MessagePublication implements IMessagePublication {
         return subscriptions.add(subscription);
     }
 
+    Collection<Subscription> getSubscriptions() {
+        return subscriptions;
+    }
+
     /*
     TODO: document state transitions
      */
     public void execute() {
-        state = State.Running;
+        if (checkDeadline()) {
+            // the publication has been waiting in the queue for too long
+            skip();
+            return;
+        }
+        markRunning();
         for (Subscription sub : subscriptions) {
            sub.publish(this, message);
         }
+        finish();
+    }
+
+    // the dispatch is skipped entirely
+    void skip() {
+        state = State.Finished;
+        markInvocationFinished();
+    }
+
+    void markRunning() {
+        state = State.Running;
+    }
+
+    // Called after the message has been passed to all subscriptions
+    void finish() {
         state = State.Finished;
         // This part is necessary to support the feature of publishing a DeadMessage or FilteredMessage
         // in case that the original message has not made it to any listener.
@@ -55,13 +110,96 @@ public class MessagePublication implements IMessagePublication {
         // or if configured filters do not let a message pass. The flag is set by the dispatchers.
         // META: This seems to be a suboptimal design
         if (!dispatched) {
+            BusRuntime runtime = getRuntime();
+            IMetricsCollector metrics = runtime.contains(IBusConfiguration.Properties.MetricsCollector)
+                    ? runtime.<IMetricsCollector>get(IBusConfiguration.Properties.MetricsCollector)
+                    : null;
             if (!isFilteredMessage() && !isDeadMessage()) {
-                runtime.getProvider().publish(new FilteredMessage(message));
+                if (metrics != null) metrics.filteredMessage(getMessage());
+                runtime.getProvider().publish(new FilteredMessage(getMessage()));
             } else if (!isDeadMessage()) {
-                runtime.getProvider().publish(new DeadMessage(message));
+                if (metrics != null) metrics.deadMessage(getMessage());
+                runtime.getProvider().publish(new DeadMessage(getMessage()));
             }
 
         }
+        markInvocationFinished();
+    }
+
+    /**
+     * Called for each handler invocation that runs after the dispatch of this publication returned,
+     * i.e. asynchronous handler invocations. The publication is not completed before the invocation is finished.
+     */
+    public void markInvocationScheduled() {
+        PendingInvocations.incrementAndGet(this);
+    }
+
+    /**
+     * Called when a handler invocation that was scheduled with {@link #markInvocationScheduled()} is finished
+     */
+    public void markInvocationFinished() {
+        if (PendingInvocations.decrementAndGet(this) == 0) {
+            completed = true;
+            CompletableFuture<IMessagePublication> future = completion;
+            if (future != null) {
+                complete(future);
+            }
+        }
+    }
+
+    @Override
+    public CompletableFuture<IMessagePublication> getCompletion() {
+        CompletableFuture<IMessagePublication> future = completion;
+        if (future == null) {
+            Completion.compareAndSet(this, null, new CompletableFuture<IMessagePublication>());
+            future = completion;
+            // the publication might have completed before the future was created
+            if (completed) {
+                complete(future);
+            }
+        }
+        return future;
+    }
+
+    private void complete(CompletableFuture<IMessagePublication> future) {
+        PublicationError error = this.error;
+        if (error != null) {
+            future.completeExceptionally(new MessageBusException(error.getMessage(), error.getCause()));
+        } else if (expired) {
+            future.completeExceptionally(new MessageBusException("The deadline of the publication passed before all handlers were invoked"));
+        } else {
+            future.complete(this);
+        }
+    }
+
+    /**
+     * Set the deadline of this publication. Asynchronous handler invocations and queued dispatches of this publication
+     * that did not start before the deadline are skipped. Must be called before the publication is executed or scheduled.
+     *
+     * @return A reference to <code>this</code> publication
+     */
+    public MessagePublication expireAfter(long timeout, TimeUnit unit) {
+        deadline = System.nanoTime() + unit.toNanos(timeout);
+        return this;
+    }
+
+    /**
+     * Called right before a handler invocation (or the dispatch) starts that has been deferred by the bus.
+     * If the deadline of this publication has passed the publication is marked as expired and the caller must skip the invocation.
+     *
+     * @return True if the deadline has passed
+     */
+    public boolean checkDeadline() {
+        if (deadline != NoDeadline && System.nanoTime() - deadline > 0) {
+            expired = true;
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean isExpired() {
+        return expired;
     }
 
     public boolean isFinished() {
@@ -85,6 +223,36 @@ public class MessagePublication implements IMessagePublication {
         return error;
     }
 
+    // Restore the initial state such that the publication can be reused
+    void reset() {
+        state = State.Initial;
+        dispatched = false;
+        error = null;
+        creationTime = NotMeasured;
+        deadline = NoDeadline;
+        expired = false;
+        pendingInvocations = 1;
+        completed = false;
+        completion = null;
+    }
+
+    BusRuntime getRuntime() {
+        return runtime;
+    }
+
+    void markCreated(long nanoTime) {
+        creationTime = nanoTime;
+    }
+
+    /**
+     * @param nanoTime The current time as returned by {@link System#nanoTime()}
+     * @return The time since the publication was created or -1 if the creation time has not been recorded
+     * (only done if metrics are collected)
+     */
+    public long getTimeSinceCreation(long nanoTime) {
+        return creationTime == NotMeasured ? -1 : nanoTime - creationTime;
+    }
+
     public void markDispatched() {
         dispatched = true;
     }
@@ -92,6 +260,18 @@ public class MessagePublication implements IMessagePublication {
         this.error = error;
     }
 
+    // a publication that was dropped due to backpressure is reported as not scheduled
+    void markDropped() {
+        abort(new MessageBusException("The publication was dropped due to backpressure"));
+    }
+
+    // a publication that will never be executed is reported as not scheduled and completes exceptionally
+    void abort(MessageBusException reason) {
+        state = State.Initial;
+        getCompletion().completeExceptionally(reason);
+        completed = true;
+    }
+
     public MessagePublication markScheduled() {
         if (state.equals(State.Initial)) {
             state = State.Scheduled;
@@ -0,0 +1,121 @@
+package net.engio.mbassy.bus;
+
+import net.engio.mbassy.subscription.Subscription;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * A message publication that invokes the subscriptions of equal priority concurrently in a {@link ForkJoinPool}.
+ * Subscriptions of different priority are still processed strictly in descending order of their priority,
+ * the next priority band starts only when all subscriptions of the previous one are finished.
+ * The publication itself is finished when all subscriptions are finished.
+ * <p/>
+ * Handlers of equal priority must not depend on each other's side effects and must be thread-safe.
+ *
+ * @see net.engio.mbassy.bus.config.Feature.SyncPubSub#Parallel(ForkJoinPool)
+ */
+public class ParallelMessagePublication extends MessagePublication {
+
+    private final ForkJoinPool pool;
+
+    protected ParallelMessagePublication(BusRuntime runtime, Collection<Subscription> subscriptions, Object message, ForkJoinPool pool) {
+        super(runtime, subscriptions, message, State.Initial);
+        this.pool = pool;
+    }
+
+    @Override
+    public void execute() {
+        if (checkDeadline()) {
+            skip();
+            return;
+        }
+        markRunning();
+        Collection<Subscription> subscriptions = getSubscriptions();
+        if (subscriptions.size() < 2) {
+            for (Subscription subscription : subscriptions) {
+                subscription.publish(this, getMessage());
+            }
+        } else {
+            List<Subscription> band = new ArrayList<Subscription>();
+            Iterator<Subscription> iterator = subscriptions.iterator();
+            while (iterator.hasNext()) {
+                Subscription subscription = iterator.next();
+                if (!band.isEmpty() && band.get(0).getPriority() != subscription.getPriority()) {
+                    publish(band);
+                    band.clear();
+                }
+                band.add(subscription);
+            }
+            publish(band);
+        }
+        finish();
+    }
+
+    // publish to all subscriptions of the same priority and wait until all of them are finished
+    private void publish(List<Subscription> band) {
+        if (band.size() == 1) {
+            band.get(0).publish(this, getMessage());
+            return;
+        }
+        List<ForkJoinTask<?>> forked = new ArrayList<ForkJoinTask<?>>(band.size() - 1);
+        for (int i = 1; i < band.size(); i++) {
+            final Subscription subscription = band.get(i);
+            ForkJoinTask<?> task = ForkJoinTask.adapt(new Runnable() {
+                @Override
+                public void run() {
+                    subscription.publish(ParallelMessagePublication.this, getMessage());
+                }
+            });
+            forked.add(pool.submit(task));
+        }
+        // the publishing thread takes part in the work
+        // all tasks are joined even if one of them failed, such that the next band never overlaps with this one
+        Throwable failure = null;
+        try {
+            band.get(0).publish(this, getMessage());
+        } catch (Throwable e) {
+            failure = e;
+        }
+        for (ForkJoinTask<?> task : forked) {
+            try {
+                task.join();
+            } catch (Throwable e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            rethrow(failure);
+        }
+    }
+
+    // subscriptions and joined tasks only throw unchecked exceptions
+    private static void rethrow(Throwable failure) {
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+        throw (RuntimeException) failure;
+    }
+
+    public static class Factory extends MessagePublication.Factory {
+
+        private final ForkJoinPool pool;
+
+        public Factory(ForkJoinPool pool) {
+            this.pool = pool;
+        }
+
+        @Override
+        public MessagePublication createPublication(BusRuntime runtime, Collection<Subscription> subscriptions, Object message) {
+            return new ParallelMessagePublication(runtime, subscriptions, message, pool);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package net.engio.mbassy.bus;
+
+import net.engio.mbassy.bus.common.DeadMessage;
+import net.engio.mbassy.bus.common.FilteredMessage;
+import net.engio.mbassy.subscription.Subscription;
+
+import java.util.Collections;
+
+/**
+ * A message publication that is reused for subsequent fire-and-forget publications of the same thread,
+ * regardless of the bus that publishes the message. It carries the message and the runtime of the bus only while
+ * it is being dispatched, such that an idle publication does not keep any bus reachable from the thread.
+ * It must not be referenced after the publication finished, i.e. by a
+ * {@link net.engio.mbassy.bus.error.IPublicationErrorHandler} that stores the error, and it must not be used
+ * for subscriptions with asynchronous handlers.
+ */
+class ReusableMessagePublication extends MessagePublication {
+
+    private static final ThreadLocal<ReusableMessagePublication> PerThread = new ThreadLocal<ReusableMessagePublication>() {
+        @Override
+        protected ReusableMessagePublication initialValue() {
+            return new ReusableMessagePublication();
+        }
+    };
+
+    private BusRuntime runtime;
+
+    private Object message;
+
+    private boolean inUse = false;
+
+    private ReusableMessagePublication() {
+        super(null, Collections.<Subscription>emptyList(), null, State.Initial);
+    }
+
+    /**
+     * Start a publication of the given message using the publication of the current thread. A new publication
+     * is created if the publication of the current thread is in use, i.e. if a handler fires another message.
+     * The returned publication must be released when the dispatch is finished.
+     */
+    static ReusableMessagePublication start(BusRuntime runtime, Object message) {
+        ReusableMessagePublication publication = PerThread.get();
+        if (publication.inUse) {
+            // fired from within a handler of the running publication
+            publication = new ReusableMessagePublication();
+        }
+        publication.reset();
+        publication.runtime = runtime;
+        publication.message = message;
+        publication.inUse = true;
+        publication.markRunning();
+        return publication;
+    }
+
+    void release() {
+        reset();
+        runtime = null;
+        message = null;
+        inUse = false;
+    }
+
+    @Override
+    BusRuntime getRuntime() {
+        return runtime;
+    }
+
+    // fire-and-forget publications do not track their completion
+    @Override
+    public void markInvocationScheduled() {
+    }
+
+    @Override
+    public void markInvocationFinished() {
+    }
+
+    @Override
+    public Object getMessage() {
+        return message;
+    }
+
+    @Override
+    public boolean isDeadMessage() {
+        return DeadMessage.class.equals(message.getClass());
+    }
+
+    @Override
+    public boolean isFilteredMessage() {
+        return FilteredMessage.class.equals(message.getClass());
+    }
+}
@@ -0,0 +1,14 @@
+package net.engio.mbassy.bus.common;
+
+/**
+ * Extracts the partition key of a message for partitioned asynchronous dispatch.
+ *
+ * @see MessagePartitioner
+ */
+public interface IPartitionKeyExtractor<M> {
+
+    /**
+     * @return The key of the message or null if the message may be processed by any partition
+     */
+    Object getKey(M message);
+}
@@ -0,0 +1,126 @@
+package net.engio.mbassy.bus.common;
+
+import net.engio.mbassy.common.ReflectionUtils;
+import net.engio.mbassy.listener.PartitionKey;
+
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The message partitioner assigns messages to partitions of the asynchronous dispatch based on their key.
+ * Messages with equal keys are always assigned to the same partition.
+ * <p/>
+ * The key of a message is provided by
+ * <ul>
+ *     <li>the extractor configured for the message type or its closest super type using {@link #partitionBy}</li>
+ *     <li>or the field or no-arg method of the message class annotated with {@link PartitionKey}</li>
+ * </ul>
+ * Messages without a key can be assigned to any partition.
+ */
+public class MessagePartitioner {
+
+    // used for message types without key
+    private static final IPartitionKeyExtractor<Object> NoKey = new IPartitionKeyExtractor<Object>() {
+        @Override
+        public Object getKey(Object message) {
+            return null;
+        }
+    };
+
+    // extractors configured by the user
+    private final Map<Class, IPartitionKeyExtractor> configured = new ConcurrentHashMap<Class, IPartitionKeyExtractor>();
+
+    // extractors resolved for concrete message types
+    private final Map<Class, IPartitionKeyExtractor> resolved = new ConcurrentHashMap<Class, IPartitionKeyExtractor>();
+
+    /**
+     * Use the given extractor for all messages of the given type and its subtypes (unless a more specific
+     * extractor is configured). Configured extractors take precedence over {@link PartitionKey} annotations.
+     */
+    public <M> MessagePartitioner partitionBy(Class<M> messageType, IPartitionKeyExtractor<? super M> extractor) {
+        configured.put(messageType, extractor);
+        resolved.clear();
+        return this;
+    }
+
+    /**
+     * @return The key of the message or null if it has none
+     */
+    public Object getKey(Object message) {
+        IPartitionKeyExtractor extractor = resolved.get(message.getClass());
+        if (extractor == null) {
+            extractor = resolve(message.getClass());
+            resolved.put(message.getClass(), extractor);
+        }
+        return extractor.getKey(message);
+    }
+
+    /**
+     * @return The partition of the message in the range [0, partitions) or -1 if the message has no key
+     */
+    public int getPartition(Object message, int partitions) {
+        Object key = getKey(message);
+        if (key == null) {
+            return -1;
+        }
+        int hash = key.hashCode();
+        // spread the bits such that keys with similar hash codes are distributed across partitions
+        hash ^= (hash >>> 16);
+        return (hash & Integer.MAX_VALUE) % partitions;
+    }
+
+    private IPartitionKeyExtractor resolve(Class messageType) {
+        // most specific configured super class
+        for (Class type = messageType; type != null; type = type.getSuperclass()) {
+            if (configured.containsKey(type)) {
+                return configured.get(type);
+            }
+        }
+        for (Class type : ReflectionUtils.getSuperTypeHierarchy(messageType)) {
+            if (type.isInterface() && configured.containsKey(type)) {
+                return configured.get(type);
+            }
+        }
+        // annotated member
+        for (Class type = messageType; type != null && !type.equals(Object.class); type = type.getSuperclass()) {
+            for (Method method : type.getDeclaredMethods()) {
+                if (method.isAnnotationPresent(PartitionKey.class)) {
+                    if (method.getParameterCount() != 0) {
+                        throw new IllegalArgumentException("A partition key method must not have any parameters: " + method);
+                    }
+                    return new MemberExtractor(method);
+                }
+            }
+            for (Field field : type.getDeclaredFields()) {
+                if (field.isAnnotationPresent(PartitionKey.class)) {
+                    return new MemberExtractor(field);
+                }
+            }
+        }
+        return NoKey;
+    }
+
+    private static final class MemberExtractor implements IPartitionKeyExtractor<Object> {
+
+        private final AccessibleObject member;
+
+        private MemberExtractor(AccessibleObject member) {
+            member.setAccessible(true);
+            this.member = member;
+        }
+
+        @Override
+        public Object getKey(Object message) {
+            try {
+                return member instanceof Method
+                        ? ((Method) member).invoke(message)
+                        : ((Field) member).get(message);
+            } catch (Exception e) {
+                throw new IllegalStateException("Could not read partition key of " + message, e);
+            }
+        }
+    }
+}
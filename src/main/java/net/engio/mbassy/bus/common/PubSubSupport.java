@@ -1,7 +1,12 @@
 package net.engio.mbassy.bus.common;
 
+import net.engio.mbassy.bus.CompositePublication;
 import net.engio.mbassy.bus.IMessagePublication;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
 /**
  * This interface defines the very basic message publication semantics according to the publish subscribe pattern.
  * Listeners can be subscribed and unsubscribed using the corresponding methods. When a listener is subscribed its
@@ -31,6 +36,37 @@ public interface PubSubSupport<T> extends RuntimeProvider{
      */
     boolean unsubscribe(Object listener);
 
+    /**
+     * Subscribe all handlers of all given listeners. This has the same effect as subscribing each listener
+     * individually but is considerably cheaper for large numbers of listeners: The listeners are grouped by their class
+     * and all listeners of the same class are registered with a single bulk operation per handler.
+     * The default implementation subscribes each listener individually.
+     *
+     * @param listeners
+     */
+    default void subscribeAll(Collection<?> listeners) {
+        for (Object listener : listeners) {
+            subscribe(listener);
+        }
+    }
+
+    /**
+     * Immediately remove all registered message handlers of all given listeners. This has the same effect as
+     * unsubscribing each listener individually, see {@link #unsubscribe(Object)}.
+     * The default implementation unsubscribes each listener individually.
+     *
+     * @param listeners
+     * @return true, if any of the listeners was found and removed
+     *         false otherwise
+     */
+    default boolean unsubscribeAll(Collection<?> listeners) {
+        boolean removed = false;
+        for (Object listener : listeners) {
+            removed |= unsubscribe(listener);
+        }
+        return removed;
+    }
+
 
     /**
      * Synchronously publish a message to all registered listeners. This includes listeners defined for super types of the
@@ -40,4 +76,35 @@ public interface PubSubSupport<T> extends RuntimeProvider{
      * @param message
      */
     IMessagePublication publish(T message);
+
+    /**
+     * Synchronously publish all given messages as a single batch. The subscriptions are resolved once per message type
+     * and each matching handler receives all messages of that type before the next handler is invoked. The call
+     * returns when all messages have been delivered.
+     *
+     * The default implementation publishes each message on its own using {@link #publish(Object)}, the message bus
+     * implementations override it.
+     *
+     * @param messages
+     * @return A publication that reflects the aggregate state of all messages of the batch
+     */
+    default IMessagePublication publishAll(Collection<? extends T> messages) {
+        List<IMessagePublication> publications = new ArrayList<IMessagePublication>(messages.size());
+        for (T message : messages) {
+            publications.add(publish(message));
+        }
+        return new CompositePublication(publications);
+    }
+
+    /**
+     * Synchronously publish a message to all registered listeners without tracking the state of the publication.
+     * Use this instead of {@link #publish(Object)} when the publication is not needed by the caller. It avoids
+     * allocating a publication for each message. Errors are reported to the registered error handlers.
+     * The default implementation simply calls {@link #publish(Object)}.
+     *
+     * @param message
+     */
+    default void fire(T message) {
+        publish(message);
+    }
 }
@@ -0,0 +1,112 @@
+package net.engio.mbassy.bus.config;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A backpressure policy defines what happens to an asynchronous publication if the queue of pending publications
+ * is full. It only takes effect if the queue is bounded, see {@link Feature.AsynchronousMessageDispatch#Bounded}.
+ * <p/>
+ * Policies can be configured for the whole bus and for specific message types using
+ * {@link Feature.AsynchronousMessageDispatch#setBackpressure}. All dropped messages are counted and can optionally
+ * be published as {@link net.engio.mbassy.bus.common.DeadMessage}. A dropped publication is reported as not scheduled.
+ */
+public final class BackpressurePolicy {
+
+    public enum Strategy {
+        // wait until there is space in the queue
+        Block,
+        // wait a limited time for space in the queue, then drop the new message
+        BlockWithTimeout,
+        // dispatch the new message synchronously on the publishing thread
+        // a partitioned dispatch blocks instead, since the message would overtake the pending messages of its partition
+        CallerRuns,
+        // drop the new message
+        DropNewest,
+        // drop the oldest pending message to make room for the new one
+        // the new message is dropped if concurrent producers keep filling the queue after a number of evictions
+        DropOldest,
+        // accept only every n-th new message by dropping the oldest pending one, drop all others
+        Sample
+    }
+
+    public static BackpressurePolicy Block() {
+        return new BackpressurePolicy(Strategy.Block, 0, 1);
+    }
+
+    public static BackpressurePolicy BlockWithTimeout(long timeout, TimeUnit unit) {
+        return new BackpressurePolicy(Strategy.BlockWithTimeout, unit.toNanos(timeout), 1);
+    }
+
+    public static BackpressurePolicy CallerRuns() {
+        return new BackpressurePolicy(Strategy.CallerRuns, 0, 1);
+    }
+
+    public static BackpressurePolicy DropNewest() {
+        return new BackpressurePolicy(Strategy.DropNewest, 0, 1);
+    }
+
+    public static BackpressurePolicy DropOldest() {
+        return new BackpressurePolicy(Strategy.DropOldest, 0, 1);
+    }
+
+    public static BackpressurePolicy Sample(int rate) {
+        if (rate < 1) {
+            throw new IllegalArgumentException("Sample rate must be at least 1");
+        }
+        return new BackpressurePolicy(Strategy.Sample, 0, rate);
+    }
+
+    private final Strategy strategy;
+
+    private final long timeoutInNanos;
+
+    private final int sampleRate;
+
+    // counts the messages that arrived while the queue was full (only used for sampling)
+    private final AtomicLong overflows = new AtomicLong(0);
+
+    private boolean reportDropped = false;
+
+    private BackpressurePolicy(Strategy strategy, long timeoutInNanos, int sampleRate) {
+        this.strategy = strategy;
+        this.timeoutInNanos = timeoutInNanos;
+        this.sampleRate = sampleRate;
+    }
+
+    public Strategy getStrategy() {
+        return strategy;
+    }
+
+    public long getTimeoutInNanos() {
+        return timeoutInNanos;
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    public boolean isReportDropped() {
+        return reportDropped;
+    }
+
+    /**
+     * Publish each dropped message as {@link net.engio.mbassy.bus.common.DeadMessage} on the thread that caused the drop
+     */
+    public BackpressurePolicy setReportDropped(boolean reportDropped) {
+        this.reportDropped = reportDropped;
+        return this;
+    }
+
+    /**
+     * @return True if the current overflowing message is part of the sample and should be accepted
+     */
+    public boolean sample() {
+        return overflows.getAndIncrement() % sampleRate == 0;
+    }
+
+    @Override
+    public String toString() {
+        return "BackpressurePolicy{" + strategy + "}";
+    }
+}
@@ -19,6 +19,10 @@ public class ConfigurationError extends RuntimeException{
         return new ConfigurationError("The expected feature " + featureType +  " was missing. Use addFeature() in IBusConfiguration to add features.");
     }
 
+    public static ConfigurationError InvalidFeature(Feature feature, String reason){
+        return new ConfigurationError("The feature " + feature.getClass() + " is not configured correctly: " + reason);
+    }
+
     @Override
     public String toString() {
         return message;
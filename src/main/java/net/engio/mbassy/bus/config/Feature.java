@@ -2,13 +2,24 @@ package net.engio.mbassy.bus.config;
 
 import net.engio.mbassy.bus.IMessagePublication;
 import net.engio.mbassy.bus.MessagePublication;
+import net.engio.mbassy.bus.ParallelMessagePublication;
+import net.engio.mbassy.bus.common.IPartitionKeyExtractor;
+import net.engio.mbassy.bus.common.MessagePartitioner;
+import net.engio.mbassy.bus.metrics.BusMetrics;
+import net.engio.mbassy.bus.metrics.IMetricsCollector;
+import net.engio.mbassy.common.RingBufferQueue;
 import net.engio.mbassy.listener.MetadataReader;
 import net.engio.mbassy.subscription.ISubscriptionManagerProvider;
 import net.engio.mbassy.subscription.SubscriptionFactory;
 import net.engio.mbassy.subscription.SubscriptionManagerProvider;
 
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
 /**
  * A feature defines the configuration of a specific functionality of a message bus.
@@ -46,6 +57,25 @@ public interface Feature {
                     .setSubscriptionManagerProvider(new SubscriptionManagerProvider());
         }
 
+        /**
+         * Invoke the handlers of equal priority concurrently in the common {@link ForkJoinPool}.
+         *
+         * @see #Parallel(ForkJoinPool)
+         */
+        public static final SyncPubSub Parallel(){
+            return Parallel(ForkJoinPool.commonPool());
+        }
+
+        /**
+         * Invoke the handlers of equal priority concurrently in the given pool. Handlers of different priority are
+         * still invoked in descending order of their priority and a publication is finished when all its handlers
+         * are finished. This reduces the latency of publications with many CPU intensive synchronous handlers.
+         * Batches and fire-and-forget publications are not affected.
+         */
+        public static final SyncPubSub Parallel(ForkJoinPool pool){
+            return Default().setPublicationFactory(new ParallelMessagePublication.Factory(pool));
+        }
+
         private MessagePublication.Factory publicationFactory;
         private MetadataReader metadataReader;
         private SubscriptionFactory subscriptionFactory;
@@ -93,6 +123,76 @@ public interface Feature {
         }
     }
 
+    /**
+     * Collect metrics about publications, handler invocations and asynchronous dispatch. Without this
+     * feature the bus does not take any measurements.
+     */
+    class Metrics implements Feature {
+
+        public static final Metrics Default(){
+            return new Metrics().setCollector(new BusMetrics());
+        }
+
+        private IMetricsCollector collector;
+
+        public IMetricsCollector getCollector() {
+            return collector;
+        }
+
+        public Metrics setCollector(IMetricsCollector collector) {
+            this.collector = collector;
+            return this;
+        }
+    }
+
+    /**
+     * Watch the running handler invocations and report handlers that run longer than the configured threshold
+     * to the publication error handlers. Without this feature stuck handlers remain unnoticed.
+     * The watchdog runs its own thread that is stopped when the bus is shut down. Therefore it is only supported by
+     * buses with asynchronous message dispatch, a {@link net.engio.mbassy.bus.SyncMessageBus} ignores this feature.
+     *
+     * @see net.engio.mbassy.dispatch.HandlerWatchdog
+     */
+    class Watchdog implements Feature {
+
+        public static final Watchdog Default(){
+            return Threshold(10, TimeUnit.SECONDS);
+        }
+
+        public static final Watchdog Threshold(long threshold, TimeUnit unit){
+            return new Watchdog().setThreshold(threshold, unit);
+        }
+
+        private long thresholdInNanos;
+
+        private long checkIntervalInNanos = TimeUnit.SECONDS.toNanos(1);
+
+        public long getThresholdInNanos() {
+            return thresholdInNanos;
+        }
+
+        /**
+         * Handler invocations running longer than the threshold are reported once
+         */
+        public Watchdog setThreshold(long threshold, TimeUnit unit) {
+            this.thresholdInNanos = unit.toNanos(threshold);
+            return this;
+        }
+
+        public long getCheckIntervalInNanos() {
+            return checkIntervalInNanos;
+        }
+
+        /**
+         * The interval in which the running invocations are checked. Slow handlers are reported
+         * at most one interval after they exceeded the threshold.
+         */
+        public Watchdog setCheckInterval(long interval, TimeUnit unit) {
+            this.checkIntervalInNanos = unit.toNanos(interval);
+            return this;
+        }
+    }
+
     class AsynchronousHandlerInvocation implements Feature{
 
         protected static final ThreadFactory MessageHandlerThreadFactory = new ThreadFactory() {
@@ -108,6 +208,10 @@ public interface Feature {
             }
         };
 
+        protected static final ThreadFactory VirtualHandlerThreadFactory = Thread.ofVirtual()
+                .name("AsyncHandler-virtual-", 0)
+                .factory();
+
         public static final AsynchronousHandlerInvocation Default(){
             int numberOfCores = Runtime.getRuntime().availableProcessors();
             return Default(numberOfCores, numberOfCores * 2);
@@ -118,7 +222,35 @@ public interface Feature {
                     TimeUnit.MINUTES, new LinkedBlockingQueue<Runnable>(), MessageHandlerThreadFactory));
         }
 
+        /**
+         * Run each asynchronous handler invocation in its own virtual thread. Handlers that block on I/O
+         * do not occupy a platform thread while waiting and the number of concurrently running handlers
+         * is not bounded by the size of a thread pool.
+         *
+         * Handlers marked as {@link net.engio.mbassy.listener.Synchronized} lock the listener with a
+         * synchronized block. Since Java 24 a virtual thread that blocks inside a synchronized block releases
+         * its carrier thread (JEP 491), so synchronized handlers do not pin carriers.
+         */
+        public static final AsynchronousHandlerInvocation VirtualThreads(){
+            return new AsynchronousHandlerInvocation().setExecutor(
+                    Executors.newThreadPerTaskExecutor(VirtualHandlerThreadFactory));
+        }
+
+        /**
+         * Fork asynchronous handler invocations into the work-stealing pool of the message dispatch
+         * (see {@link AsynchronousMessageDispatch#WorkStealing()}). An invocation that is started by a
+         * dispatching worker is pushed onto the local deque of that worker and can be stolen by idle workers,
+         * no separate thread pool is involved.
+         */
+        public static final AsynchronousHandlerInvocation WorkStealing(){
+            return new AsynchronousHandlerInvocation();
+        }
+
         private ExecutorService executor;
+        // asynchronous handlers of these message types conflate their messages
+        private final Set<Class<?>> conflatedMessageTypes = new HashSet<Class<?>>();
+        // provides the keys of conflated messages
+        private final MessagePartitioner conflationKeys = new MessagePartitioner();
 
         public ExecutorService getExecutor() {
             return executor;
@@ -128,6 +260,34 @@ public interface Feature {
             this.executor = executor;
             return this;
         }
+
+        /**
+         * Conflate the messages of asynchronous handlers for the given message type (or its subtypes) as if they were
+         * declared with {@link net.engio.mbassy.listener.Handler#conflate()}. Messages with equal
+         * {@link net.engio.mbassy.listener.PartitionKey} replace each other while waiting for delivery.
+         */
+        public AsynchronousHandlerInvocation conflate(Class<?> messageType) {
+            conflatedMessageTypes.add(messageType);
+            return this;
+        }
+
+        /**
+         * Conflate the messages of asynchronous handlers for the given message type (or its subtypes) using the
+         * keys provided by the given extractor
+         */
+        public <M> AsynchronousHandlerInvocation conflate(Class<M> messageType, IPartitionKeyExtractor<? super M> keyExtractor) {
+            conflatedMessageTypes.add(messageType);
+            conflationKeys.partitionBy(messageType, keyExtractor);
+            return this;
+        }
+
+        public Set<Class<?>> getConflatedMessageTypes() {
+            return conflatedMessageTypes;
+        }
+
+        public MessagePartitioner getConflationKeys() {
+            return conflationKeys;
+        }
     }
 
     class AsynchronousMessageDispatch implements Feature{
@@ -145,6 +305,10 @@ public interface Feature {
             }
         };
 
+        protected static final ThreadFactory VirtualDispatchThreadFactory = Thread.ofVirtual()
+                .name("Dispatcher-virtual-", 0)
+                .factory();
+
         public static final AsynchronousMessageDispatch Default(){
             return new AsynchronousMessageDispatch()
                 .setNumberOfMessageDispatchers(2)
@@ -152,10 +316,129 @@ public interface Feature {
                 .setMessageQueue(new LinkedBlockingQueue<IMessagePublication>(Integer.MAX_VALUE));
         }
 
+        /**
+         * Use virtual threads for the message dispatchers. Synchronous handlers that are invoked
+         * from a dispatcher and block on I/O release the underlying platform thread while waiting.
+         * Virtual threads are always daemon threads.
+         */
+        public static final AsynchronousMessageDispatch VirtualThreads(){
+            return Default().setDispatcherThreadFactory(VirtualDispatchThreadFactory);
+        }
+
+        /**
+         * Use a preallocated {@link RingBufferQueue} with blocking wait strategy as message queue
+         * and let the dispatchers process pending publications in batches.
+         */
+        public static final AsynchronousMessageDispatch RingBuffer(){
+            return RingBuffer(1 << 16, RingBufferQueue.WaitStrategy.Block);
+        }
+
+        public static final AsynchronousMessageDispatch RingBuffer(int capacity, RingBufferQueue.WaitStrategy waitStrategy){
+            return Default()
+                .setMessageQueue(new RingBufferQueue<IMessagePublication>(capacity, waitStrategy))
+                .setDispatchBatchSize(64);
+        }
+
+        protected static final ForkJoinPool.ForkJoinWorkerThreadFactory WorkStealingThreadFactory = new ForkJoinPool.ForkJoinWorkerThreadFactory() {
+
+            private final AtomicInteger threadID = new AtomicInteger(0);
+
+            @Override
+            public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+                ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                thread.setName("Dispatcher-fj-" + threadID.getAndIncrement());
+                return thread;
+            }
+        };
+
+        /**
+         * Dispatch each asynchronous publication as a task of a {@link ForkJoinPool} with one worker per core
+         * instead of using dedicated dispatcher threads. Idle workers steal pending publications from busy ones.
+         */
+        public static final AsynchronousMessageDispatch WorkStealing(){
+            return WorkStealing(Runtime.getRuntime().availableProcessors());
+        }
+
+        public static final AsynchronousMessageDispatch WorkStealing(int parallelism){
+            // async mode processes the tasks of each worker in FIFO order
+            return Default().setDispatchPool(new ForkJoinPool(parallelism, WorkStealingThreadFactory, null, true));
+        }
+
+        /**
+         * Use a bounded message queue and apply the given policy if it is full. Without a bounded queue, a stalled
+         * dispatch lets the pending publications grow until the heap is exhausted.
+         *
+         * @see #setQueueCapacity(int)
+         */
+        public static final AsynchronousMessageDispatch Bounded(int capacity, BackpressurePolicy policy){
+            return Default()
+                .setQueueCapacity(capacity)
+                .setBackpressure(policy);
+        }
+
+        /**
+         * Strategies to select the queue of a sharded dispatch that a producer adds its publications to
+         */
+        public enum ShardSelection {
+            // producers add to the same queue as long as the thread is alive
+            ThreadAffinity,
+            // producers add to the queues one after another
+            RoundRobin
+        }
+
+        /**
+         * Shard the message queue such that each dispatcher has its own queue. Producers add their publications
+         * to a queue selected by thread affinity and idle dispatchers steal pending publications from the queues
+         * of other dispatchers. This removes the contention of many producers and dispatchers on a single queue.
+         * Publications are not processed in order of their publication.
+         */
+        public static final AsynchronousMessageDispatch Sharded(int shards){
+            return Sharded(shards, ShardSelection.ThreadAffinity);
+        }
+
+        public static final AsynchronousMessageDispatch Sharded(int shards, ShardSelection selection){
+            return Default()
+                .setNumberOfMessageDispatchers(shards)
+                .setShardSelection(selection);
+        }
+
+        /**
+         * Partition the asynchronous dispatch such that each dispatcher has its own queue. Messages are assigned
+         * to a queue by their key (see {@link net.engio.mbassy.listener.PartitionKey} and
+         * {@link MessagePartitioner#partitionBy}) such that all messages with equal keys are dispatched
+         * sequentially in order of their publication. Messages without a key are distributed round-robin.
+         */
+        public static final AsynchronousMessageDispatch Partitioned(int partitions){
+            return Default()
+                .setNumberOfMessageDispatchers(partitions)
+                .setPartitioner(new MessagePartitioner());
+        }
 
         private int numberOfMessageDispatchers;
         private BlockingQueue<IMessagePublication> messageQueue;
         private ThreadFactory dispatcherThreadFactory;
+        // the maximum number of publications a dispatcher removes from the queue at once
+        private int dispatchBatchSize = 1;
+        // assigns messages to dispatchers if set
+        private MessagePartitioner partitioner;
+        // runs publications as tasks if set
+        private ForkJoinPool dispatchPool;
+        // shards the message queue if set
+        private ShardSelection shardSelection;
+        // the capacity of the message queue and each dispatcher queue (0 if unbounded)
+        private int queueCapacity = 0;
+        // applied if the queue is full
+        private BackpressurePolicy backpressure = BackpressurePolicy.Block();
+        private final Map<Class<?>, BackpressurePolicy> backpressureByType = new HashMap<Class<?>, BackpressurePolicy>();
+        // creates the queues of the individual dispatchers
+        private Supplier<BlockingQueue<IMessagePublication>> dispatcherQueueFactory = new Supplier<BlockingQueue<IMessagePublication>>() {
+            @Override
+            public BlockingQueue<IMessagePublication> get() {
+                return queueCapacity > 0
+                        ? new LinkedBlockingQueue<IMessagePublication>(queueCapacity)
+                        : new LinkedBlockingQueue<IMessagePublication>();
+            }
+        };
 
         public int getNumberOfMessageDispatchers() {
             return numberOfMessageDispatchers;
@@ -175,6 +458,24 @@ public interface Feature {
             return this;
         }
 
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        /**
+         * Bound the message queue to the given capacity, the backpressure policy is applied if it is full. This replaces
+         * the message queue. A partitioned or sharded dispatch bounds the queue of each dispatcher created by the
+         * default dispatcher queue factory instead. A work-stealing dispatch pool can not be bounded.
+         */
+        public AsynchronousMessageDispatch setQueueCapacity(int capacity) {
+            if (capacity < 1) {
+                throw new IllegalArgumentException("Capacity must be at least 1");
+            }
+            this.queueCapacity = capacity;
+            this.messageQueue = new LinkedBlockingQueue<IMessagePublication>(capacity);
+            return this;
+        }
+
         public ThreadFactory getDispatcherThreadFactory() {
             return dispatcherThreadFactory;
         }
@@ -183,5 +484,97 @@ public interface Feature {
             this.dispatcherThreadFactory = dispatcherThreadFactory;
             return this;
         }
+
+        public int getDispatchBatchSize() {
+            return dispatchBatchSize;
+        }
+
+        /**
+         * Set the maximum number of pending publications that a dispatcher takes from the message queue
+         * in one go. Larger batches reduce contention on the queue, a batch size of 1 processes one
+         * publication per queue access.
+         */
+        public AsynchronousMessageDispatch setDispatchBatchSize(int dispatchBatchSize) {
+            if (dispatchBatchSize < 1) {
+                throw new IllegalArgumentException("Batch size must be at least 1");
+            }
+            this.dispatchBatchSize = dispatchBatchSize;
+            return this;
+        }
+
+        public ForkJoinPool getDispatchPool() {
+            return dispatchPool;
+        }
+
+        /**
+         * Set the pool that runs each publication as a separate task. If set, no dispatcher threads are started
+         * and the message queue, the number of dispatchers and the partitioner are not used. Publications are
+         * not processed in order of their publication.
+         */
+        public AsynchronousMessageDispatch setDispatchPool(ForkJoinPool dispatchPool) {
+            this.dispatchPool = dispatchPool;
+            return this;
+        }
+
+        public BackpressurePolicy getBackpressure() {
+            return backpressure;
+        }
+
+        /**
+         * Set the policy that is applied if the message queue is full. The default policy blocks until there is space.
+         */
+        public AsynchronousMessageDispatch setBackpressure(BackpressurePolicy backpressure) {
+            this.backpressure = backpressure;
+            return this;
+        }
+
+        public Map<Class<?>, BackpressurePolicy> getBackpressureByType() {
+            return backpressureByType;
+        }
+
+        /**
+         * Set the policy that is applied to messages of the given type and its subtypes if the message queue is full
+         */
+        public AsynchronousMessageDispatch setBackpressure(Class<?> messageType, BackpressurePolicy backpressure) {
+            backpressureByType.put(messageType, backpressure);
+            return this;
+        }
+
+        public ShardSelection getShardSelection() {
+            return shardSelection;
+        }
+
+        /**
+         * Give each dispatcher its own queue created by the dispatcher queue factory and select the queue
+         * of a producer with the given strategy. The shared message queue is not used. If metrics are collected,
+         * the size of a queue is read whenever a publication is added or taken, so it should not require a lock
+         * (like {@link LinkedBlockingQueue} or {@link RingBufferQueue}).
+         */
+        public AsynchronousMessageDispatch setShardSelection(ShardSelection shardSelection) {
+            this.shardSelection = shardSelection;
+            return this;
+        }
+
+        public MessagePartitioner getPartitioner() {
+            return partitioner;
+        }
+
+        /**
+         * Set the partitioner that assigns messages to dispatchers. If set, each dispatcher takes publications
+         * from its own queue created by the dispatcher queue factory and the shared message queue is not used.
+         */
+        public AsynchronousMessageDispatch setPartitioner(MessagePartitioner partitioner) {
+            this.partitioner = partitioner;
+            return this;
+        }
+
+        public Supplier<BlockingQueue<IMessagePublication>> getDispatcherQueueFactory() {
+            return dispatcherQueueFactory;
+        }
+
+        public AsynchronousMessageDispatch setDispatcherQueueFactory(Supplier<BlockingQueue<IMessagePublication>> dispatcherQueueFactory) {
+            this.dispatcherQueueFactory = dispatcherQueueFactory;
+            return this;
+        }
     }
 }
\ No newline at end of file
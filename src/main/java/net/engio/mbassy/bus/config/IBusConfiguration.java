@@ -85,6 +85,10 @@ public interface IBusConfiguration{
         public static final String BusId = "bus.id";
         public static final String PublicationErrorHandlers = "bus.handlers.error";
         public static final String AsynchronousHandlerExecutor = "bus.handlers.async-executor";
+        public static final String MetricsCollector = "bus.metrics";
+        public static final String ConflatedMessageTypes = "bus.handlers.conflated-types";
+        public static final String ConflationKeys = "bus.handlers.conflation-keys";
+        public static final String HandlerWatchdog = "bus.handlers.watchdog";
 
     }
 }
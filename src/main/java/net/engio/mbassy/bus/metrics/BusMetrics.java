@@ -0,0 +1,175 @@
+package net.engio.mbassy.bus.metrics;
+
+import net.engio.mbassy.listener.MessageHandler;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The default metrics collector keeps counters and {@link LatencyHistogram}s in memory. The values can be read at any
+ * time, e.g. to export them to a monitoring system.
+ * <ul>
+ *     <li>number of publications per message type</li>
+ *     <li>dispatch latency and execution time per message handler</li>
+ *     <li>depth of and wait time in the queue of pending asynchronous publications</li>
+ *     <li>wait time of asynchronous handler invocations in the executor (saturation of the executor)</li>
+ *     <li>number of dead and filtered messages</li>
+ * </ul>
+ */
+public class BusMetrics implements IMetricsCollector {
+
+    private final ConcurrentHashMap<Class<?>, LongAdder> publications = new ConcurrentHashMap<Class<?>, LongAdder>();
+
+    private final ConcurrentHashMap<MessageHandler, HandlerMetrics> handlers = new ConcurrentHashMap<MessageHandler, HandlerMetrics>();
+
+    private final LatencyHistogram queueWaitTime = new LatencyHistogram();
+
+    private final LatencyHistogram executorWaitTime = new LatencyHistogram();
+
+    private final LongAccumulator maxQueueDepth = new LongAccumulator(Math::max, 0);
+
+    private volatile int queueDepth = 0;
+
+    private final LongAdder deadMessages = new LongAdder();
+
+    private final LongAdder filteredMessages = new LongAdder();
+
+    private final LongAdder droppedMessages = new LongAdder();
+
+    @Override
+    public void messagePublished(Class<?> messageType) {
+        LongAdder counter = publications.get(messageType);
+        if (counter == null) {
+            counter = publications.computeIfAbsent(messageType, type -> new LongAdder());
+        }
+        counter.increment();
+    }
+
+    @Override
+    public HandlerMetrics handlerMetrics(MessageHandler handler) {
+        return handlers.computeIfAbsent(handler, h -> new HandlerMetrics());
+    }
+
+    @Override
+    public void publicationQueued(int queueDepth) {
+        this.queueDepth = queueDepth;
+        maxQueueDepth.accumulate(queueDepth);
+    }
+
+    @Override
+    public void publicationDequeued(long waitTime, int queueDepth) {
+        this.queueDepth = queueDepth;
+        queueWaitTime.record(waitTime);
+    }
+
+    @Override
+    public void asyncHandlerStarted(MessageHandler handler, long waitTime) {
+        executorWaitTime.record(waitTime);
+    }
+
+    @Override
+    public void deadMessage(Object message) {
+        deadMessages.increment();
+    }
+
+    @Override
+    public void filteredMessage(Object message) {
+        filteredMessages.increment();
+    }
+
+    @Override
+    public void messageDropped(Object message) {
+        droppedMessages.increment();
+    }
+
+    public long getPublicationCount(Class<?> messageType) {
+        LongAdder counter = publications.get(messageType);
+        return counter == null ? 0 : counter.sum();
+    }
+
+    /**
+     * @return A snapshot of the number of publications per message type
+     */
+    public Map<Class<?>, Long> getPublicationCounts() {
+        Map<Class<?>, Long> counts = new HashMap<Class<?>, Long>();
+        for (Map.Entry<Class<?>, LongAdder> entry : publications.entrySet()) {
+            counts.put(entry.getKey(), entry.getValue().sum());
+        }
+        return counts;
+    }
+
+    /**
+     * @return All message handlers that have been subscribed so far
+     */
+    public Set<MessageHandler> getHandlers() {
+        return Collections.unmodifiableSet(handlers.keySet());
+    }
+
+    /**
+     * @return The metrics of the given handler or null if the handler is unknown
+     */
+    public HandlerMetrics getHandlerMetrics(MessageHandler handler) {
+        return handlers.get(handler);
+    }
+
+    public LatencyHistogram getQueueWaitTime() {
+        return queueWaitTime;
+    }
+
+    public LatencyHistogram getExecutorWaitTime() {
+        return executorWaitTime;
+    }
+
+    /**
+     * @return The number of pending asynchronous publications as observed by the last queue operation
+     */
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+
+    public long getMaxQueueDepth() {
+        return maxQueueDepth.get();
+    }
+
+    public long getDeadMessageCount() {
+        return deadMessages.sum();
+    }
+
+    public long getFilteredMessageCount() {
+        return filteredMessages.sum();
+    }
+
+    public long getDroppedMessageCount() {
+        return droppedMessages.sum();
+    }
+
+    public static class HandlerMetrics implements IHandlerMetrics {
+
+        private final LatencyHistogram dispatchLatency = new LatencyHistogram();
+
+        private final LatencyHistogram executionTime = new LatencyHistogram();
+
+        @Override
+        public void invoked(long dispatchLatency, long executionTime) {
+            this.dispatchLatency.record(dispatchLatency);
+            this.executionTime.record(executionTime);
+        }
+
+        public LatencyHistogram getDispatchLatency() {
+            return dispatchLatency;
+        }
+
+        public LatencyHistogram getExecutionTime() {
+            return executionTime;
+        }
+
+        public long getInvocationCount() {
+            return executionTime.getCount();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package net.engio.mbassy.bus.metrics;
+
+import net.engio.mbassy.listener.MessageHandler;
+
+/**
+ * A metrics collector is notified by the bus about publications, handler invocations and the state of the
+ * asynchronous dispatch queue. It is configured with {@link net.engio.mbassy.bus.config.Feature.Metrics}.
+ * If no collector is configured, the bus does not take any measurements.
+ * <p/>
+ * All callbacks are invoked from the publishing, dispatching or handler threads and must be thread-safe and fast.
+ * All times are measured in nanoseconds using {@link System#nanoTime()}.
+ *
+ * @see BusMetrics
+ */
+public interface IMetricsCollector {
+
+    /**
+     * A message of the given type is published (synchronously, asynchronously or as part of a batch)
+     */
+    void messagePublished(Class<?> messageType);
+
+    /**
+     * Called once for each message handler when its subscription is created. The returned metrics receive the
+     * timings of all invocations of that handler.
+     */
+    IHandlerMetrics handlerMetrics(MessageHandler handler);
+
+    /**
+     * A publication was added to the queue of pending asynchronous publications
+     *
+     * @param queueDepth The number of pending publications after the publication was added
+     */
+    void publicationQueued(int queueDepth);
+
+    /**
+     * A dispatcher took a publication from the queue of pending asynchronous publications
+     *
+     * @param waitTime The time between creation and dispatch of the publication or -1 if unknown
+     * @param queueDepth The number of pending publications after the publication was taken
+     */
+    void publicationDequeued(long waitTime, int queueDepth);
+
+    /**
+     * An asynchronous handler invocation started running in the executor for asynchronous handlers.
+     *
+     * @param waitTime The time the invocation waited in the executor for a free thread
+     */
+    void asyncHandlerStarted(MessageHandler handler, long waitTime);
+
+    /**
+     * A message did not match any handler and is published as {@link net.engio.mbassy.bus.common.DeadMessage}
+     */
+    void deadMessage(Object message);
+
+    /**
+     * A message was rejected by the filters of all matching handlers and is published as
+     * {@link net.engio.mbassy.bus.common.FilteredMessage}
+     */
+    void filteredMessage(Object message);
+
+    /**
+     * An asynchronous publication of the message was dropped because the queue of pending publications was full
+     * (see {@link net.engio.mbassy.bus.config.BackpressurePolicy})
+     */
+    void messageDropped(Object message);
+
+    /**
+     * Receives the timings of a single message handler
+     */
+    interface IHandlerMetrics {
+
+        /**
+         * @param dispatchLatency The time between the creation of the publication and the start of the handler
+         *                        invocation or -1 if unknown
+         * @param executionTime The time the handler took to process the message
+         */
+        void invoked(long dispatchLatency, long executionTime);
+    }
+}
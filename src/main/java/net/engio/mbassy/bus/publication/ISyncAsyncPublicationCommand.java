@@ -10,6 +10,17 @@ import java.util.concurrent.TimeUnit;
 */
 public interface ISyncAsyncPublicationCommand extends IPublicationCommand {
 
+    /**
+     * Let the publication expire after the given time. Asynchronous handler invocations and the asynchronous
+     * dispatch of the publication that did not start until then are skipped.
+     * The default implementation does not support deadlines and throws an {@link UnsupportedOperationException}.
+     *
+     * @return A reference to <code>this</code> command
+     */
+    default ISyncAsyncPublicationCommand expireAfter(long timeout, TimeUnit unit) {
+        throw new UnsupportedOperationException("Deadlines are not supported by " + getClass().getName());
+    }
+
     /**
      * Execute the message publication asynchronously. The behaviour of this method depends on the
      * configured queuing strategy:
@@ -15,24 +15,38 @@ public class SyncAsyncPostCommand<T> implements ISyncAsyncPublicationCommand {
 
     private T message;
     private MBassador<T> mBassador;
+    // negative if the publication does not expire
+    private long expireAfterInNanos = -1;
 
     public SyncAsyncPostCommand(MBassador<T> mBassador, T message) {
         this.mBassador = mBassador;
         this.message = message;
     }
 
+    @Override
+    public SyncAsyncPostCommand<T> expireAfter(long timeout, TimeUnit unit) {
+        expireAfterInNanos = unit.toNanos(timeout);
+        return this;
+    }
+
     @Override
     public IMessagePublication now() {
-        return mBassador.publish(message);
+        return expireAfterInNanos < 0
+                ? mBassador.publish(message)
+                : mBassador.publishExpiring(message, expireAfterInNanos, TimeUnit.NANOSECONDS);
     }
 
     @Override
     public IMessagePublication asynchronously() {
-        return mBassador.publishAsync(message);
+        return expireAfterInNanos < 0
+                ? mBassador.publishAsync(message)
+                : mBassador.publishAsyncExpiring(message, expireAfterInNanos, TimeUnit.NANOSECONDS);
     }
 
     @Override
     public IMessagePublication asynchronously(long timeout, TimeUnit unit) {
-        return mBassador.publishAsync(message, timeout, unit);
+        return expireAfterInNanos < 0
+                ? mBassador.publishAsync(message, timeout, unit)
+                : mBassador.publishAsyncExpiring(message, expireAfterInNanos, unit.toNanos(timeout), TimeUnit.NANOSECONDS);
     }
 }
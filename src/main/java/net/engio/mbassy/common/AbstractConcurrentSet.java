@@ -110,24 +110,32 @@ public abstract class AbstractConcurrentSet<T> implements Set<T> {
             Lock writeLock = lock.writeLock();
             try {
                 writeLock.lock();
-                ISetEntry<T> listelement = entries.get(element);
-                if (listelement == null) {
-                    return false; //removed by other thread in the meantime
-                }
-                if (listelement != head) {
-                    listelement.remove();
-                } else {
-                    head = head.next();
-                    //oldHead.clear(); // optimize for GC not possible because of potentially running iterators
-                }
-                entries.remove(element);
+                return delete(element); // might have been removed by other thread in the meantime
             } finally {
                 writeLock.unlock();
             }
-            return true;
         }
     }
 
+    /**
+     * Removes an element from the set.
+     * Note: This method is expected to be synchronized by the calling code
+     */
+    private boolean delete(Object element) {
+        ISetEntry<T> listelement = entries.get(element);
+        if (listelement == null) {
+            return false;
+        }
+        if (listelement != head) {
+            listelement.remove();
+        } else {
+            head = head.next();
+            //oldHead.clear(); // optimize for GC not possible because of potentially running iterators
+        }
+        entries.remove(element);
+        return true;
+    }
+
     @Override
     public Object[] toArray() {
         return this.entries.entrySet().toArray();
@@ -145,8 +153,20 @@ public abstract class AbstractConcurrentSet<T> implements Set<T> {
     }
 
     @Override
-    public boolean removeAll(Collection<?> c) {
-        throw new UnsupportedOperationException("Not implemented");
+    public boolean removeAll(Collection<?> elements) {
+        boolean changed = false;
+        Lock writeLock = lock.writeLock();
+        try {
+            writeLock.lock();
+            for (Object element : elements) {
+                if (element != null) {
+                    changed |= delete(element);
+                }
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        return changed;
     }
 
     @Override
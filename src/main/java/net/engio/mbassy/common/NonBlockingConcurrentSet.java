@@ -0,0 +1,250 @@
+package net.engio.mbassy.common;
+
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A concurrent set that never blocks readers. In contrast to {@link AbstractConcurrentSet} it does not use a
+ * set-wide read/write lock. Elements are kept in a {@link ConcurrentHashMap} such that
+ * <ul>
+ *     <li>iteration and {@link #contains(Object)} are lock-free and never wait for a concurrent add or remove</li>
+ *     <li>add and remove only contend with concurrent modifications of the same hash bin</li>
+ * </ul>
+ * Iterators are weakly consistent: They never throw {@link ConcurrentModificationException} and a removed element
+ * that has not yet been reached by the iterator will not appear in that iterator anymore.
+ * <p/>
+ * Elements can be referenced strongly or weakly. Weakly referenced elements that have been garbage collected are
+ * skipped by iterators and expunged from the set by subsequent modifications (add, remove, size), never by iteration.
+ */
+public class NonBlockingConcurrentSet<T> implements Set<T> {
+
+    // Internal state
+    // strongly referenced elements are used as keys directly, weakly referenced elements are wrapped in a WeakKey
+    private final ConcurrentHashMap<Object, Boolean> entries = new ConcurrentHashMap<Object, Boolean>();
+
+    private final boolean weak;
+
+    // garbage collected weak keys are enqueued here, unused for strong references
+    private final ReferenceQueue<Object> collected;
+
+    protected NonBlockingConcurrentSet(boolean weakReferences) {
+        this.weak = weakReferences;
+        this.collected = weakReferences ? new ReferenceQueue<Object>() : null;
+    }
+
+    /**
+     * Create a set that references its elements strongly.
+     */
+    public static <T> NonBlockingConcurrentSet<T> strong() {
+        return new NonBlockingConcurrentSet<T>(false);
+    }
+
+    /**
+     * Create a set that references its elements weakly.
+     */
+    public static <T> NonBlockingConcurrentSet<T> weak() {
+        return new NonBlockingConcurrentSet<T>(true);
+    }
+
+    @Override
+    public boolean add(T element) {
+        if (element == null) return false;
+        expungeCollected();
+        return entries.putIfAbsent(weak ? new WeakKey<Object>(element, collected) : element, Boolean.TRUE) == null;
+    }
+
+    @Override
+    public boolean contains(Object element) {
+        if (element == null) return false;
+        return entries.containsKey(weak ? new LookupKey(element) : element);
+    }
+
+    @Override
+    public boolean remove(Object element) {
+        if (element == null) return false;
+        expungeCollected();
+        return entries.remove(weak ? new LookupKey(element) : element) != null;
+    }
+
+    // remove all entries whose referents have been garbage collected
+    private void expungeCollected() {
+        if (!weak) return;
+        Object stale;
+        while ((stale = collected.poll()) != null) {
+            entries.remove(stale);
+        }
+    }
+
+    @Override
+    public int size() {
+        expungeCollected();
+        return entries.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends T> elements) {
+        boolean changed = false;
+        for (T element : elements) {
+            changed |= add(element);
+        }
+        return changed;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<T>() {
+
+            private final Iterator<Object> keys = entries.keySet().iterator();
+
+            // the next element to be returned, resolved ahead such that collected elements can be skipped
+            private T current = advance();
+
+            private T advance() {
+                while (keys.hasNext()) {
+                    Object key = keys.next();
+                    T value = weak ? ((WeakKey<T>) key).get() : (T) key;
+                    if (value != null) {
+                        return value;
+                    }
+                }
+                return null;
+            }
+
+            public boolean hasNext() {
+                return current != null;
+            }
+
+            public T next() {
+                if (current == null) {
+                    return null;
+                }
+                T value = current;
+                current = advance();
+                return value;
+            }
+
+            public void remove() {
+                if (current == null) {
+                    return;
+                }
+                T removed = current;
+                current = advance();
+                NonBlockingConcurrentSet.this.remove(removed);
+            }
+        };
+    }
+
+    @Override
+    public Object[] toArray() {
+        List<T> elements = new ArrayList<T>();
+        for (T element : this) {
+            elements.add(element);
+        }
+        return elements.toArray();
+    }
+
+    @SuppressWarnings("hiding")
+    @Override
+    public <T> T[] toArray(T[] a) {
+        List<Object> elements = new ArrayList<Object>();
+        for (Object element : this) {
+            elements.add(element);
+        }
+        return elements.toArray(a);
+    }
+
+    @Override
+    public boolean containsAll(Collection<?> c) {
+        throw new UnsupportedOperationException("Not implemented");
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> elements) {
+        boolean changed = false;
+        for (Object element : elements) {
+            changed |= remove(element);
+        }
+        return changed;
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> c) {
+        throw new UnsupportedOperationException("Not implemented");
+    }
+
+    @Override
+    public void clear() {
+        entries.clear();
+    }
+
+    // Keys of weakly referenced elements use equality of their referents. A collected key is only equal to itself
+    // such that it can still be removed after it has been enqueued
+    private interface Key {
+        Object referent();
+    }
+
+    private static final class WeakKey<T> extends WeakReference<T> implements Key {
+
+        private final int hash;
+
+        private WeakKey(T referent, ReferenceQueue<Object> queue) {
+            super(referent, (ReferenceQueue) queue);
+            this.hash = referent.hashCode();
+        }
+
+        @Override
+        public Object referent() {
+            return get();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return this == other || referentEquals(this, other);
+        }
+    }
+
+    // used to look up weak keys without allocating a weak reference
+    private static final class LookupKey implements Key {
+
+        private final Object referent;
+
+        private LookupKey(Object referent) {
+            this.referent = referent;
+        }
+
+        @Override
+        public Object referent() {
+            return referent;
+        }
+
+        @Override
+        public int hashCode() {
+            return referent.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return this == other || referentEquals(this, other);
+        }
+    }
+
+    private static boolean referentEquals(Key key, Object other) {
+        if (!(other instanceof Key)) return false;
+        Object referent = key.referent();
+        Object otherReferent = ((Key) other).referent();
+        return referent != null && otherReferent != null && (referent == otherReferent || referent.equals(otherReferent));
+    }
+}
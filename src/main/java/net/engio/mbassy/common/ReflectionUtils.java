@@ -6,7 +6,11 @@ import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
 /**
  * @author bennidi
@@ -15,6 +19,33 @@ import java.util.Set;
  */
 public class ReflectionUtils
 {
+    // marks annotation types that are not (meta-)annotated with a given annotation type
+    private static final Object NotAnnotated = new Object();
+
+    // the meta-annotations of each annotation type by the type of the meta-annotation, resolved on first lookup
+    private static final ClassValue<Map<Class<?>, Object>> MetaAnnotations = new ClassValue<Map<Class<?>, Object>>() {
+        @Override
+        protected Map<Class<?>, Object> computeValue(Class<?> annotationType) {
+            return new ConcurrentHashMap<Class<?>, Object>();
+        }
+    };
+
+    // the super types of each class, see getSuperTypeHierarchy(Class)
+    private static final ClassValue<Class[]> SuperTypes = new ClassValue<Class[]>() {
+        @Override
+        protected Class[] computeValue(Class<?> type) {
+            Class from = type;
+            LinkedHashSet<Class> superTypes = new LinkedHashSet<Class>();
+            collectDistinctInterfaces( from, superTypes );
+            while ( !from.equals( Object.class ) && !from.isInterface() ) {
+                superTypes.add( from.getSuperclass() );
+                from = from.getSuperclass();
+                collectDistinctInterfaces( from, superTypes );
+            }
+            return superTypes.toArray(new Class[superTypes.size()]);
+        }
+    };
+
     public static Method[] getMethods(IPredicate<Method> condition, Class<?> target) {
         ArrayList<Method> methods = new ArrayList<Method>();
 
@@ -33,7 +64,7 @@ public class ReflectionUtils
                 }
             }
 
-            for (Class superType : getSuperTypes(target)) {
+            for (Class superType : getSuperTypeHierarchy(target)) {
                 if (superType.equals(Object.class)) {
                     continue;
                 }
@@ -79,18 +110,21 @@ public class ReflectionUtils
      * @return A set of classes, each representing a super type of the root class
      */
     public static Class[] getSuperTypes(Class from) {
-        ArrayList<Class> superclasses = new ArrayList<Class>();
-
-        collectInterfaces( from, superclasses );
-        while ( !from.equals( Object.class ) && !from.isInterface() ) {
-            superclasses.add( from.getSuperclass() );
-            from = from.getSuperclass();
-            collectInterfaces( from, superclasses );
-        }
+        return getSuperTypeHierarchy(from).clone();
+    }
 
-        final Class[] classes = new Class[superclasses.size()];
-        superclasses.toArray(classes);
-        return classes;
+    /**
+     * Get all directly and indirectly related super types (classes and interfaces) of a given class.
+     * Each super type is contained once, even if it is reachable via multiple paths (e.g. an interface that is
+     * implemented by a class and its super class). The super types are ordered depth first: the interfaces
+     * of a class come before its super class, each interface comes before the interfaces it extends.
+     * The hierarchy is computed once per class, the returned array is shared and must not be modified.
+     *
+     * @param from The root class to start with
+     * @return An immutable array of all super types of the root class
+     */
+    public static Class[] getSuperTypeHierarchy(Class from) {
+        return SuperTypes.get(from);
     }
 
     public static void collectInterfaces( Class from, Collection<Class> accumulator ) {
@@ -100,6 +134,15 @@ public class ReflectionUtils
         }
     }
 
+    // the super interfaces of an interface that has been collected already have been collected as well
+    private static void collectDistinctInterfaces( Class from, Set<Class> accumulator ) {
+        for ( Class intface : from.getInterfaces() ) {
+            if ( accumulator.add( intface ) ) {
+                collectDistinctInterfaces( intface, accumulator );
+            }
+        }
+    }
+
     public static boolean containsOverridingMethod( final Method[] allMethods, final Method methodToCheck ) {
         final int length = allMethods.length;
         Method method;
@@ -138,7 +181,26 @@ public class ReflectionUtils
     }
 
     public static <A extends Annotation> A getAnnotation( AnnotatedElement from, Class<A> annotationType){
-       return getAnnotation(from, annotationType, new HashSet<AnnotatedElement>());
+        A ann = from.getAnnotation( annotationType );
+        if( ann != null) return ann;
+        for ( Annotation metaAnn : from.getAnnotations() ) {
+            ann = getMetaAnnotation(metaAnn.annotationType(), annotationType);
+            if ( ann != null ) {
+                return ann;
+            }
+        }
+        return null;
+    }
+
+    // annotation types are immutable, thus the result of the search is cached per annotation type
+    private static <A extends Annotation> A getMetaAnnotation( Class<? extends Annotation> from, Class<A> annotationType){
+        Map<Class<?>, Object> cached = MetaAnnotations.get(from);
+        Object ann = cached.get(annotationType);
+        if (ann == null) {
+            ann = getAnnotation(from, annotationType, new HashSet<AnnotatedElement>());
+            cached.put(annotationType, ann != null ? ann : NotAnnotated);
+        }
+        return ann != NotAnnotated ? annotationType.cast(ann) : null;
     }
 
     private static boolean isOverriddenBy( Method superclassMethod, Method subclassMethod ) {
@@ -176,9 +238,31 @@ public class ReflectionUtils
      * @param target The class whose interfaces to scan
      * @return Array of methods from interfaces matching the condition
      */
-    public static Method[] getInterfaceMethods(IPredicate<Method> condition, Class<?> target) {
+    public static Method[] getInterfaceMethods(final IPredicate<Method> condition, Class<?> target) {
+        return getInterfaceMethods(new Function<Class<?>, Method[]>() {
+            @Override
+            public Method[] apply(Class<?> iface) {
+                ArrayList<Method> matching = new ArrayList<Method>();
+                for (Method method : iface.getDeclaredMethods()) {
+                    if (condition.apply(method)) {
+                        matching.add(method);
+                    }
+                }
+                return matching.toArray(new Method[matching.size()]);
+            }
+        }, target);
+    }
+
+    /**
+     * Collects the methods of all interfaces in the same order as {@link #getInterfaceMethods(IPredicate, Class)}.
+     *
+     * @param declaredMethods Provides the relevant methods declared by a single interface, e.g. from a cache
+     * @param target The class whose interfaces to scan
+     * @return Array of methods from interfaces provided by declaredMethods
+     */
+    public static Method[] getInterfaceMethods(Function<Class<?>, Method[]> declaredMethods, Class<?> target) {
         ArrayList<Method> methods = new ArrayList<Method>();
-        collectInterfaceMethods(condition, target, methods, new HashSet<Class<?>>());
+        collectInterfaceMethods(declaredMethods, target, methods, new HashSet<Class<?>>());
 
         Method[] array = new Method[methods.size()];
         methods.toArray(array);
@@ -189,7 +273,7 @@ public class ReflectionUtils
      * Recursively collects methods from interfaces.
      * Uses visited set to avoid processing the same interface twice (diamond problem).
      */
-    private static void collectInterfaceMethods(IPredicate<Method> condition, Class<?> target,
+    private static void collectInterfaceMethods(Function<Class<?>, Method[]> declaredMethods, Class<?> target,
                                                  ArrayList<Method> methods, Set<Class<?>> visited) {
         if (target == null || target.equals(Object.class)) {
             return;
@@ -199,7 +283,7 @@ public class ReflectionUtils
         if (!target.isInterface()) {
             Class<?> superclass = target.getSuperclass();
             if (superclass != null && !superclass.equals(Object.class)) {
-                collectInterfaceMethods(condition, superclass, methods, visited);
+                collectInterfaceMethods(declaredMethods, superclass, methods, visited);
             }
         }
 
@@ -211,14 +295,12 @@ public class ReflectionUtils
                 visited.add(iface);
 
                 // Recursively collect from parent interfaces first
-                collectInterfaceMethods(condition, iface, methods, visited);
+                collectInterfaceMethods(declaredMethods, iface, methods, visited);
 
                 // Then collect from this interface
                 try {
-                    for (Method method : iface.getDeclaredMethods()) {
-                        if (condition.apply(method)) {
-                            methods.add(method);
-                        }
+                    for (Method method : declaredMethods.apply(iface)) {
+                        methods.add(method);
                     }
                 } catch (Exception e) {
                     // Ignore exceptions during method collection
@@ -0,0 +1,358 @@
+package net.engio.mbassy.common;
+
+import java.util.AbstractQueue;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A bounded, preallocated multi-producer/multi-consumer queue backed by a ring buffer.
+ * Producers and consumers claim slots by advancing a shared sequence with a CAS. Each slot carries its own
+ * sequence number which tells whether the slot is ready to be written or ready to be read, so no node objects
+ * are allocated and no lock is taken on the fast path.
+ *
+ * Consumers can claim a range of published slots at once using {@link #drainTo(java.util.Collection, int)}.
+ *
+ * Producers that find the buffer full and consumers that find it empty wait according to the configured
+ * {@link WaitStrategy}.
+ *
+ * The iterator is weakly consistent and does not support removal.
+ */
+public class RingBufferQueue<T> extends AbstractQueue<T> implements BlockingQueue<T> {
+
+    /**
+     * Defines how a thread waits for a slot to become available.
+     */
+    public enum WaitStrategy {
+        // spin on the CPU, lowest latency but burns a core per waiting thread
+        BusySpin,
+        // yield the CPU between attempts
+        Yield,
+        // park for a short amount of time between attempts
+        Park,
+        // block on a condition until signalled by the other side
+        Block
+    }
+
+    private static final long PARK_NANOS = 1000L;
+
+    private final Object[] buffer;
+    // the sequence number of each slot: slot i is free for sequence s if sequences[i] == s
+    // and holds the element of sequence s if sequences[i] == s + 1
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final int capacity;
+
+    // next sequence to be claimed by a producer
+    private final AtomicLong tail = new AtomicLong(0);
+    // next sequence to be claimed by a consumer
+    private final AtomicLong head = new AtomicLong(0);
+
+    private final WaitStrategy waitStrategy;
+
+    // only used by WaitStrategy.Block
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final AtomicInteger waitingConsumers = new AtomicInteger(0);
+    private final AtomicInteger waitingProducers = new AtomicInteger(0);
+
+    /**
+     * Create a new queue. The capacity is rounded up to the next power of two, but is at least 2.
+     */
+    public RingBufferQueue(int capacity, WaitStrategy waitStrategy) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Capacity must be between 1 and 2^30 but was " + capacity);
+        }
+        if (waitStrategy == null) {
+            throw new IllegalArgumentException("Wait strategy must not be null");
+        }
+        // with a single slot a full and an empty slot would carry the same sequence number
+        this.capacity = capacity <= 2 ? 2 : Integer.highestOneBit(capacity - 1) << 1;
+        this.mask = this.capacity - 1;
+        this.buffer = new Object[this.capacity];
+        this.sequences = new AtomicLongArray(this.capacity);
+        for (int i = 0; i < this.capacity; i++) {
+            sequences.set(i, i);
+        }
+        this.waitStrategy = waitStrategy;
+    }
+
+    public RingBufferQueue(int capacity) {
+        this(capacity, WaitStrategy.Block);
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public WaitStrategy getWaitStrategy() {
+        return waitStrategy;
+    }
+
+    @Override
+    public boolean offer(T element) {
+        if (element == null) {
+            throw new NullPointerException();
+        }
+        while (true) {
+            long position = tail.get();
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    buffer[index] = element;
+                    sequences.set(index, position + 1);
+                    signal(waitingConsumers, notEmpty);
+                    return true;
+                }
+            } else if (difference < 0) {
+                // the slot still holds the element of the previous round
+                return false;
+            }
+            // another producer claimed the slot, try the next one
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T poll() {
+        while (true) {
+            long position = head.get();
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - (position + 1);
+            if (difference == 0) {
+                if (head.compareAndSet(position, position + 1)) {
+                    return release(index, position);
+                }
+            } else if (difference < 0) {
+                // nothing published yet
+                return null;
+            }
+            // another consumer claimed the slot, try the next one
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T peek() {
+        long position = head.get();
+        int index = (int) position & mask;
+        return sequences.get(index) == position + 1 ? (T) buffer[index] : null;
+    }
+
+    @Override
+    public void put(T element) throws InterruptedException {
+        while (!offer(element)) {
+            await(waitingProducers, notFull, false, false, 0);
+        }
+    }
+
+    @Override
+    public boolean offer(T element, long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (!offer(element)) {
+            if (!await(waitingProducers, notFull, false, true, deadline)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public T take() throws InterruptedException {
+        T element;
+        while ((element = poll()) == null) {
+            await(waitingConsumers, notEmpty, true, false, 0);
+        }
+        return element;
+    }
+
+    @Override
+    public T poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        T element;
+        while ((element = poll()) == null) {
+            if (!await(waitingConsumers, notEmpty, true, true, deadline)) {
+                return null;
+            }
+        }
+        return element;
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return capacity - size();
+    }
+
+    @Override
+    public int drainTo(Collection<? super T> target) {
+        return drainTo(target, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Claim up to maxElements published elements with a single CAS and add them to the target collection.
+     */
+    @Override
+    public int drainTo(Collection<? super T> target, int maxElements) {
+        if (target == null) {
+            throw new NullPointerException();
+        }
+        if (target == this) {
+            throw new IllegalArgumentException();
+        }
+        int limit = Math.min(maxElements, capacity);
+        while (limit > 0) {
+            long position = head.get();
+            int available = 0;
+            while (available < limit
+                    && sequences.get((int) (position + available) & mask) == position + available + 1) {
+                available++;
+            }
+            if (available == 0) {
+                return 0;
+            }
+            if (head.compareAndSet(position, position + available)) {
+                for (int i = 0; i < available; i++) {
+                    target.add(release((int) (position + i) & mask, position + i));
+                }
+                return available;
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public int size() {
+        long consumed = head.get();
+        long size = tail.get() - consumed;
+        return (int) Math.max(0, Math.min(size, capacity));
+    }
+
+    @Override
+    public boolean isEmpty() {
+        long position = head.get();
+        return sequences.get((int) position & mask) != position + 1;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<T>() {
+
+            private long position = head.get();
+            private T next = advance();
+
+            @SuppressWarnings("unchecked")
+            private T advance() {
+                long limit = tail.get();
+                while (position < limit) {
+                    int index = (int) position & mask;
+                    Object element = buffer[index];
+                    boolean published = sequences.get(index) == position + 1;
+                    position++;
+                    if (published && element != null) {
+                        return (T) element;
+                    }
+                }
+                return null;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public T next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                T current = next;
+                next = advance();
+                return current;
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private T release(int index, long position) {
+        T element = (T) buffer[index];
+        buffer[index] = null;
+        // free the slot for the producer of the next round
+        sequences.set(index, position + capacity);
+        signal(waitingProducers, notFull);
+        return element;
+    }
+
+    private void signal(AtomicInteger waiters, Condition condition) {
+        if (waitStrategy == WaitStrategy.Block && waiters.get() > 0) {
+            lock.lock();
+            try {
+                condition.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Wait until the other side made progress or the deadline of a timed wait has passed.
+     *
+     * @return false if the deadline has passed
+     */
+    private boolean await(AtomicInteger waiters, Condition condition, boolean forConsumer, boolean timed, long deadline) throws InterruptedException {
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        long remaining = !timed ? Long.MAX_VALUE : deadline - System.nanoTime();
+        if (remaining <= 0) {
+            return false;
+        }
+        switch (waitStrategy) {
+            case BusySpin:
+                Thread.onSpinWait();
+                break;
+            case Yield:
+                Thread.yield();
+                break;
+            case Park:
+                LockSupport.parkNanos(this, Math.min(PARK_NANOS, remaining));
+                break;
+            case Block:
+                lock.lockInterruptibly();
+                try {
+                    // register before re-checking so that the other side either sees the waiter or we see its progress
+                    waiters.incrementAndGet();
+                    try {
+                        if (forConsumer ? isEmpty() : isFull()) {
+                            if (!timed) {
+                                condition.await();
+                            } else {
+                                condition.awaitNanos(remaining);
+                            }
+                        }
+                    } finally {
+                        waiters.decrementAndGet();
+                    }
+                } finally {
+                    lock.unlock();
+                }
+                break;
+        }
+        return true;
+    }
+
+    private boolean isFull() {
+        long position = tail.get();
+        return sequences.get((int) position & mask) != position;
+    }
+
+}
@@ -1,14 +1,32 @@
 package net.engio.mbassy.common;
 
 
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
 import java.lang.ref.WeakReference;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
-import java.util.WeakHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.locks.Lock;
 
 /**
- * This implementation uses weak references to the elements. Iterators automatically perform cleanups of
- * garbage collected objects during iteration -> no dedicated maintenance operations need to be called or run in background.
+ * This implementation uses weak references to the elements. Garbage collected elements are reclaimed by a single
+ * background thread that is notified via a {@link ReferenceQueue}. It unlinks the orphaned entries of a set in batches
+ * -> no dedicated maintenance operations need to be called and iterators never block on cleanups.
+ * Iterators simply skip orphaned entries that have not been reclaimed yet. Since those entries are still counted,
+ * the {@link #size()} of the set is only eventually consistent with the collected elements.
+ * <p/>
+ * The reclaimer thread is started when the first element is added to a weak set. It is created with a
+ * <code>null</code> context class loader and runs until {@link #shutdownReclaimer()} is called, e.g. by a container
+ * that unloads the application. The thread is started again when another element is added after the shutdown
+ * or after it has been ended by an {@link Error}. The orphans that were enqueued in the meantime are reclaimed then.
  * <p/>
  * <p/>
  * <p/>
@@ -18,9 +36,15 @@ import java.util.concurrent.locks.Lock;
  */
 public class WeakConcurrentSet<T> extends AbstractConcurrentSet<T>{
 
+    private final WeakKeyMap<T> entries;
 
     public WeakConcurrentSet() {
-        super(new WeakHashMap<T, ISetEntry<T>>());
+        this(new WeakKeyMap<T>());
+    }
+
+    private WeakConcurrentSet(WeakKeyMap<T> entries) {
+        super(entries);
+        this.entries = entries;
     }
 
     public Iterator<T> iterator() {
@@ -30,52 +54,29 @@ public class WeakConcurrentSet<T> extends AbstractConcurrentSet<T>{
             // used to keep track of the iteration process
             private ISetEntry<T> current = head;
 
-            // this method will remove all orphaned entries
-            // until it finds the first entry whose value has not yet been garbage collected
-            // the method assumes that the current element is already orphaned and will remove it
-            private void removeOrphans(){
-                Lock writelock = lock.writeLock();
-                try{
-                    writelock.lock();
-                    do {
-                        ISetEntry orphaned = current;
-                        current = current.next();
-                        if (orphaned  == head) {
-                            head = head.next();
-                        }
-                        orphaned.remove();
-                    } while(current != null && current.getValue() == null);
-                }
-                finally {
-                    writelock.unlock();
+            // skip all orphaned entries until the first entry whose value has not yet been garbage collected
+            // the value is returned such that it can not be collected before next() is called
+            private T skipOrphans(){
+                while (current != null) {
+                    T value = current.getValue();
+                    if (value != null) {
+                        return value;
+                    }
+                    current = current.next();
                 }
+                return null;
             }
 
-
             public boolean hasNext() {
-                if (current == null) return false;
-                if (current.getValue() == null) {
-                // trigger removal of orphan references
-                // because a null value indicates that the value has been garbage collected
-                    removeOrphans();
-                    return current != null; // if any entry is left then it will have a value
-                } else {
-                    return true;
-                }
+                return skipOrphans() != null;
             }
 
             public T next() {
-                if (current == null) {
-                    return null;
-                }
-                T value = current.getValue();
-                if (value == null) {    // auto-removal of orphan references
-                    removeOrphans();
-                    return next();
-                } else {
+                T value = skipOrphans();
+                if (value != null) {
                     current = current.next();
-                    return value;
                 }
+                return value;
             }
 
             public void remove() {
@@ -90,24 +91,53 @@ public class WeakConcurrentSet<T> extends AbstractConcurrentSet<T>{
         };
     }
 
+    /**
+     * Stop the background thread that reclaims the orphaned entries of all weak sets, such that it does not pin
+     * the class loader of MBassador. It is started again as soon as an element is added to any weak set.
+     */
+    public static void shutdownReclaimer() {
+        Reclaimer.shutdown();
+    }
+
     @Override
     protected Entry<T> createEntry(T value, Entry<T> next) {
-        return next != null ? new WeakEntry<T>(value, next) : new WeakEntry<T>(value);
+        Reclaimer.ensureRunning();
+        return next != null ? new WeakEntry<T>(value, next, this) : new WeakEntry<T>(value, this);
+    }
+
+    // unlink the entries of all given references that have not been removed explicitly in the meantime
+    private void reclaim(List<ElementReference<T>> orphans) {
+        Lock writeLock = lock.writeLock();
+        try {
+            writeLock.lock();
+            for (ElementReference<T> orphan : orphans) {
+                if (!entries.removeReference(orphan)) {
+                    continue;
+                }
+                if (orphan.entry != head) {
+                    orphan.entry.remove();
+                } else {
+                    head = head.next();
+                }
+            }
+        } finally {
+            writeLock.unlock();
+        }
     }
 
 
     public static class WeakEntry<T> extends Entry<T> {
 
-        private WeakReference<T> value;
+        private final ElementReference<T> value;
 
-        private WeakEntry(T value, Entry<T> next) {
+        private WeakEntry(T value, Entry<T> next, WeakConcurrentSet<T> set) {
             super(next);
-            this.value = new WeakReference<T>(value);
+            this.value = new ElementReference<T>(value, this, set);
         }
 
-        private WeakEntry(T value) {
+        private WeakEntry(T value, WeakConcurrentSet<T> set) {
             super();
-            this.value = new WeakReference<T>(value);
+            this.value = new ElementReference<T>(value, this, set);
         }
 
         @Override
@@ -118,5 +148,211 @@ public class WeakConcurrentSet<T> extends AbstractConcurrentSet<T>{
 
 
 
+    }
+
+    /**
+     * The weak reference to an element. It is used as the key of the element in the entry map and
+     * enqueued for reclamation when the element has been garbage collected.
+     */
+    private static final class ElementReference<T> extends WeakReference<T> {
+
+        // the hash code of the element is retained such that the reference can be found after the element is gone
+        private final int hash;
+
+        private final WeakEntry<T> entry;
+
+        private final WeakConcurrentSet<T> set;
+
+        private ElementReference(T element, WeakEntry<T> entry, WeakConcurrentSet<T> set) {
+            super(element, Reclaimer.Orphans);
+            this.hash = element.hashCode();
+            this.entry = entry;
+            this.set = set;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        // references are equal if they refer to equal elements, the references of collected elements are only equal to themselves
+        @Override
+        public boolean equals(Object other) {
+            if (other == this) {
+                return true;
+            }
+            if (!(other instanceof ElementReference)) {
+                return false;
+            }
+            Object element = get();
+            return element != null && element.equals(((ElementReference) other).get());
+        }
+    }
+
+    // used to look up the reference of an element in the entry map
+    private static final class Lookup {
+
+        private final Object element;
+
+        private Lookup(Object element) {
+            this.element = element;
+        }
+
+        @Override
+        public int hashCode() {
+            return element.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof ElementReference && element.equals(((ElementReference) other).get());
+        }
+    }
+
+    /**
+     * Maps the elements to their entries while referencing the elements weakly. In contrast to a {@link java.util.WeakHashMap}
+     * the map never expunges collected elements by itself, it is done by the {@link Reclaimer}.
+     * <p/>
+     * Not thread-safe! Must be synchronized by the enclosing set.
+     */
+    private static final class WeakKeyMap<T> extends AbstractMap<T, ISetEntry<T>> {
+
+        private final Map<Object, ISetEntry<T>> entries = new HashMap<Object, ISetEntry<T>>();
+
+        @Override
+        public ISetEntry<T> get(Object element) {
+            return element == null ? null : entries.get(new Lookup(element));
+        }
+
+        @Override
+        public boolean containsKey(Object element) {
+            return get(element) != null;
+        }
+
+        // the entry of a weak set always carries the reference to its element
+        @Override
+        public ISetEntry<T> put(T element, ISetEntry<T> entry) {
+            return entries.put(((WeakEntry<T>) entry).value, entry);
+        }
+
+        @Override
+        public ISetEntry<T> remove(Object element) {
+            return element == null ? null : entries.remove(new Lookup(element));
+        }
+
+        boolean removeReference(ElementReference<T> reference) {
+            return entries.remove(reference) != null;
+        }
+
+        @Override
+        public int size() {
+            return entries.size();
+        }
+
+        @Override
+        public void clear() {
+            entries.clear();
+        }
+
+        // a snapshot of the elements that have not been collected yet
+        @Override
+        public Set<Map.Entry<T, ISetEntry<T>>> entrySet() {
+            Set<Map.Entry<T, ISetEntry<T>>> snapshot = new HashSet<Map.Entry<T, ISetEntry<T>>>();
+            for (ISetEntry<T> entry : entries.values()) {
+                T element = entry.getValue();
+                if (element != null) {
+                    snapshot.add(new SimpleImmutableEntry<T, ISetEntry<T>>(element, entry));
+                }
+            }
+            return snapshot;
+        }
+    }
+
+    /**
+     * A single daemon thread reclaims the orphaned entries of all weak sets. All references that have been enqueued
+     * at the same time are grouped by their set such that each set is locked only once per batch.
+     * See the class comment of {@link WeakConcurrentSet} for the lifecycle of the thread.
+     */
+    private static final class Reclaimer implements Runnable {
+
+        private static final ReferenceQueue<Object> Orphans = new ReferenceQueue<Object>();
+
+        private static final ThreadFactory ReclaimerThreadFactory = new ThreadFactory() {
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "WeakConcurrentSet-Reclaimer");
+                thread.setDaemon(true);
+                // the thread must not pin the class loader of whatever code happened to create the first weak set
+                thread.setContextClassLoader(null);
+                return thread;
+            }
+        };
+
+        // the running reclaimer thread, null if it has not been started or has been stopped
+        private static volatile Thread current;
+
+        static void ensureRunning() {
+            if (current == null) {
+                start();
+            }
+        }
+
+        private static synchronized void start() {
+            if (current == null) {
+                current = ReclaimerThreadFactory.newThread(new Reclaimer());
+                current.start();
+            }
+        }
+
+        static synchronized void shutdown() {
+            if (current != null) {
+                current.interrupt();
+                current = null;
+            }
+        }
+
+        // a thread that ended (e.g. by an error) is started again on the next call of ensureRunning
+        private static synchronized void ended(Thread thread) {
+            if (current == thread) {
+                current = null;
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                reclaim();
+            } finally {
+                ended(Thread.currentThread());
+            }
+        }
+
+        private void reclaim() {
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    Map<WeakConcurrentSet, List<ElementReference>> batch = new IdentityHashMap<WeakConcurrentSet, List<ElementReference>>();
+                    Reference<?> orphan = Orphans.remove();
+                    do {
+                        ElementReference reference = (ElementReference) orphan;
+                        List<ElementReference> orphans = batch.get(reference.set);
+                        if (orphans == null) {
+                            orphans = new ArrayList<ElementReference>();
+                            batch.put(reference.set, orphans);
+                        }
+                        orphans.add(reference);
+                    } while ((orphan = Orphans.poll()) != null);
+                    for (Map.Entry<WeakConcurrentSet, List<ElementReference>> orphans : batch.entrySet()) {
+                        orphans.getKey().reclaim(orphans.getValue());
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                } catch (RuntimeException e) {
+                    // the reclaimer must survive unexpected exceptions, otherwise orphans would pile up in all sets
+                    // errors end the thread, it is started again when the next element is added
+                    e.printStackTrace();
+                }
+            }
+        }
     }
 }
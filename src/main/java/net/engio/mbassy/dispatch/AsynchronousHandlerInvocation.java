@@ -2,12 +2,16 @@ package net.engio.mbassy.dispatch;
 
 import net.engio.mbassy.bus.MessagePublication;
 import net.engio.mbassy.bus.config.IBusConfiguration;
+import net.engio.mbassy.bus.error.PublicationError;
+import net.engio.mbassy.bus.metrics.IMetricsCollector;
 import net.engio.mbassy.subscription.AbstractSubscriptionContextAware;
 
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
- * This invocation will schedule the wrapped (decorated) invocation to be executed asynchronously
+ * This invocation will schedule the wrapped (decorated) invocation to be executed asynchronously.
+ * The scheduled invocation is skipped if the deadline of the publication passed before it started.
  *
  * @author bennidi
  *         Date: 11/23/12
@@ -18,10 +22,16 @@ public class AsynchronousHandlerInvocation extends AbstractSubscriptionContextAw
 
     private final ExecutorService executor;
 
+    // null if no metrics are collected
+    private final IMetricsCollector metrics;
+
     public AsynchronousHandlerInvocation(IHandlerInvocation delegate) {
         super(delegate.getContext());
         this.delegate = delegate;
         this.executor = delegate.getContext().getRuntime().get(IBusConfiguration.Properties.AsynchronousHandlerExecutor);
+        this.metrics = delegate.getContext().getRuntime().contains(IBusConfiguration.Properties.MetricsCollector)
+                ? delegate.getContext().getRuntime().<IMetricsCollector>get(IBusConfiguration.Properties.MetricsCollector)
+                : null;
     }
 
     /**
@@ -29,11 +39,51 @@ public class AsynchronousHandlerInvocation extends AbstractSubscriptionContextAw
      */
     @Override
     public void invoke(final Object listener, final Object message, final MessagePublication publication){
-        executor.execute(new Runnable() {
-            @Override
-            public void run() {
-                    delegate.invoke(listener, message, publication);
-            }
-        });
+        publication.markInvocationScheduled();
+        try {
+            execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        if (!publication.checkDeadline()) {
+                            delegate.invoke(listener, message, publication);
+                        }
+                    } finally {
+                        publication.markInvocationFinished();
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            publication.markInvocationFinished();
+            handleRejection(e, listener, publication);
+        }
+    }
+
+    // report an invocation that the executor did not accept (e.g. because it is shut down or saturated)
+    protected void handleRejection(RejectedExecutionException e, Object listener, MessagePublication publication) {
+        PublicationError error = new PublicationError(e, "The asynchronous invocation of the handler has been rejected",
+                getContext().getHandler().getMethod(), listener, publication);
+        publication.markError(error);
+        getContext().handleError(error);
+    }
+
+    // run the given task in the executor for asynchronous handlers
+    protected void execute(final Runnable task) {
+        if (metrics != null) {
+            final long scheduled = System.nanoTime();
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    metrics.asyncHandlerStarted(getContext().getHandler(), System.nanoTime() - scheduled);
+                    task.run();
+                }
+            });
+            return;
+        }
+        executor.execute(task);
+    }
+
+    protected IHandlerInvocation getDelegate() {
+        return delegate;
     }
 }
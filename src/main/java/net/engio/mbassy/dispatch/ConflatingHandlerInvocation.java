@@ -0,0 +1,140 @@
+package net.engio.mbassy.dispatch;
+
+import net.engio.mbassy.bus.MessagePublication;
+import net.engio.mbassy.bus.common.MessagePartitioner;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.BiFunction;
+
+/**
+ * This invocation schedules the wrapped (decorated) invocation to be executed asynchronously and conflates
+ * the messages that are waiting for their delivery: As long as the delivery of a message to a listener has not
+ * started, a subsequent message with the same key replaces it. Only the latest message of each key is delivered.
+ * <p/>
+ * The keys are provided by a {@link MessagePartitioner}, messages without a key are conflated by their type.
+ */
+public class ConflatingHandlerInvocation extends AsynchronousHandlerInvocation {
+
+    // the deliveries that have been scheduled but not yet started
+    private final ConcurrentHashMap<PendingKey, Pending> pending = new ConcurrentHashMap<PendingKey, Pending>();
+
+    private final MessagePartitioner keys;
+
+    public ConflatingHandlerInvocation(IHandlerInvocation delegate, MessagePartitioner keys) {
+        super(delegate);
+        this.keys = keys;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void invoke(final Object listener, final Object message, final MessagePublication publication) {
+        Object key = keys.getKey(message);
+        final PendingKey pendingKey = new PendingKey(listener, key != null ? key : message.getClass());
+        publication.markInvocationScheduled();
+        Replace replace = new Replace(message, publication);
+        pending.compute(pendingKey, replace);
+        if (replace.replaced != null) {
+            // the replaced message will not be delivered
+            replace.replaced.markInvocationFinished();
+        }
+        if (!replace.scheduled) {
+            // a pending delivery has been updated with the new message
+            return;
+        }
+        try {
+            execute(new Runnable() {
+                @Override
+                public void run() {
+                    // from now on, new messages of the same key are scheduled for another delivery
+                    Pending latest = pending.remove(pendingKey);
+                    try {
+                        if (!latest.publication.checkDeadline()) {
+                            getDelegate().invoke(listener, latest.message, latest.publication);
+                        }
+                    } finally {
+                        latest.publication.markInvocationFinished();
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // no task will drain the entry, later messages of the key must schedule a new delivery
+            Pending latest = pending.remove(pendingKey);
+            latest.publication.markInvocationFinished();
+            handleRejection(e, listener, latest.publication);
+        }
+    }
+
+    /**
+     * @return The number of deliveries that are waiting to be started
+     */
+    public int getPendingDeliveries() {
+        return pending.size();
+    }
+
+    // replaces the message of a pending delivery or creates a new one
+    private static final class Replace implements BiFunction<PendingKey, Pending, Pending> {
+
+        private final Object message;
+        private final MessagePublication publication;
+        private boolean scheduled = false;
+        private MessagePublication replaced;
+
+        private Replace(Object message, MessagePublication publication) {
+            this.message = message;
+            this.publication = publication;
+        }
+
+        @Override
+        public Pending apply(PendingKey key, Pending existing) {
+            if (existing == null) {
+                scheduled = true;
+                return new Pending(message, publication);
+            }
+            replaced = existing.publication;
+            existing.message = message;
+            existing.publication = publication;
+            return existing;
+        }
+    }
+
+    // modified while holding the lock of the map entry and read after the entry has been removed
+    private static final class Pending {
+
+        private Object message;
+        private MessagePublication publication;
+
+        private Pending(Object message, MessagePublication publication) {
+            this.message = message;
+            this.publication = publication;
+        }
+    }
+
+    // identifies the listener by identity
+    private static final class PendingKey {
+
+        private final Object listener;
+        private final Object key;
+
+        private PendingKey(Object listener, Object key) {
+            this.listener = listener;
+            this.key = key;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof PendingKey)) {
+                return false;
+            }
+            PendingKey that = (PendingKey) other;
+            return listener == that.listener && key.equals(that.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(listener) + key.hashCode();
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package net.engio.mbassy.dispatch;
+
+import net.engio.mbassy.bus.MessagePublication;
+import net.engio.mbassy.bus.error.PublicationError;
+import net.engio.mbassy.subscription.SubscriptionContext;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.function.BiConsumer;
+
+/**
+ * Invokes the message handler through a class that is generated for each handler method.
+ * The generated class is a hidden class defined from the class file of {@link HandlerInvokerTemplate} with
+ * the handler method handle as its class data. Each handler has its own invocation class and the handler is a constant
+ * of that class, such that the call site of the handler stays monomorphic and the JIT can inline the handler method.
+ * In contrast, {@link MethodHandleInvocation} calls all handlers from the same call site through a non-constant handle.
+ * <p/>
+ * Generation requires full privilege access to the class that declares the handler, which is the case
+ * for all listeners that live in the same module as MBassador (e.g. the class path). If the handler can not be
+ * accessed {@link #create(SubscriptionContext)} throws an {@link IllegalStateException} and the
+ * {@link net.engio.mbassy.subscription.SubscriptionFactory} falls back to {@link MethodHandleInvocation}.
+ * <p/>
+ * Listeners processed by the annotation processor of the mbassador-processor module already provide an invoker
+ * that has been compiled with the listener, see {@link net.engio.mbassy.listener.ICompiledListener}. It is called
+ * through a generated class as well, see {@link #create(SubscriptionContext, BiConsumer)}.
+ */
+public abstract class GeneratedHandlerInvocation extends HandlerInvocation {
+
+    private static final MethodType InvokerType = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private static final MethodType ConstructorType = MethodType.methodType(void.class, SubscriptionContext.class);
+
+    private static final MethodHandle Accept;
+
+    static {
+        try {
+            Accept = MethodHandles.publicLookup().findVirtual(BiConsumer.class, "accept", InvokerType);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    protected GeneratedHandlerInvocation(SubscriptionContext context) {
+        super(context);
+    }
+
+    /**
+     * Create the invocation of the handler of the given context.
+     *
+     * @throws IllegalStateException If the handler method can not be accessed
+     */
+    public static GeneratedHandlerInvocation create(SubscriptionContext context) {
+        Method handler = context.getHandler().getMethod();
+        if (Modifier.isStatic(handler.getModifiers())) {
+            throw new IllegalStateException("Can not generate invoker for handler " + handler);
+        }
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(handler.getDeclaringClass(), MethodHandles.lookup());
+            return create(context, lookup.unreflect(handler));
+        } catch (IllegalAccessException | RuntimeException e) {
+            throw new IllegalStateException("Can not generate invoker for handler " + handler, e);
+        }
+    }
+
+    /**
+     * Create an invocation that calls the handler of the given context through an invoker that has been compiled
+     * with the listener.
+     */
+    public static GeneratedHandlerInvocation create(SubscriptionContext context, BiConsumer<Object, Object> invoker) {
+        return create(context, Accept.bindTo(invoker));
+    }
+
+    // define a hidden class for the handler, the template class file is shared by all handlers
+    private static GeneratedHandlerInvocation create(SubscriptionContext context, MethodHandle handler) {
+        MethodHandle target = handler.asType(InvokerType);
+        byte[] template = Template.ClassFile;
+        if (template != null) {
+            try {
+                MethodHandles.Lookup invoker = MethodHandles.lookup().defineHiddenClassWithClassData(template, target, true);
+                return (GeneratedHandlerInvocation) invoker.findConstructor(invoker.lookupClass(), ConstructorType)
+                        .invoke(context);
+            } catch (IllegalAccessException | IllegalArgumentException e) {
+                // the hidden class can not be defined or accessed in this environment
+                // fall through: the handler is still called, although from a shared call site
+            } catch (Error e) {
+                // e.g. a VerifyError of a broken template must not be hidden by the fallback
+                throw e;
+            } catch (Throwable e) {
+                // not an IllegalStateException, which would let the subscription factory fall back silently
+                throw new LinkageError("Invalid invoker template for handler " + context.getHandler().getMethod(), e);
+            }
+        }
+        return new SharedInvocation(context, target);
+    }
+
+    protected final void handleError(MessagePublication publication, Throwable e, Object listener) {
+        handlePublicationError(publication, new PublicationError(e, MethodHandleInvocation.InvocationError,
+                getContext().getHandler().getMethod(), listener, publication));
+    }
+
+    // the class file is read once, it is null if it is not available as a resource (e.g. in a custom packaging)
+    private static final class Template {
+
+        private static final byte[] ClassFile = read();
+
+        private static byte[] read() {
+            try (InputStream in = GeneratedHandlerInvocation.class.getResourceAsStream("HandlerInvokerTemplate.class")) {
+                return in != null ? in.readAllBytes() : null;
+            } catch (IOException e) {
+                return null;
+            }
+        }
+    }
+
+    // calls the handler through an instance field if no hidden class could be defined
+    private static final class SharedInvocation extends GeneratedHandlerInvocation {
+
+        private final MethodHandle handler;
+
+        private SharedInvocation(SubscriptionContext context, MethodHandle handler) {
+            super(context);
+            this.handler = handler;
+        }
+
+        @Override
+        public void invoke(final Object listener, final Object message, MessagePublication publication) {
+            try {
+                handler.invokeExact(listener, message);
+            } catch (Throwable e) {
+                handleError(publication, e, listener);
+            }
+        }
+    }
+}
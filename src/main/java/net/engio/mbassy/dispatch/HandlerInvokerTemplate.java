@@ -0,0 +1,42 @@
+package net.engio.mbassy.dispatch;
+
+import net.engio.mbassy.bus.MessagePublication;
+import net.engio.mbassy.subscription.SubscriptionContext;
+
+import java.lang.constant.ConstantDescs;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+
+/**
+ * The class file of this class is the template for the invoker classes that {@link GeneratedHandlerInvocation}
+ * defines for each handler. It is never loaded as a regular class: Each handler gets its own hidden class
+ * defined from these bytes with the handler as class data. Since the handler is a constant of each hidden class,
+ * the call site in {@link #invoke(Object, Object, MessagePublication)} only ever sees one target and
+ * the JIT can inline the handler method.
+ */
+final class HandlerInvokerTemplate extends GeneratedHandlerInvocation {
+
+    // the handler with type (Object, Object)void, passed as class data when the hidden class is defined
+    private static final MethodHandle Handler;
+
+    static {
+        try {
+            Handler = MethodHandles.classData(MethodHandles.lookup(), ConstantDescs.DEFAULT_NAME, MethodHandle.class);
+        } catch (IllegalAccessException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    HandlerInvokerTemplate(SubscriptionContext context) {
+        super(context);
+    }
+
+    @Override
+    public void invoke(final Object listener, final Object message, MessagePublication publication) {
+        try {
+            Handler.invokeExact(listener, message);
+        } catch (Throwable e) {
+            handleError(publication, e, listener);
+        }
+    }
+}
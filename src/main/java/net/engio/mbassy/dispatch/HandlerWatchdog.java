@@ -0,0 +1,174 @@
+package net.engio.mbassy.dispatch;
+
+import net.engio.mbassy.bus.MessagePublication;
+import net.engio.mbassy.bus.error.IPublicationErrorHandler;
+import net.engio.mbassy.bus.error.MessageBusException;
+import net.engio.mbassy.bus.error.PublicationError;
+import net.engio.mbassy.listener.MessageHandler;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The watchdog keeps track of the running handler invocations and periodically reports all invocations that
+ * run longer than the configured threshold to the publication error handlers. Each invocation is reported
+ * at most once. The reported error names the listener and handler method and its cause carries the current
+ * stack trace of the thread that runs the handler.
+ * <p/>
+ * Tracking an invocation only writes a timestamp and references to the handler, listener and publication
+ * into a slot owned by the invoking thread, see {@link WatchedHandlerInvocation}.
+ *
+ * @see net.engio.mbassy.bus.config.Feature.Watchdog
+ */
+public class HandlerWatchdog {
+
+    private static final long Idle = Long.MIN_VALUE;
+
+    private final long thresholdInNanos;
+
+    private final Collection<IPublicationErrorHandler> errorHandlers;
+
+    // the slots of all threads that invoked a watched handler
+    private final Queue<Slot> slots = new ConcurrentLinkedQueue<Slot>();
+
+    private final ThreadLocal<Slot> threadSlot = new ThreadLocal<Slot>() {
+        @Override
+        protected Slot initialValue() {
+            Slot slot = new Slot(Thread.currentThread());
+            slots.add(slot);
+            return slot;
+        }
+    };
+
+    private final ScheduledExecutorService scheduler;
+
+    public HandlerWatchdog(long thresholdInNanos, long checkIntervalInNanos, Collection<IPublicationErrorHandler> errorHandlers) {
+        this.thresholdInNanos = thresholdInNanos;
+        this.errorHandlers = errorHandlers;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "HandlerWatchdog");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                check(System.nanoTime());
+            }
+        }, checkIntervalInNanos, checkIntervalInNanos, TimeUnit.NANOSECONDS);
+    }
+
+    Slot getSlot() {
+        return threadSlot.get();
+    }
+
+    // report all invocations exceeding the threshold that have not been reported yet
+    void check(long now) {
+        Iterator<Slot> iterator = slots.iterator();
+        while (iterator.hasNext()) {
+            Slot slot = iterator.next();
+            long started = slot.started;
+            if (started == Idle) {
+                if (!slot.thread.isAlive()) {
+                    iterator.remove();
+                }
+                continue;
+            }
+            if (now - started < thresholdInNanos || slot.reported == started) {
+                continue;
+            }
+            MessageHandler handler = slot.handler;
+            Object listener = slot.listener;
+            MessagePublication publication = slot.publication;
+            StackTraceElement[] stackTrace = slot.thread.getStackTrace();
+            // the invocation finished while its state was read
+            if (slot.started != started) {
+                continue;
+            }
+            slot.reported = started;
+            report(handler, listener, publication, slot.thread, stackTrace, now - started);
+        }
+    }
+
+    private void report(MessageHandler handler, Object listener, MessagePublication publication, Thread thread,
+                        StackTraceElement[] stackTrace, long runningInNanos) {
+        String description = "Handler " + listener.getClass().getName() + "." + handler.getMethod().getName()
+                + " has been running for " + TimeUnit.NANOSECONDS.toMillis(runningInNanos) + "ms in thread " + thread.getName();
+        MessageBusException cause = new MessageBusException(description);
+        cause.setStackTrace(stackTrace);
+        PublicationError error = new PublicationError(cause, description, handler.getMethod(), listener, publication);
+        for (IPublicationErrorHandler errorHandler : errorHandlers) {
+            try {
+                errorHandler.handleError(error);
+            } catch (Throwable ex) {
+                ex.printStackTrace();
+            }
+        }
+    }
+
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * The state of the handler invocation that is currently running in the owning thread. Only the owning thread
+     * writes the invocation state, the start time is written last such that the watchdog sees a consistent state.
+     */
+    static final class Slot {
+
+        private final Thread thread;
+
+        private volatile long started = Idle;
+
+        private MessageHandler handler;
+
+        private Object listener;
+
+        private MessagePublication publication;
+
+        // only accessed by the watchdog
+        private long reported = Idle;
+
+        private Slot(Thread thread) {
+            this.thread = thread;
+        }
+
+        void enter(MessageHandler handler, Object listener, MessagePublication publication, long started) {
+            this.handler = handler;
+            this.listener = listener;
+            this.publication = publication;
+            this.started = started;
+        }
+
+        MessageHandler getHandler() {
+            return handler;
+        }
+
+        Object getListener() {
+            return listener;
+        }
+
+        MessagePublication getPublication() {
+            return publication;
+        }
+
+        long getStarted() {
+            return started;
+        }
+
+        // restore the state of the enclosing invocation (if any)
+        void exit(MessageHandler handler, Object listener, MessagePublication publication, long started) {
+            this.started = Idle;
+            enter(handler, listener, publication, started);
+        }
+    }
+}
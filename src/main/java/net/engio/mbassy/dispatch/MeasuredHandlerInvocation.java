@@ -0,0 +1,36 @@
+package net.engio.mbassy.dispatch;
+
+import net.engio.mbassy.bus.MessagePublication;
+import net.engio.mbassy.bus.metrics.IMetricsCollector;
+import net.engio.mbassy.subscription.AbstractSubscriptionContextAware;
+
+/**
+ * Measures the dispatch latency and execution time of each handler invocation. Only part of the invocation chain
+ * if metrics are collected.
+ */
+public class MeasuredHandlerInvocation extends AbstractSubscriptionContextAware implements IHandlerInvocation<Object,Object> {
+
+    private final IHandlerInvocation delegate;
+
+    private final IMetricsCollector.IHandlerMetrics metrics;
+
+    public MeasuredHandlerInvocation(IHandlerInvocation delegate, IMetricsCollector collector) {
+        super(delegate.getContext());
+        this.delegate = delegate;
+        this.metrics = collector.handlerMetrics(delegate.getContext().getHandler());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void invoke(final Object listener, final Object message, MessagePublication publication){
+        long start = System.nanoTime();
+        try {
+            delegate.invoke(listener, message, publication);
+        } finally {
+            metrics.invoked(publication.getTimeSinceCreation(start), System.nanoTime() - start);
+        }
+    }
+
+}
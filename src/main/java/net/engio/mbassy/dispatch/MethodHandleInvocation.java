@@ -17,6 +17,9 @@ import java.util.Collection;
  */
 public class MethodHandleInvocation extends HandlerInvocation {
 
+  // the message of errors thrown by a handler, shared with GeneratedHandlerInvocation
+  static final String InvocationError = "Error during invocation of message handler via MethodHandle.";
+
   private final MethodHandle handle;
 
   public MethodHandleInvocation(SubscriptionContext context) {
@@ -42,7 +45,7 @@ public class MethodHandleInvocation extends HandlerInvocation {
   private void handleError(MessagePublication publication, Throwable e, Object listener) {
     PublicationError error = new PublicationError(
         e,
-        "Error during invocation of message handler via MethodHandle.",
+        InvocationError,
         getContext().getHandler().getMethod(),
         listener,
         publication
@@ -0,0 +1,45 @@
+package net.engio.mbassy.dispatch;
+
+import net.engio.mbassy.bus.MessagePublication;
+import net.engio.mbassy.listener.MessageHandler;
+import net.engio.mbassy.subscription.AbstractSubscriptionContextAware;
+
+/**
+ * Registers each handler invocation with the {@link HandlerWatchdog} while it is running. Only part of the
+ * invocation chain if the watchdog is enabled.
+ */
+public class WatchedHandlerInvocation extends AbstractSubscriptionContextAware implements IHandlerInvocation<Object,Object> {
+
+    private final IHandlerInvocation delegate;
+
+    private final HandlerWatchdog watchdog;
+
+    private final MessageHandler handler;
+
+    public WatchedHandlerInvocation(IHandlerInvocation delegate, HandlerWatchdog watchdog) {
+        super(delegate.getContext());
+        this.delegate = delegate;
+        this.watchdog = watchdog;
+        this.handler = delegate.getContext().getHandler();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void invoke(final Object listener, final Object message, MessagePublication publication){
+        HandlerWatchdog.Slot slot = watchdog.getSlot();
+        // handlers may publish synchronously and thus run nested invocations in the same thread
+        MessageHandler enclosingHandler = slot.getHandler();
+        Object enclosingListener = slot.getListener();
+        MessagePublication enclosingPublication = slot.getPublication();
+        long enclosingStarted = slot.getStarted();
+        slot.enter(handler, listener, publication, System.nanoTime());
+        try {
+            delegate.invoke(listener, message, publication);
+        } finally {
+            slot.exit(enclosingHandler, enclosingListener, enclosingPublication, enclosingStarted);
+        }
+    }
+
+}
@@ -0,0 +1,57 @@
+package net.engio.mbassy.listener;
+
+import java.lang.reflect.Method;
+import java.util.function.BiConsumer;
+
+/**
+ * A message handler that has been resolved at compile time, see {@link ICompiledListener}.
+ */
+public class CompiledHandler {
+
+    private final Method handler;
+
+    private final Method configuration;
+
+    private final BiConsumer<Object, Object> invoker;
+
+    /**
+     * @param handler The method that is invoked, i.e. the bottom most override of the annotated method
+     * @param configuration The method that carries the {@link Handler} configuration
+     * @param invoker A compiled invocation of the handler method or null if the method is not accessible to generated code
+     */
+    public CompiledHandler(Method handler, Method configuration, BiConsumer<Object, Object> invoker) {
+        this.handler = handler;
+        this.configuration = configuration;
+        this.invoker = invoker;
+    }
+
+    public Method getHandler() {
+        return handler;
+    }
+
+    public Method getConfiguration() {
+        return configuration;
+    }
+
+    public BiConsumer<Object, Object> getInvoker() {
+        return invoker;
+    }
+
+    /**
+     * Find a method of a single parameter by the names of its declaring class and parameter type.
+     * Generated code uses names since the classes might not be accessible from the package of the listener.
+     */
+    public static Method findMethod(ClassLoader loader, String declaringClass, String name, String parameterType)
+            throws ReflectiveOperationException {
+        return Class.forName(declaringClass, false, loader)
+                .getDeclaredMethod(name, Class.forName(parameterType, false, loader));
+    }
+
+    /**
+     * Rethrow any exception of a handler from generated code without wrapping it.
+     */
+    @SuppressWarnings("unchecked")
+    public static <E extends Throwable> RuntimeException rethrow(Throwable exception) throws E {
+        throw (E) exception;
+    }
+}
@@ -1,7 +1,7 @@
 package net.engio.mbassy.listener;
 
+import net.engio.mbassy.dispatch.GeneratedHandlerInvocation;
 import net.engio.mbassy.dispatch.HandlerInvocation;
-import net.engio.mbassy.dispatch.MethodHandleInvocation;
 import net.engio.mbassy.dispatch.ReflectiveHandlerInvocation;
 
 import java.lang.annotation.*;
@@ -89,6 +89,15 @@ public @interface Handler {
      */
     boolean rejectSubtypes() default false;
 
+    /**
+     * Conflate the messages delivered to an asynchronous handler: A message that is published while an earlier
+     * message with the same key is still waiting for its delivery to the same listener replaces the earlier one.
+     * A slow handler thus only sees the latest value of each key. The key is defined by
+     * {@link net.engio.mbassy.listener.PartitionKey}, messages without a key are conflated by their type.
+     * Has no effect on synchronous handlers.
+     */
+    boolean conflate() default false;
+
 
     /**
      * Enable or disable the handler. Disabled handlers do not receive any messages.
@@ -100,10 +109,11 @@ public @interface Handler {
 
     /**
      * Each handler call is implemented as an invocation object that implements the invocation mechanism.
-     * The modern implementation uses MethodHandle for high-performance dispatch.
+     * The default implementation calls the handler through a generated invoker class and falls back to
+     * {@link net.engio.mbassy.dispatch.MethodHandleInvocation} if the listener class is not accessible.
      *
      */
-    Class<? extends HandlerInvocation> invocation() default MethodHandleInvocation.class;
+    Class<? extends HandlerInvocation> invocation() default GeneratedHandlerInvocation.class;
 
 
 }
@@ -0,0 +1,19 @@
+package net.engio.mbassy.listener;
+
+/**
+ * The handler metadata of a listener class that has been resolved at compile time by the annotation processor
+ * of the mbassador-processor module. The processor generates an implementation named
+ * <code>&lt;binary name of the listener&gt;{@value #ClassSuffix}</code> in the package of each listener.
+ * If present, the {@link MetadataReader} uses it instead of scanning the class hierarchy of the listener.
+ */
+public interface ICompiledListener {
+
+    String ClassSuffix = "_MBassadorListener";
+
+    /**
+     * @return The handlers of the listener in the same order as they would be found by reflection
+     * @throws ReflectiveOperationException If the compiled listener does not match the loaded listener class
+     */
+    CompiledHandler[] getHandlers() throws ReflectiveOperationException;
+
+}
@@ -7,6 +7,7 @@ import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.BiConsumer;
 
 /**
  * Any method in any class annotated with the @Handler annotation represents a message handler. The class that contains
@@ -30,6 +31,8 @@ public class MessageHandler {
         public static final String AcceptSubtypes = "subtypes";
         public static final String Priority = "priority";
         public static final String Invocation = "invocation";
+        public static final String Conflated = "conflated";
+        public static final String Invoker = "invoker";
 
         /**
          * Create the property map for the {@link MessageHandler} constructor using the default objects.
@@ -67,6 +70,7 @@ public class MessageHandler {
             properties.put(Listener, listenerConfig);
             properties.put(IsSynchronized, ReflectionUtils.getAnnotation( handler, Synchronized.class) != null);
             properties.put(HandledMessages, handledMessages);
+            properties.put(Conflated, handlerConfig.conflate());
             return properties;
         }
     }
@@ -92,6 +96,10 @@ public class MessageHandler {
 
     private final boolean isSynchronized;
 
+    private final boolean isConflated;
+
+    private final BiConsumer<Object, Object> invoker;
+
 
     public MessageHandler(Map<String, Object> properties){
         super();
@@ -106,6 +114,10 @@ public class MessageHandler {
         this.listenerConfig = (MessageListener)properties.get(Properties.Listener);
         this.isSynchronized = (Boolean)properties.get(Properties.IsSynchronized);
         this.handledMessages = (Class[])properties.get(Properties.HandledMessages);
+        // optional property
+        this.isConflated = Boolean.TRUE.equals(properties.get(Properties.Conflated));
+        // optional property, only available for compiled listeners
+        this.invoker = (BiConsumer<Object, Object>)properties.get(Properties.Invoker);
     }
 
     private void validate(Map<String, Object> properties){
@@ -145,6 +157,10 @@ public class MessageHandler {
         return listenerConfig.isFromListener(listener);
     }
 
+    public boolean isConflated() {
+        return isConflated;
+    }
+
     public boolean isAsynchronous() {
         return invocationMode.equals(Invoke.Asynchronously);
     }
@@ -177,6 +193,13 @@ public class MessageHandler {
         return invocation;
     }
 
+    /**
+     * @return The invoker generated at compile time (see {@link ICompiledListener}) or null if none is available
+     */
+    public BiConsumer<Object, Object> getInvoker() {
+        return invoker;
+    }
+
     public boolean handlesMessage(Class<?> messageType) {
         for (Class<?> handledMessage : handledMessages) {
             if (handledMessage.equals(messageType)) {
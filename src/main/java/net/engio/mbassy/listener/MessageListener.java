@@ -18,7 +18,9 @@ import java.util.List;
  *
  * This class is an internal representation of a message listener used to encapsulate all relevant objects
  * and data about that message listener, especially all its handlers.
- * There will be only one instance of MessageListener per message listener class and message bus instance.
+ * A {@link MetadataReader} creates one instance per message listener class and caches it, such that all subscriptions
+ * of the class through that reader (usually the reader of a single message bus) share it. The handlers of a cached
+ * instance can not be modified anymore.
  *
  * @author bennidi
  *         Date: 12/16/12
@@ -41,6 +43,12 @@ public class MessageListener<T> {
 
     private Listener listenerAnnotation;
 
+    // the reason why the handlers resolved at compile time could not be used, if any
+    private Throwable compilationError;
+
+    // set once the instance is shared, see freeze()
+    private volatile boolean frozen = false;
+
     public MessageListener(Class<T> listenerDefinition) {
        this.listenerDefinition = listenerDefinition;
        listenerAnnotation = ReflectionUtils.getAnnotation( listenerDefinition, Listener.class );
@@ -56,14 +64,41 @@ public class MessageListener<T> {
     }
 
     public MessageListener addHandlers(Collection<? extends MessageHandler> c) {
+        checkNotFrozen();
         handlers.addAll(c);
         return this;
     }
 
     public boolean addHandler(MessageHandler messageHandler) {
+        checkNotFrozen();
         return handlers.add(messageHandler);
     }
 
+    // prevent further modifications before the instance is shared
+    MessageListener freeze() {
+        frozen = true;
+        return this;
+    }
+
+    private void checkNotFrozen() {
+        if (frozen) {
+            throw new UnsupportedOperationException("The handlers of the cached listener " + listenerDefinition.getName()
+                    + " can not be modified");
+        }
+    }
+
+    void setCompilationError(Throwable compilationError) {
+        this.compilationError = compilationError;
+    }
+
+    /**
+     * @return The error that prevented the use of the handlers generated at compile time or null if there was none.
+     * The handlers of a listener with a compilation error have been resolved by reflection instead.
+     */
+    public Throwable getCompilationError() {
+        return compilationError;
+    }
+
     public MessageHandler[] getHandlers(){
         MessageHandler[] asArray = new MessageHandler[handlers.size()];
         return handlers.toArray(asArray);
@@ -8,12 +8,19 @@ import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 
 /**
  * The meta data reader is responsible for parsing and validating message handler configurations.
+ * The metadata of each listener class is read once and cached, such that subsequent subscriptions of
+ * the same class do not need to analyze it again. The handlers declared by each class and interface, as well as
+ * the handlers of its hierarchy that are not overridden, are cached globally and shared by all of their sub types.
+ * The reader is thread-safe.
  *
  * @author bennidi
  *         Date: 11/16/12
@@ -28,8 +35,85 @@ public class MetadataReader {
         }
     };
 
+    // the handlers declared by each class or interface, independent of any configuration
+    private static final ClassValue<Method[]> DeclaredHandlers = new ClassValue<Method[]>() {
+        @Override
+        protected Method[] computeValue(Class<?> type) {
+            List<Method> handlers = new ArrayList<Method>();
+            try {
+                for (Method method : type.getDeclaredMethods()) {
+                    if (AllMessageHandlers.apply(method)) {
+                        handlers.add(method);
+                    }
+                }
+            } catch (Exception e) {
+                // the methods can not be inspected, see ReflectionUtils#getMethods
+            }
+            return handlers.toArray(new Method[handlers.size()]);
+        }
+    };
+
+    // the handlers declared by each class or interface and its super types that are not overridden by another
+    // handler of the hierarchy, in the order of getHandlersInHierarchy
+    // the handlers of a type are resolved from the resolved handlers of its direct super types, such that
+    // the overrides of a super type are checked only once for all of its sub types
+    private static final ClassValue<Method[]> ResolvedHandlers = new ClassValue<Method[]>() {
+        @Override
+        protected Method[] computeValue(Class<?> type) {
+            // the handlers that are not overridden within the hierarchy of a direct super type are the only candidates
+            Set<Method> candidates = new LinkedHashSet<Method>();
+            Collections.addAll(candidates, DeclaredHandlers.get(type));
+            Class<?> superclass = type.getSuperclass();
+            if (superclass != null && !superclass.equals(Object.class)) {
+                Collections.addAll(candidates, ResolvedHandlers.get(superclass));
+            }
+            for (Class<?> intface : type.getInterfaces()) {
+                Collections.addAll(candidates, ResolvedHandlers.get(intface));
+            }
+            Method[] candidateArray = candidates.toArray(new Method[candidates.size()]);
+            Set<Method> resolved = new HashSet<Method>();
+            for (Method candidate : candidateArray) {
+                if (!ReflectionUtils.containsOverridingMethod(candidateArray, candidate)) {
+                    resolved.add(candidate);
+                }
+            }
+            List<Method> ordered = new ArrayList<Method>(resolved.size());
+            for (Method handler : getHandlersInHierarchy(type)) {
+                if (resolved.contains(handler)) {
+                    ordered.add(handler);
+                }
+            }
+            return ordered.toArray(new Method[ordered.size()]);
+        }
+    };
+
+    private static final Function<Class<?>, Method[]> GetDeclaredHandlers = new Function<Class<?>, Method[]>() {
+        @Override
+        public Method[] apply(Class<?> type) {
+            return DeclaredHandlers.get(type);
+        }
+    };
+
     // cache already created filter instances
-    private final Map<Class<? extends IMessageFilter>, IMessageFilter> filterCache = new HashMap<Class<? extends IMessageFilter>, IMessageFilter>();
+    private final ClassValue<IMessageFilter> filterCache = new ClassValue<IMessageFilter>() {
+        @Override
+        protected IMessageFilter computeValue(Class<?> filterType) {
+            try {
+                return (IMessageFilter) filterType.newInstance();
+            } catch (Exception e) {
+                throw new RuntimeException(e);// propagate as runtime exception
+            }
+        }
+    };
+
+    // cache the metadata of all listener classes read by this reader
+    private final ClassValue<MessageListener> listenerCache = new ClassValue<MessageListener>() {
+        @Override
+        protected MessageListener computeValue(Class<?> listener) {
+            // the instance is shared by all subscriptions of the class
+            return readMessageListener(listener).freeze();
+        }
+    };
 
     // retrieve all instances of filters associated with the given subscription
     private IMessageFilter[] getFilter(Method method, Handler subscription, Class<?> targetClass) {
@@ -40,16 +124,7 @@ public class MetadataReader {
         IMessageFilter[] filters = new IMessageFilter[filterDefinitions.length];
         int i = 0;
         for (Filter filterDef : filterDefinitions) {
-            IMessageFilter filter = filterCache.get(filterDef.value());
-            if (filter == null) {
-                try {
-                    filter = filterDef.value().newInstance();
-                    filterCache.put(filterDef.value(), filter);
-                } catch (Exception e) {
-                    throw new RuntimeException(e);// propagate as runtime exception
-                }
-            }
-            filters[i] = filter;
+            filters[i] = filterCache.get(filterDef.value());
             i++;
         }
         return filters;
@@ -59,7 +134,7 @@ public class MetadataReader {
         List<Filter> filters = new ArrayList<Filter>(subscription.filters().length);
         Collections.addAll(filters, subscription.filters());
         Annotation[] annotations = method.getAnnotations();
-        for (int i = 0; i < method.getAnnotations().length; i++) {
+        for (int i = 0; i < annotations.length; i++) {
             Class<? extends Annotation> annotationType = annotations[i].annotationType();
             IncludeFilters repeated = annotationType.getAnnotation(IncludeFilters.class);
             if (repeated != null) {
@@ -76,10 +151,27 @@ public class MetadataReader {
     // get all listeners defined by the given class (includes
     // listeners defined in super classes and interfaces)
     public MessageListener getMessageListener(Class target) {
+        return listenerCache.get(target);
+    }
+
+    private MessageListener readMessageListener(Class target) {
+        // handlers resolved at compile time make the scan of the class hierarchy unnecessary
+        Throwable compilationError = null;
+        try {
+            ICompiledListener compiledListener = getCompiledListener(target);
+            if (compiledListener != null) {
+                return getCompiledMessageListener(target, compiledListener);
+            }
+        } catch (ReflectiveOperationException | LinkageError e) {
+            // the compiled listener is broken or outdated, fall back to reflection
+            // the error is kept such that the subscription manager can report it
+            compilationError = e;
+        }
         MessageListener listenerMetadata = new MessageListener(target);
+        listenerMetadata.setCompilationError(compilationError);
 
-        // Step 1: Get all handlers from class hierarchy (existing logic)
-        Method[] allHandlers = ReflectionUtils.getMethods(AllMessageHandlers, target);
+        // Step 1: Get all handlers from class hierarchy that are not overridden by another handler
+        Method[] allHandlers = ResolvedHandlers.get(target);
 
         // Track which methods have been processed to avoid duplicates
         java.util.Set<String> processedMethods = new java.util.HashSet<String>();
@@ -93,8 +185,65 @@ public class MetadataReader {
         return listenerMetadata;
     }
 
+    // the handlers declared by the given class and its super types in the order of ReflectionUtils#getMethods
+    private static Method[] getHandlersInHierarchy(Class<?> target) {
+        List<Method> handlers = new ArrayList<Method>();
+        Collections.addAll(handlers, DeclaredHandlers.get(target));
+        for (Class superType : ReflectionUtils.getSuperTypeHierarchy(target)) {
+            if (!superType.equals(Object.class)) {
+                Collections.addAll(handlers, DeclaredHandlers.get(superType));
+            }
+        }
+        return handlers.toArray(new Method[handlers.size()]);
+    }
+
+    // load the listener metadata generated by the annotation processor, if any
+    private ICompiledListener getCompiledListener(Class target) throws ReflectiveOperationException {
+        ClassLoader loader = target.getClassLoader();
+        if (loader == null) {
+            return null;
+        }
+        try {
+            Class<?> compiled = Class.forName(target.getName() + ICompiledListener.ClassSuffix, true, loader);
+            return ICompiledListener.class.isAssignableFrom(compiled)
+                    ? (ICompiledListener) compiled.getDeclaredConstructor().newInstance()
+                    : null;
+        } catch (ClassNotFoundException e) {
+            // the listener has not been processed at compile time
+            return null;
+        }
+    }
+
+    /**
+     * Creates the listener metadata from handlers that have been resolved at compile time.
+     * The configuration of each handler is validated the same way as for handlers found by reflection.
+     */
+    private MessageListener getCompiledMessageListener(Class target, ICompiledListener compiledListener)
+            throws ReflectiveOperationException {
+        MessageListener listenerMetadata = new MessageListener(target);
+        for (CompiledHandler compiled : compiledListener.getHandlers()) {
+            Method configuration = compiled.getConfiguration();
+            Handler handlerConfig = ReflectionUtils.getAnnotation(configuration, Handler.class);
+            if (handlerConfig == null || !handlerConfig.enabled() || !isValidMessageHandler(configuration)) {
+                continue;
+            }
+            Map<String, Object> handlerProperties = MessageHandler.Properties.Create(
+                compiled.getHandler(),
+                handlerConfig,
+                ReflectionUtils.getAnnotation(configuration, Enveloped.class),
+                getFilter(configuration, handlerConfig, target),
+                listenerMetadata);
+            if (compiled.getInvoker() != null) {
+                handlerProperties.put(MessageHandler.Properties.Invoker, compiled.getInvoker());
+            }
+            listenerMetadata.addHandler(new MessageHandler(handlerProperties));
+        }
+        return listenerMetadata;
+    }
+
     /**
      * Processes handlers that are directly annotated in the class hierarchy.
+     * The given handlers are at the bottom of their respective class hierarchy (deepest overriding method).
      */
     private void processClassHandlers(Method[] allHandlers, Class target, MessageListener listenerMetadata,
                                        java.util.Set<String> processedMethods) {
@@ -104,37 +253,33 @@ public class MetadataReader {
         for (int i = 0; i < length; i++) {
             handler = allHandlers[i];
 
-            // retain only those that are at the bottom of their respective class hierarchy (deepest overriding method)
-            if (!ReflectionUtils.containsOverridingMethod(allHandlers, handler)) {
-
-                // for each handler there will be no overriding method that specifies @Handler annotation
-                // but an overriding method does inherit the listener configuration of the overridden method
+            // for each handler there will be no overriding method that specifies @Handler annotation
+            // but an overriding method does inherit the listener configuration of the overridden method
 
-                Handler handlerConfig = ReflectionUtils.getAnnotation(handler, Handler.class);
-                Enveloped enveloped = ReflectionUtils.getAnnotation( handler, Enveloped.class );
+            Handler handlerConfig = ReflectionUtils.getAnnotation(handler, Handler.class);
+            Enveloped enveloped = ReflectionUtils.getAnnotation( handler, Enveloped.class );
 
-                if (!handlerConfig.enabled() || !isValidMessageHandler(handler)) {
-                    continue; // disabled or invalid listeners are ignored
-                }
+            if (!handlerConfig.enabled() || !isValidMessageHandler(handler)) {
+                continue; // disabled or invalid listeners are ignored
+            }
 
-                Method overriddenHandler = ReflectionUtils.getOverridingMethod(handler, target);
-                Method actualHandler = overriddenHandler == null ? handler : overriddenHandler;
+            Method overriddenHandler = ReflectionUtils.getOverridingMethod(handler, target);
+            Method actualHandler = overriddenHandler == null ? handler : overriddenHandler;
 
-                // Mark this method as processed
-                String methodKey = getMethodKey(actualHandler);
-                processedMethods.add(methodKey);
+            // Mark this method as processed
+            String methodKey = getMethodKey(actualHandler);
+            processedMethods.add(methodKey);
 
-                // if a handler is overridden it inherits the configuration of its parent method
-                Map<String, Object> handlerProperties = MessageHandler.Properties.Create(
-                    actualHandler,
-                    handlerConfig,
-                    enveloped,
-                    getFilter(handler, handlerConfig, target),
-                    listenerMetadata);
+            // if a handler is overridden it inherits the configuration of its parent method
+            Map<String, Object> handlerProperties = MessageHandler.Properties.Create(
+                actualHandler,
+                handlerConfig,
+                enveloped,
+                getFilter(handler, handlerConfig, target),
+                listenerMetadata);
 
-                MessageHandler handlerMetadata = new MessageHandler(handlerProperties);
-                listenerMetadata.addHandler(handlerMetadata);
-            }
+            MessageHandler handlerMetadata = new MessageHandler(handlerProperties);
+            listenerMetadata.addHandler(handlerMetadata);
         }
     }
 
@@ -149,7 +294,7 @@ public class MetadataReader {
     private void processInterfaceHandlers(Class target, MessageListener listenerMetadata,
                                            java.util.Set<String> processedMethods) {
         // Get all interface methods with @Handler annotation
-        Method[] interfaceHandlers = ReflectionUtils.getInterfaceMethods(AllMessageHandlers, target);
+        Method[] interfaceHandlers = ReflectionUtils.getInterfaceMethods(GetDeclaredHandlers, target);
 
         for (Method interfaceMethod : interfaceHandlers) {
             // Find the corresponding method in the target class
@@ -0,0 +1,17 @@
+package net.engio.mbassy.listener;
+
+import java.lang.annotation.*;
+
+/**
+ * Marks the field or no-arg method of a message class that provides the partition key of the message.
+ * With partitioned asynchronous dispatch, all messages with equal keys are processed by the same dispatcher
+ * thread in order of their publication.
+ *
+ * Note: The order is only preserved for synchronous handlers. Asynchronous handlers are invoked by a separate executor.
+ *
+ * @see net.engio.mbassy.bus.common.MessagePartitioner
+ */
+@Retention(value = RetentionPolicy.RUNTIME)
+@Target(value = {ElementType.METHOD, ElementType.FIELD})
+public @interface PartitionKey {
+}
@@ -7,6 +7,7 @@ import java.lang.classfile.Annotation;
 import java.lang.classfile.AttributedElement;
 import java.lang.classfile.ClassFile;
 import java.lang.classfile.ClassModel;
+import java.lang.classfile.MethodModel;
 import java.lang.classfile.attribute.RuntimeInvisibleAnnotationsAttribute;
 import java.lang.classfile.attribute.RuntimeVisibleAnnotationsAttribute;
 import java.net.JarURLConnection;
@@ -18,16 +19,31 @@ import java.nio.file.Paths;
 import java.util.*;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
+import java.util.stream.IntStream;
 
 /**
  * Scans the classpath/directories using the JDK 24+ Class-File API.
  * It finds classes containing methods annotated with @Handler without
- * loading the class first.
+ * loading the class first. Handlers can also be defined by custom annotations
+ * that are annotated with @Handler (see {@link net.engio.mbassy.listener.MetadataReader}),
+ * as long as the custom annotation is part of the scanned packages.
+ * Class path roots that contain a {@link ListenerIndex} are not scanned,
+ * the classes listed in the index are loaded instead.
+ * <p/>
+ * Class files are read directly from their directory or jar and analyzed in parallel. Classes that do not
+ * reference any handler annotation in their constant pool are rejected without being parsed.
  */
 public class ClassFileHandlerScanner {
 
   private static final String HANDLER_DESC = "Lnet/engio/mbassy/listener/Handler;";
 
+  // any class with annotated members refers to the name of the annotations attribute
+  private static final byte[][] ANNOTATION_ATTRIBUTES = {
+      ConstantPool.encode("RuntimeVisibleAnnotations"),
+      ConstantPool.encode("RuntimeInvisibleAnnotations")};
+
+  private static final int ACC_ANNOTATION = 0x2000;
+
   /**
    * Scans the given package for classes that contain methods annotated with @Handler.
    *
@@ -36,49 +52,137 @@ public class ClassFileHandlerScanner {
    * @throws IOException If scanning fails.
    */
   public List<Class<?>> scanPackage(String packageName) throws IOException {
+    List<JarFile> jars = new ArrayList<>();
     try {
       // 1. Discovery Phase: Find all potential .class files in the package (Dir or JAR)
-      Set<String> classNames = discoverClassNames(packageName);
+      // and the listeners of all indexed class path roots
+      Set<String> indexedClassNames = new LinkedHashSet<>();
+      Map<String, ClassSource> sources = discoverClasses(packageName, indexedClassNames, jars);
 
       // 2. Analysis Phase: Read bytes, check for annotation, and load matches
-      return analyzeClasses(classNames);
+      List<Class<?>> matches = new ArrayList<>();
+      for (String className : analyzeClasses(new ArrayList<>(sources.values()))) {
+        load(className, matches);
+      }
+      for (String className : indexedClassNames) {
+        if (sources.containsKey(className)) continue; // already analyzed
+        load(className, matches);
+      }
+      return matches;
     } catch (Exception e) {
       throw new IOException("Failed to scan package: " + packageName, e);
+    } finally {
+      for (JarFile jar : jars) {
+        jar.close();
+      }
     }
   }
 
-  private List<Class<?>> analyzeClasses(Set<String> classNames) {
-    List<Class<?>> matches = new ArrayList<>();
+  private void load(String className, List<Class<?>> matches) {
+    try {
+      // Only load the class into the JVM if it actually has handlers
+      matches.add(Class.forName(className));
+    } catch (Throwable e) {
+      // Ignore classes that cannot be loaded (e.g., missing dependencies)
+    }
+  }
 
-    for (String className : classNames) {
-      try {
-        // Read bytes via ClassLoader - works for both file system and JARs
-        byte[] classBytes = readClassBytes(className);
-        if (classBytes == null) continue;
+  /**
+   * Analyzes all classes in parallel and returns the names of the classes that define handlers in the order of
+   * the given sources. Annotations that are (transitively) annotated with @Handler are resolved within the
+   * scanned classes, all other classes are only parsed if their constant pool refers to a handler annotation.
+   */
+  private List<String> analyzeClasses(List<ClassSource> sources) {
+    Analysis[] analyses = new Analysis[sources.size()];
+    byte[][] handler = {ConstantPool.encode(HANDLER_DESC)};
+    IntStream.range(0, analyses.length).parallel()
+        .forEach(i -> analyses[i] = analyze(sources.get(i), handler, true));
 
-        ClassModel classModel = ClassFile.of().parse(classBytes);
+    // resolve all annotation types that define handlers
+    Set<String> handlerAnnotations = new HashSet<>();
+    handlerAnnotations.add(HANDLER_DESC);
+    boolean changed = true;
+    while (changed) {
+      changed = false;
+      for (Analysis analysis : analyses) {
+        if (analysis != null && analysis.annotationType() && !handlerAnnotations.contains(analysis.descriptor())
+            && !Collections.disjoint(analysis.annotations(), handlerAnnotations)) {
+          handlerAnnotations.add(analysis.descriptor());
+          changed = true;
+        }
+      }
+    }
 
-        // Check if any method has the @Handler annotation
-        boolean hasHandler = classModel.methods().stream()
-            .anyMatch(method -> hasAnnotation(method, HANDLER_DESC));
+    // classes that only use custom handler annotations need to be analyzed again
+    if (handlerAnnotations.size() > 1) {
+      byte[][] constants = handlerAnnotations.stream().map(ConstantPool::encode).toArray(byte[][]::new);
+      IntStream.range(0, analyses.length).parallel()
+          .filter(i -> analyses[i] != null && analyses[i].pending())
+          .forEach(i -> analyses[i] = analyze(sources.get(i), constants, false));
+    }
 
-        if (hasHandler) {
-          // Only load the class into the JVM if it actually has handlers
-          matches.add(Class.forName(className));
-        }
-      } catch (Throwable e) {
-        // Ignore classes that cannot be loaded or parsed (e.g., missing dependencies)
-        // System.err.println("Skipping " + className + ": " + e.getMessage());
+    List<String> matches = new ArrayList<>();
+    for (Analysis analysis : analyses) {
+      if (analysis != null && !analysis.annotationType() && !analysis.pending()
+          && !Collections.disjoint(analysis.annotations(), handlerAnnotations)) {
+        matches.add(analysis.className());
       }
     }
     return matches;
   }
 
   /**
-   * Helper to check for a specific annotation descriptor on an element (Method or Class).
+   * Reads and analyzes a single class. Classes that do not refer to any of the given handler annotations
+   * are not parsed, they are marked as pending if they use annotations and any annotation type might still
+   * turn out to be a handler annotation.
+   *
+   * @return The analysis or null if the class can not define handlers
+   */
+  private Analysis analyze(ClassSource source, byte[][] handlerAnnotations, boolean resolveAnnotationTypes) {
+    try {
+      byte[] classBytes = source.read();
+      ConstantPool constantPool = ConstantPool.read(classBytes);
+      boolean annotationType = (constantPool.getAccessFlags() & ACC_ANNOTATION) != 0;
+      if (annotationType && !resolveAnnotationTypes) {
+        return null;
+      }
+      if (!annotationType && !containsAny(constantPool, handlerAnnotations)) {
+        return resolveAnnotationTypes && containsAny(constantPool, ANNOTATION_ATTRIBUTES)
+            ? new Analysis(source.className(), false, true, Set.of())
+            : null;
+      }
+
+      ClassModel classModel = ClassFile.of().parse(classBytes);
+      Set<String> annotations = new HashSet<>();
+      if (annotationType) {
+        // the meta-annotations of the annotation type
+        collectAnnotations(classModel, annotations);
+      } else {
+        for (MethodModel method : classModel.methods()) {
+          collectAnnotations(method, annotations);
+        }
+      }
+      return new Analysis(source.className(), annotationType, false, annotations);
+    } catch (Throwable e) {
+      // Ignore classes that cannot be read or parsed
+      return null;
+    }
+  }
+
+  private static boolean containsAny(ConstantPool constantPool, byte[][] constants) {
+    for (byte[] constant : constants) {
+      if (constantPool.contains(constant)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Helper to collect the annotation descriptors of an element (Method or Class).
    * Handles both RuntimeVisible and RuntimeInvisible attributes.
    */
-  private boolean hasAnnotation(AttributedElement element, String descriptor) {
+  private void collectAnnotations(AttributedElement element, Set<String> descriptors) {
     for (var attr : element.attributes()) {
       List<Annotation> annotations = null;
       if (attr instanceof RuntimeVisibleAnnotationsAttribute rva) {
@@ -89,42 +193,41 @@ public class ClassFileHandlerScanner {
 
       if (annotations != null) {
         for (Annotation a : annotations) {
-          if (a.className().stringValue().equals(descriptor)) {
-            return true;
-          }
+          descriptors.add(a.className().stringValue());
         }
       }
     }
-    return false;
-  }
-
-  private byte[] readClassBytes(String className) throws IOException {
-    String resourceName = className.replace('.', '/') + ".class";
-    try (InputStream is = Thread.currentThread().getContextClassLoader().getResourceAsStream(resourceName)) {
-      if (is == null) return null;
-      return is.readAllBytes();
-    }
   }
 
-  private Set<String> discoverClassNames(String basePackage) throws IOException, URISyntaxException {
-    Set<String> classNames = new HashSet<>();
+  private Map<String, ClassSource> discoverClasses(String basePackage, Set<String> indexedClassNames, List<JarFile> jars)
+      throws IOException, URISyntaxException {
+    // the first class of a given name wins, like it does for the class loader
+    Map<String, ClassSource> classes = new LinkedHashMap<>();
     ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
     String path = basePackage.replace('.', '/');
     Enumeration<URL> resources = classLoader.getResources(path);
 
     while (resources.hasMoreElements()) {
       URL resource = resources.nextElement();
-      if ("file".equals(resource.getProtocol())) {
-        classNames.addAll(findClassesInDirectory(basePackage, Paths.get(resource.toURI())));
+      Set<String> indexed = ListenerIndex.read(resource, basePackage);
+      if (indexed != null) {
+        // Indexed at build time, no need to list and parse the classes of this root
+        indexedClassNames.addAll(indexed);
+      } else if ("file".equals(resource.getProtocol())) {
+        for (ClassSource source : findClassesInDirectory(basePackage, Paths.get(resource.toURI()))) {
+          classes.putIfAbsent(source.className(), source);
+        }
       } else if ("jar".equals(resource.getProtocol())) {
-        classNames.addAll(findClassesInJar(basePackage, resource));
+        for (ClassSource source : findClassesInJar(basePackage, resource, jars)) {
+          classes.putIfAbsent(source.className(), source);
+        }
       }
     }
-    return classNames;
+    return classes;
   }
 
-  private Set<String> findClassesInDirectory(String basePackage, Path directory) throws IOException {
-    Set<String> classes = new HashSet<>();
+  private List<ClassSource> findClassesInDirectory(String basePackage, Path directory) throws IOException {
+    List<ClassSource> classes = new ArrayList<>();
     if (!Files.isDirectory(directory)) return classes;
 
     // Create the path segment corresponding to the package (e.g., "com/example")
@@ -141,28 +244,73 @@ public class ClassFileHandlerScanner {
                   .substring(packageStartIndex)
                   .replace(File.separatorChar, '.')
                   .replace(".class", "");
-              classes.add(className);
+              classes.add(new DirectoryClass(className, path));
             }
           });
     }
     return classes;
   }
 
-  private Set<String> findClassesInJar(String basePackage, URL jarUrl) throws IOException {
-    Set<String> classes = new HashSet<>();
+  private List<ClassSource> findClassesInJar(String basePackage, URL jarUrl, List<JarFile> jars) throws IOException {
+    List<ClassSource> classes = new ArrayList<>();
     JarURLConnection conn = (JarURLConnection) jarUrl.openConnection();
+    // the jar stays open until the classes have been analyzed and is closed by the scan, it must not be shared
+    conn.setUseCaches(false);
     String pathPrefix = basePackage.replace('.', '/') + "/";
 
-    try (JarFile jar = conn.getJarFile()) {
-      Enumeration<JarEntry> entries = jar.entries();
-      while (entries.hasMoreElements()) {
-        JarEntry entry = entries.nextElement();
-        String name = entry.getName();
-        if (name.startsWith(pathPrefix) && name.endsWith(".class") && !entry.isDirectory()) {
-          classes.add(name.replace('/', '.').replace(".class", ""));
-        }
+    JarFile jar = conn.getJarFile();
+    jars.add(jar);
+    Enumeration<JarEntry> entries = jar.entries();
+    while (entries.hasMoreElements()) {
+      JarEntry entry = entries.nextElement();
+      String name = entry.getName();
+      if (name.startsWith(pathPrefix) && name.endsWith(".class") && !entry.isDirectory()) {
+        classes.add(new JarClass(name.replace('/', '.').replace(".class", ""), jar, entry));
       }
     }
     return classes;
   }
-}
\ No newline at end of file
+
+  /**
+   * A class file that has been discovered in a directory or jar.
+   */
+  private interface ClassSource {
+
+    String className();
+
+    byte[] read() throws IOException;
+  }
+
+  private record DirectoryClass(String className, Path path) implements ClassSource {
+
+    @Override
+    public byte[] read() throws IOException {
+      return Files.readAllBytes(path);
+    }
+  }
+
+  // JarFile is thread-safe, entries can be read concurrently
+  private record JarClass(String className, JarFile jar, JarEntry entry) implements ClassSource {
+
+    @Override
+    public byte[] read() throws IOException {
+      try (InputStream is = jar.getInputStream(entry)) {
+        return is.readAllBytes();
+      }
+    }
+  }
+
+  /**
+   * The result of analyzing a single class.
+   *
+   * @param annotationType True if the class is an annotation type
+   * @param pending True if the class has not been parsed yet because it does not refer to @Handler directly
+   * @param annotations The meta-annotations of an annotation type or the annotations of all methods of any other class
+   */
+  private record Analysis(String className, boolean annotationType, boolean pending, Set<String> annotations) {
+
+    String descriptor() {
+      return "L" + className.replace('.', '/') + ";";
+    }
+  }
+}
@@ -0,0 +1,133 @@
+package net.engio.mbassy.scan;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+/**
+ * A minimal reader of the constant pool of a class file. It only records the positions of the
+ * UTF-8 constants such that a scanner can reject a class by the names and descriptors it references
+ * before the class file is parsed completely.
+ */
+public class ConstantPool {
+
+  private static final int MAGIC = 0xCAFEBABE;
+
+  private final byte[] classFile;
+
+  // offsets of the bytes of all UTF-8 constants, each preceded by its u2 length
+  private final int[] utf8;
+
+  private final int utf8Count;
+
+  private final int accessFlags;
+
+  private ConstantPool(byte[] classFile, int[] utf8, int utf8Count, int accessFlags) {
+    this.classFile = classFile;
+    this.utf8 = utf8;
+    this.utf8Count = utf8Count;
+    this.accessFlags = accessFlags;
+  }
+
+  /**
+   * Reads the constant pool of the given class file.
+   *
+   * @throws IllegalArgumentException If the bytes are not a valid class file
+   */
+  public static ConstantPool read(byte[] classFile) {
+    try {
+      if (readInt(classFile, 0) != MAGIC) {
+        throw new IllegalArgumentException("Not a class file");
+      }
+      int count = readUnsignedShort(classFile, 8);
+      int[] utf8 = new int[count];
+      int utf8Count = 0;
+      int offset = 10;
+      for (int index = 1; index < count; index++) {
+        int tag = classFile[offset++];
+        switch (tag) {
+          case 1: // Utf8
+            utf8[utf8Count++] = offset;
+            offset += 2 + readUnsignedShort(classFile, offset);
+            break;
+          case 7: // Class
+          case 8: // String
+          case 16: // MethodType
+          case 19: // Module
+          case 20: // Package
+            offset += 2;
+            break;
+          case 15: // MethodHandle
+            offset += 3;
+            break;
+          case 3: // Integer
+          case 4: // Float
+          case 9: // Fieldref
+          case 10: // Methodref
+          case 11: // InterfaceMethodref
+          case 12: // NameAndType
+          case 17: // Dynamic
+          case 18: // InvokeDynamic
+            offset += 4;
+            break;
+          case 5: // Long
+          case 6: // Double
+            offset += 8;
+            index++; // takes two entries
+            break;
+          default:
+            throw new IllegalArgumentException("Unknown constant pool tag " + tag + " at " + (offset - 1));
+        }
+      }
+      return new ConstantPool(classFile, utf8, utf8Count, readUnsignedShort(classFile, offset));
+    } catch (ArrayIndexOutOfBoundsException e) {
+      throw new IllegalArgumentException("Truncated class file", e);
+    }
+  }
+
+  /**
+   * @param constant The constant in modified UTF-8 as returned by {@link #encode(String)}
+   * @return True if the constant pool contains the given UTF-8 constant
+   */
+  public boolean contains(byte[] constant) {
+    for (int i = 0; i < utf8Count; i++) {
+      int offset = utf8[i];
+      int length = readUnsignedShort(classFile, offset);
+      if (length == constant.length
+          && Arrays.equals(classFile, offset + 2, offset + 2 + length, constant, 0, length)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return The access flags of the class, see {@link java.lang.reflect.AccessFlag}
+   */
+  public int getAccessFlags() {
+    return accessFlags;
+  }
+
+  /**
+   * Encodes the given string the way it is stored in the constant pool (modified UTF-8).
+   */
+  public static byte[] encode(String constant) {
+    try {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      new DataOutputStream(bytes).writeUTF(constant);
+      return Arrays.copyOfRange(bytes.toByteArray(), 2, bytes.size());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static int readUnsignedShort(byte[] bytes, int offset) {
+    return ((bytes[offset] & 0xFF) << 8) | (bytes[offset + 1] & 0xFF);
+  }
+
+  private static int readInt(byte[] bytes, int offset) {
+    return (readUnsignedShort(bytes, offset) << 16) | readUnsignedShort(bytes, offset + 2);
+  }
+}
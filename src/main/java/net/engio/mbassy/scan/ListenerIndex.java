@@ -0,0 +1,87 @@
+package net.engio.mbassy.scan;
+
+import java.io.BufferedReader;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Reads the listener index that the annotation processor of the mbassador-processor module writes to
+ * {@value #Location}. The index lists the binary names of all concrete classes of a class path root
+ * (a directory or a jar) that declare message handlers, one per line. Empty lines and lines starting
+ * with '#' are ignored.
+ * <p/>
+ * The {@link ClassFileHandlerScanner} uses the index of each class path root that has one
+ * instead of reading the class files of that root.
+ */
+public class ListenerIndex {
+
+  public static final String Location = "META-INF/mbassador/listeners.idx";
+
+  /**
+   * Reads the index of the class path root that contains the given package resource.
+   *
+   * @param packageResource The resource of the package as returned by {@link ClassLoader#getResources(String)}
+   * @param packageName The package (e.g. "com.example.handlers")
+   * @return The indexed classes in the package and its sub packages or null if the class path root has no index
+   * @throws IOException If the index exists but can not be read.
+   */
+  public static Set<String> read(URL packageResource, String packageName) throws IOException {
+    URL index = getIndex(packageResource, packageName);
+    if (index == null) return null;
+    Set<String> classNames = new LinkedHashSet<>();
+    String prefix = packageName.isEmpty() ? "" : packageName + ".";
+    try (InputStream in = open(index)) {
+      if (in == null) return null;
+      BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+      String line;
+      while ((line = reader.readLine()) != null) {
+        line = line.trim();
+        if (!line.isEmpty() && !line.startsWith("#") && line.startsWith(prefix)) {
+          classNames.add(line);
+        }
+      }
+    }
+    return classNames;
+  }
+
+  // The package resource is <root>/<package path>, the index is <root>/META-INF/mbassador/listeners.idx
+  private static URL getIndex(URL packageResource, String packageName) throws MalformedURLException {
+    String resource = packageResource.toExternalForm();
+    String path = packageName.replace('.', '/');
+    if (resource.endsWith("/")) {
+      resource = resource.substring(0, resource.length() - 1);
+    }
+    if (!resource.endsWith(path)) return null;
+    String root = resource.substring(0, resource.length() - path.length());
+    if (!root.endsWith("/")) {
+      root = root + "/";
+    }
+    try {
+      return URI.create(root + Location).toURL();
+    } catch (IllegalArgumentException e) {
+      // not a valid URI (e.g. unencoded characters in the path): scan the root instead
+      return null;
+    }
+  }
+
+  private static InputStream open(URL index) throws IOException {
+    try {
+      URLConnection connection = index.openConnection();
+      // do not share the jar file with the scanner, which closes it when done
+      connection.setUseCaches(false);
+      return connection.getInputStream();
+    } catch (FileNotFoundException | NoSuchFileException e) {
+      return null;
+    }
+  }
+}
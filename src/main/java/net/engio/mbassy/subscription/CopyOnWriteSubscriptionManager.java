@@ -0,0 +1,240 @@
+package net.engio.mbassy.subscription;
+
+import net.engio.mbassy.bus.BusRuntime;
+import net.engio.mbassy.common.ReflectionUtils;
+import net.engio.mbassy.listener.MessageHandler;
+import net.engio.mbassy.listener.MetadataReader;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A subscription manager that never locks on the read path. All subscription mappings are kept in an immutable
+ * snapshot which is replaced atomically whenever a listener class is registered for the first time.
+ * Publications and subscriptions of already known listener classes only read the current snapshot.
+ * Writers (registration of new listener classes) are serialized among themselves but never block readers.
+ *
+ * This manager is best suited for buses with many concurrent publishers and a stable set of listener classes.
+ *
+ * @see CopyOnWriteSubscriptionManagerProvider
+ */
+public class CopyOnWriteSubscriptionManager extends SubscriptionManager {
+
+    // This factory is used to create specialized subscriptions based on the given message handler configuration
+    private final SubscriptionFactory subscriptionFactory;
+
+    private final BusRuntime runtime;
+
+    // The current (immutable) state of all subscription mappings
+    private final AtomicReference<Registry> registry = new AtomicReference<Registry>(new Registry());
+
+    // Remember already processed classes that do not contain any message handlers
+    private final Set<Class> nonListeners = ConcurrentHashMap.newKeySet();
+
+    // Serializes writers. Readers never acquire this lock
+    private final Object writeLock = new Object();
+
+    public CopyOnWriteSubscriptionManager(MetadataReader metadataReader, SubscriptionFactory subscriptionFactory, BusRuntime runtime) {
+        super(metadataReader, subscriptionFactory, runtime);
+        this.subscriptionFactory = subscriptionFactory;
+        this.runtime = runtime;
+    }
+
+    @Override
+    public boolean unsubscribe(Object listener) {
+        if (listener == null) {
+            return false;
+        }
+        Subscription[] subscriptions = registry.get().subscriptionsPerListener.get(listener.getClass());
+        if (subscriptions == null) {
+            return false;
+        }
+        boolean isRemoved = true;
+        for (Subscription subscription : subscriptions) {
+            isRemoved &= subscription.unsubscribe(listener);
+        }
+        return isRemoved;
+    }
+
+    @Override
+    public boolean unsubscribeAll(Collection<?> listeners) {
+        Registry current = registry.get();
+        boolean isRemoved = false;
+        for (Map.Entry<Class, List<Object>> listenersOfClass : groupByClass(listeners).entrySet()) {
+            Subscription[] subscriptions = current.subscriptionsPerListener.get(listenersOfClass.getKey());
+            if (subscriptions == null) {
+                continue;
+            }
+            for (Subscription subscription : subscriptions) {
+                isRemoved |= subscription.unsubscribeAll(listenersOfClass.getValue());
+            }
+        }
+        return isRemoved;
+    }
+
+    @Override
+    public void subscribe(Object listener) {
+        try {
+            subscribe(listener.getClass(), Collections.singletonList(listener));
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public void subscribeAll(Collection<?> listeners) {
+        try {
+            for (Map.Entry<Class, List<Object>> listenersOfClass : groupByClass(listeners).entrySet()) {
+                subscribe(listenersOfClass.getKey(), listenersOfClass.getValue());
+            }
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    // subscribe listeners that are all instances of the given class
+    private void subscribe(Class<?> listenerClass, Collection<?> listeners) throws Exception {
+        if (nonListeners.contains(listenerClass)) {
+            return; // early reject of known classes that do not define message handlers
+        }
+        Subscription[] subscriptionsByListener = registry.get().subscriptionsPerListener.get(listenerClass);
+        // the listener class is already known -> no change of the registry necessary
+        if (subscriptionsByListener != null) {
+            for (Subscription sub : subscriptionsByListener) {
+                sub.subscribeAll(listeners);
+            }
+            return;
+        }
+        MessageHandler[] messageHandlers = getMessageHandlers(listenerClass);
+        if (messageHandlers.length == 0) {  // remember the class as non listening class if no handlers are found
+            nonListeners.add(listenerClass);
+            return;
+        }
+        Subscription[] subscriptions = new Subscription[messageHandlers.length];
+        for (int i = 0; i < messageHandlers.length; i++) {
+            subscriptions[i] = subscriptionFactory.createSubscription(runtime, messageHandlers[i]);
+        }
+        register(listenerClass, listeners, subscriptions);
+    }
+
+    // publish a new snapshot that includes the given subscriptions unless another thread
+    // registered the same listener class in the mean-time
+    private void register(Class<?> listenerClass, Collection<?> listeners, Subscription[] subscriptions) {
+        synchronized (writeLock) {
+            Registry current = registry.get();
+            Subscription[] existing = current.subscriptionsPerListener.get(listenerClass);
+            if (existing == null) {
+                // the listeners must be added before the subscriptions become visible to publications
+                for (Subscription subscription : subscriptions) {
+                    subscription.subscribeAll(listeners);
+                }
+                registry.set(current.with(listenerClass, subscriptions));
+                return;
+            }
+            subscriptions = existing;
+        }
+        // the rare case when multiple threads concurrently subscribed the same class for the first time
+        for (Subscription subscription : subscriptions) {
+            subscription.subscribeAll(listeners);
+        }
+    }
+
+    @Override
+    public Collection<Subscription> getSubscriptionsByMessageType(Class messageType) {
+        return new ArrayList<Subscription>(Arrays.asList(getSortedSubscriptions(messageType)));
+    }
+
+    @Override
+    public Subscription[] getSortedSubscriptions(Class messageType) {
+        return registry.get().getSortedSubscriptions(messageType);
+    }
+
+    /**
+     * An immutable snapshot of all subscription mappings. Only the dispatch tables are computed lazily
+     * and since they are derived from the immutable mappings, they remain valid for the lifetime of the snapshot.
+     */
+    private static final class Registry {
+
+        private static final Subscription[] None = new Subscription[0];
+
+        private final Map<Class, Subscription[]> subscriptionsPerListener;
+
+        private final Map<Class, Subscription[]> subscriptionsPerMessage;
+
+        private final ConcurrentHashMap<Class, Subscription[]> subscriptionsPerConcreteType;
+
+        private Registry() {
+            this(Collections.<Class, Subscription[]>emptyMap(), Collections.<Class, Subscription[]>emptyMap(),
+                    new ConcurrentHashMap<Class, Subscription[]>());
+        }
+
+        private Registry(Map<Class, Subscription[]> subscriptionsPerListener,
+                         Map<Class, Subscription[]> subscriptionsPerMessage,
+                         ConcurrentHashMap<Class, Subscription[]> subscriptionsPerConcreteType) {
+            this.subscriptionsPerListener = subscriptionsPerListener;
+            this.subscriptionsPerMessage = subscriptionsPerMessage;
+            this.subscriptionsPerConcreteType = subscriptionsPerConcreteType;
+        }
+
+        // create a copy of this registry that additionally contains the subscriptions of the given listener class
+        private Registry with(Class listenerClass, Subscription[] subscriptions) {
+            Map<Class, Subscription[]> perListener = new HashMap<Class, Subscription[]>(subscriptionsPerListener);
+            perListener.put(listenerClass, subscriptions);
+
+            Map<Class, Subscription[]> perMessage = new HashMap<Class, Subscription[]>(subscriptionsPerMessage);
+            for (Subscription subscription : subscriptions) {
+                for (Class<?> messageType : subscription.getHandledMessageTypes()) {
+                    Subscription[] known = perMessage.get(messageType);
+                    Subscription[] extended = known == null
+                            ? new Subscription[1]
+                            : Arrays.copyOf(known, known.length + 1);
+                    extended[extended.length - 1] = subscription;
+                    perMessage.put(messageType, extended);
+                }
+            }
+
+            // carry over all dispatch tables that are not affected by the new subscriptions
+            ConcurrentHashMap<Class, Subscription[]> perConcreteType = new ConcurrentHashMap<Class, Subscription[]>(subscriptionsPerConcreteType);
+            Iterator<Class> messageTypes = perConcreteType.keySet().iterator();
+            while (messageTypes.hasNext()) {
+                Class messageType = messageTypes.next();
+                for (Subscription subscription : subscriptions) {
+                    if (subscription.handlesMessageType(messageType)) {
+                        messageTypes.remove();
+                        break;
+                    }
+                }
+            }
+            return new Registry(Collections.unmodifiableMap(perListener), Collections.unmodifiableMap(perMessage), perConcreteType);
+        }
+
+        private Subscription[] getSortedSubscriptions(Class messageType) {
+            Subscription[] subscriptions = subscriptionsPerConcreteType.get(messageType);
+            if (subscriptions == null) {
+                subscriptions = collectSubscriptions(messageType);
+                cacheDispatchTable(subscriptionsPerConcreteType, messageType, subscriptions);
+            }
+            return subscriptions;
+        }
+
+        private Subscription[] collectSubscriptions(Class messageType) {
+            Set<Subscription> subscriptions = new TreeSet<Subscription>(Subscription.SubscriptionByPriorityDesc);
+            Subscription[] subsPerMessage = subscriptionsPerMessage.get(messageType);
+            if (subsPerMessage != null) {
+                Collections.addAll(subscriptions, subsPerMessage);
+            }
+            for (Class eventSuperType : ReflectionUtils.getSuperTypeHierarchy(messageType)) {
+                Subscription[] subs = subscriptionsPerMessage.get(eventSuperType);
+                if (subs != null) {
+                    for (Subscription subscription : subs) {
+                        if (subscription.handlesMessageType(messageType)) {
+                            subscriptions.add(subscription);
+                        }
+                    }
+                }
+            }
+            return subscriptions.isEmpty() ? None : subscriptions.toArray(new Subscription[subscriptions.size()]);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package net.engio.mbassy.subscription;
+
+import net.engio.mbassy.bus.BusRuntime;
+import net.engio.mbassy.listener.MetadataReader;
+
+/**
+ * Provides a {@link CopyOnWriteSubscriptionManager} which does not lock on publication.
+ * Use it with {@link net.engio.mbassy.bus.config.Feature.SyncPubSub#setSubscriptionManagerProvider(ISubscriptionManagerProvider)}
+ */
+public class CopyOnWriteSubscriptionManagerProvider implements ISubscriptionManagerProvider {
+	@Override
+	public SubscriptionManager createManager(MetadataReader reader,
+			SubscriptionFactory factory, BusRuntime runtime) {
+		return new CopyOnWriteSubscriptionManager(reader, factory, runtime);
+	}
+}
@@ -76,9 +76,32 @@ public class Subscription {
         return context.getHandler().getPriority();
     }
 
+    /**
+     * Check whether the handler of this subscription is invoked asynchronously, i.e. after the dispatch returned.
+     */
+    public boolean isAsynchronous() {
+        return context.getHandler().isAsynchronous();
+    }
+
 
     public void subscribe(Object o) {
         listeners.add(o);
+        fireOnSubscription();
+    }
+
+    /**
+     * Add all given listeners with a single bulk operation. The subscription callbacks are run once
+     * for the whole batch, not per listener.
+     */
+    public void subscribeAll(Collection<?> listeners) {
+        if (listeners.isEmpty()) {
+            return;
+        }
+        this.listeners.addAll(listeners);
+        fireOnSubscription();
+    }
+
+    private void fireOnSubscription() {
         for(Runnable callback : onSubscription.toArray(new Runnable[]{})){
             callback.run();
         }
@@ -88,6 +111,15 @@ public class Subscription {
         return listeners.remove(existingListener);
     }
 
+    /**
+     * Remove all given listeners with a single bulk operation.
+     *
+     * @return true, if any of the listeners was removed
+     */
+    public boolean unsubscribeAll(Collection<?> existingListeners) {
+        return listeners.removeAll(existingListeners);
+    }
+
     public int size() {
         return listeners.size();
     }
@@ -1,9 +1,12 @@
 package net.engio.mbassy.subscription;
 
 import net.engio.mbassy.bus.BusRuntime;
+import net.engio.mbassy.bus.common.MessagePartitioner;
 import net.engio.mbassy.bus.config.IBusConfiguration;
 import net.engio.mbassy.bus.error.IPublicationErrorHandler;
 import net.engio.mbassy.bus.error.MessageBusException;
+import net.engio.mbassy.bus.metrics.IMetricsCollector;
+import net.engio.mbassy.common.NonBlockingConcurrentSet;
 import net.engio.mbassy.common.StrongConcurrentSet;
 import net.engio.mbassy.common.WeakConcurrentSet;
 import net.engio.mbassy.dispatch.*;
@@ -12,6 +15,7 @@ import net.engio.mbassy.listener.MessageHandler;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Modifier;
 import java.util.Collection;
+import java.util.Set;
 
 /**
  * The subscription factory is used to create an empty subscription for specific message handler.
@@ -19,15 +23,33 @@ import java.util.Collection;
  */
 public class SubscriptionFactory {
 
+    // use non-blocking listener sets instead of the lock based default implementations
+    private boolean nonBlockingListenerSets = false;
+
+    /**
+     * Configure whether subscriptions keep their listeners in a {@link NonBlockingConcurrentSet} instead of
+     * {@link StrongConcurrentSet} or {@link WeakConcurrentSet}. Non-blocking sets never lock on iteration or
+     * lookup which prevents publications from being blocked by concurrent (un)subscriptions.
+     *
+     * @param nonBlockingListenerSets true to use non-blocking sets for all subsequently created subscriptions
+     * @return A reference to <code>this</code> factory
+     */
+    public SubscriptionFactory setNonBlockingListenerSets(boolean nonBlockingListenerSets) {
+        this.nonBlockingListenerSets = nonBlockingListenerSets;
+        return this;
+    }
+
+    public boolean useNonBlockingListenerSets() {
+        return nonBlockingListenerSets;
+    }
+
     public Subscription createSubscription(BusRuntime runtime, MessageHandler handlerMetadata) throws MessageBusException{
         try {
             Collection<IPublicationErrorHandler> errorHandlers = runtime.get(IBusConfiguration.Properties.PublicationErrorHandlers);
             SubscriptionContext context = new SubscriptionContext(runtime, handlerMetadata, errorHandlers);
             IHandlerInvocation invocation = buildInvocationForHandler(context);
             IMessageDispatcher dispatcher = buildDispatcher(context, invocation);
-            return new Subscription(context, dispatcher, handlerMetadata.useStrongReferences()
-                ? new StrongConcurrentSet<Object>()
-                : new WeakConcurrentSet<Object>());
+            return new Subscription(context, dispatcher, createListenerSet(handlerMetadata));
         } catch (MessageBusException e) {
             throw e;
         } catch (Exception e) {
@@ -35,17 +57,64 @@ public class SubscriptionFactory {
         }
     }
 
+    protected Collection<Object> createListenerSet(MessageHandler handlerMetadata) {
+        if (nonBlockingListenerSets) {
+            return handlerMetadata.useStrongReferences()
+                ? NonBlockingConcurrentSet.<Object>strong()
+                : NonBlockingConcurrentSet.<Object>weak();
+        }
+        return handlerMetadata.useStrongReferences()
+            ? new StrongConcurrentSet<Object>()
+            : new WeakConcurrentSet<Object>();
+    }
+
     protected IHandlerInvocation buildInvocationForHandler(SubscriptionContext context) throws MessageBusException {
         IHandlerInvocation invocation = createBaseHandlerInvocation(context);
+        if (context.getRuntime().contains(IBusConfiguration.Properties.MetricsCollector)) {
+            IMetricsCollector metrics = context.getRuntime().get(IBusConfiguration.Properties.MetricsCollector);
+            invocation = new MeasuredHandlerInvocation(invocation, metrics);
+        }
         if(context.getHandler().isSynchronized()){
             invocation = new SynchronizedHandlerInvocation(invocation);
         }
+        if (context.getRuntime().contains(IBusConfiguration.Properties.HandlerWatchdog)) {
+            // waiting for the lock of a synchronized handler is part of the watched invocation
+            HandlerWatchdog watchdog = context.getRuntime().get(IBusConfiguration.Properties.HandlerWatchdog);
+            invocation = new WatchedHandlerInvocation(invocation, watchdog);
+        }
         if (context.getHandler().isAsynchronous()) {
-            invocation = new AsynchronousHandlerInvocation(invocation);
+            invocation = isConflated(context)
+                    ? new ConflatingHandlerInvocation(invocation, getConflationKeys(context))
+                    : new AsynchronousHandlerInvocation(invocation);
         }
         return invocation;
     }
 
+    // conflation is declared on the handler or configured for the handled message types
+    private boolean isConflated(SubscriptionContext context) {
+        if (context.getHandler().isConflated()) {
+            return true;
+        }
+        if (!context.getRuntime().contains(IBusConfiguration.Properties.ConflatedMessageTypes)) {
+            return false;
+        }
+        Set<Class<?>> conflatedTypes = context.getRuntime().get(IBusConfiguration.Properties.ConflatedMessageTypes);
+        for (Class<?> handledMessage : context.getHandler().getHandledMessages()) {
+            for (Class<?> conflatedType : conflatedTypes) {
+                if (conflatedType.isAssignableFrom(handledMessage)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private MessagePartitioner getConflationKeys(SubscriptionContext context) {
+        return context.getRuntime().contains(IBusConfiguration.Properties.ConflationKeys)
+                ? context.getRuntime().<MessagePartitioner>get(IBusConfiguration.Properties.ConflationKeys)
+                : new MessagePartitioner();
+    }
+
     protected IMessageDispatcher buildDispatcher(SubscriptionContext context, IHandlerInvocation invocation) throws MessageBusException {
         IMessageDispatcher dispatcher = new MessageDispatcher(context, invocation);
         if (context.getHandler().isEnveloped()) {
@@ -60,11 +129,26 @@ public class SubscriptionFactory {
     protected IHandlerInvocation createBaseHandlerInvocation(SubscriptionContext context) throws MessageBusException {
         Class<? extends HandlerInvocation> invocationClass = context.getHandler().getHandlerInvocation();
 
+        // Prefer the invoker that has been compiled with the listener
+        if (context.getHandler().getInvoker() != null
+                && (invocationClass.equals(ReflectiveHandlerInvocation.class) || invocationClass.equals(GeneratedHandlerInvocation.class))) {
+            return GeneratedHandlerInvocation.create(context, context.getHandler().getInvoker());
+        }
+
         // Use MethodHandleInvocation as the default implementation
         if (invocationClass.equals(ReflectiveHandlerInvocation.class)) {
             return new MethodHandleInvocation(context);
         }
 
+        // Generated invokers require access to the listener class, fall back to MethodHandleInvocation otherwise
+        if (invocationClass.equals(GeneratedHandlerInvocation.class)) {
+            try {
+                return GeneratedHandlerInvocation.create(context);
+            } catch (IllegalStateException e) {
+                return new MethodHandleInvocation(context);
+            }
+        }
+
         // Existing logic for custom invocations
         if(invocationClass.isMemberClass() && !Modifier.isStatic(invocationClass.getModifiers())){
             throw new MessageBusException("The handler invocation must be top level class or nested STATIC inner class");
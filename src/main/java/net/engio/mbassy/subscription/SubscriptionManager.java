@@ -1,12 +1,17 @@
 package net.engio.mbassy.subscription;
 
 import net.engio.mbassy.bus.BusRuntime;
+import net.engio.mbassy.bus.config.IBusConfiguration;
+import net.engio.mbassy.bus.error.IPublicationErrorHandler;
+import net.engio.mbassy.bus.error.InternalPublicationError;
 import net.engio.mbassy.common.ReflectionUtils;
 import net.engio.mbassy.common.StrongConcurrentSet;
 import net.engio.mbassy.listener.MessageHandler;
+import net.engio.mbassy.listener.MessageListener;
 import net.engio.mbassy.listener.MetadataReader;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock.ReadLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock.WriteLock;
@@ -36,6 +41,16 @@ public class SubscriptionManager {
     // once a collection of subscriptions is stored it does not change
     private final Map<Class, Subscription[]> subscriptionsPerListener;
 
+    // All subscriptions that match a concrete message type (including those of its super types), sorted by priority
+    // This is the dispatch table used for publication. Entries are created lazily on first publication of a type
+    // and are invalidated (under the write lock) when a newly registered listener class adds a matching subscription
+    // The number of cached tables is bounded by MaxDispatchTables, see cacheDispatchTable()
+    private final ConcurrentHashMap<Class, Subscription[]> subscriptionsPerConcreteType;
+
+    // The maximum number of message types for which a dispatch table is cached
+    // Buses that publish many distinct (e.g. generated or anonymous) message types would grow the cache without limit
+    static final int MaxDispatchTables = 4096;
+
     // Remember already processed classes that do not contain any message handlers
     private final StrongConcurrentSet<Class> nonListeners = new StrongConcurrentSet<Class>();
 
@@ -55,6 +70,7 @@ public class SubscriptionManager {
 
         subscriptionsPerMessage = new HashMap<Class, ArrayList<Subscription>>(256);
         subscriptionsPerListener = new HashMap<Class, Subscription[]>(256);
+        subscriptionsPerConcreteType = new ConcurrentHashMap<Class, Subscription[]>(256);
     }
 
 
@@ -62,7 +78,7 @@ public class SubscriptionManager {
         if (listener == null) {
             return false;
         }
-        Subscription[] subscriptions = getSubscriptionsByListener(listener);
+        Subscription[] subscriptions = getSubscriptionsByListener(listener.getClass());
         if (subscriptions == null) {
             return false;
         }
@@ -73,13 +89,33 @@ public class SubscriptionManager {
         return isRemoved;
     }
 
+    /**
+     * Unsubscribe all given listeners. The subscriptions are resolved once per listener class
+     * and all listeners of the same class are removed from each subscription with a single bulk operation.
+     *
+     * @return true, if any of the listeners was found and removed
+     */
+    public boolean unsubscribeAll(Collection<?> listeners) {
+        boolean isRemoved = false;
+        for (Map.Entry<Class, List<Object>> listenersOfClass : groupByClass(listeners).entrySet()) {
+            Subscription[] subscriptions = getSubscriptionsByListener(listenersOfClass.getKey());
+            if (subscriptions == null) {
+                continue;
+            }
+            for (Subscription subscription : subscriptions) {
+                isRemoved |= subscription.unsubscribeAll(listenersOfClass.getValue());
+            }
+        }
+        return isRemoved;
+    }
+
 
-    private Subscription[] getSubscriptionsByListener(Object listener) {
+    private Subscription[] getSubscriptionsByListener(Class listenerClass) {
         Subscription[] subscriptions;
         ReadLock readLock = readWriteLock.readLock();
         try {
             readLock.lock();
-            subscriptions = subscriptionsPerListener.get(listener.getClass());
+            subscriptions = subscriptionsPerListener.get(listenerClass);
         } finally {
             readLock.unlock();
         }
@@ -88,47 +124,99 @@ public class SubscriptionManager {
 
     public void subscribe(Object listener) {
         try {
-            Class<?> listenerClass = listener.getClass();
+            subscribe(listener.getClass(), Collections.singletonList(listener));
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
 
-            if (nonListeners.contains(listenerClass)) {
-                return; // early reject of known classes that do not define message handlers
+    /**
+     * Subscribe all given listeners. The listeners are grouped by their class such that the subscriptions
+     * are resolved (or created) once per listener class and all listeners of the same class are added to each
+     * subscription with a single bulk operation.
+     */
+    public void subscribeAll(Collection<?> listeners) {
+        try {
+            for (Map.Entry<Class, List<Object>> listenersOfClass : groupByClass(listeners).entrySet()) {
+                subscribe(listenersOfClass.getKey(), listenersOfClass.getValue());
             }
-            Subscription[] subscriptionsByListener = getSubscriptionsByListener(listener);
-            // a listener is either subscribed for the first time
-            if (subscriptionsByListener == null) {
-                MessageHandler[] messageHandlers = metadataReader.getMessageListener(listenerClass).getHandlers();
-                int length = messageHandlers.length;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
 
-                if (length == 0) {  // remember the class as non listening class if no handlers are found
-                    nonListeners.add(listenerClass);
-                    return;
-                }
-                subscriptionsByListener = new Subscription[length]; // it's safe to use non-concurrent collection here (read only)
+    // group the given listeners by their class, preserving the order of first occurrence
+    static Map<Class, List<Object>> groupByClass(Collection<?> listeners) {
+        Map<Class, List<Object>> listenersPerClass = new LinkedHashMap<Class, List<Object>>();
+        for (Object listener : listeners) {
+            if (listener == null) {
+                continue;
+            }
+            List<Object> listenersOfClass = listenersPerClass.get(listener.getClass());
+            if (listenersOfClass == null) {
+                listenersOfClass = new ArrayList<Object>();
+                listenersPerClass.put(listener.getClass(), listenersOfClass);
+            }
+            listenersOfClass.add(listener);
+        }
+        return listenersPerClass;
+    }
 
-                // create subscriptions for all detected message handlers
-                MessageHandler messageHandler;
-                for (int i=0; i<length; i++) {
-                    messageHandler = messageHandlers[i];
-                    subscriptionsByListener[i] = subscriptionFactory.createSubscription(runtime, messageHandler);
-                }
+    // subscribe listeners that are all instances of the given class
+    private void subscribe(Class<?> listenerClass, Collection<?> listeners) throws Exception {
+        if (nonListeners.contains(listenerClass)) {
+            return; // early reject of known classes that do not define message handlers
+        }
+        Subscription[] subscriptionsByListener = getSubscriptionsByListener(listenerClass);
+        // a listener is either subscribed for the first time
+        if (subscriptionsByListener == null) {
+            MessageHandler[] messageHandlers = getMessageHandlers(listenerClass);
+            int length = messageHandlers.length;
+
+            if (length == 0) {  // remember the class as non listening class if no handlers are found
+                nonListeners.add(listenerClass);
+                return;
+            }
+            subscriptionsByListener = new Subscription[length]; // it's safe to use non-concurrent collection here (read only)
 
-                // this will acquire a write lock and handle the case when another thread already subscribed
-                // this particular listener in the mean-time
-                subscribe(listener, subscriptionsByListener);
-            } // [1]...or the subscriptions already exists and must only be updated
-            else {
-                for (Subscription sub : subscriptionsByListener) {
-                    sub.subscribe(listener);
-                }
+            // create subscriptions for all detected message handlers
+            MessageHandler messageHandler;
+            for (int i=0; i<length; i++) {
+                messageHandler = messageHandlers[i];
+                subscriptionsByListener[i] = subscriptionFactory.createSubscription(runtime, messageHandler);
             }
 
-        } catch (Exception e) {
-            throw new RuntimeException(e);
+            // this will acquire a write lock and handle the case when another thread already subscribed
+            // this particular listener in the mean-time
+            subscribe(listenerClass, listeners, subscriptionsByListener);
+        } // [1]...or the subscriptions already exists and must only be updated
+        else {
+            for (Subscription sub : subscriptionsByListener) {
+                sub.subscribeAll(listeners);
+            }
         }
     }
 
+    /**
+     * Resolves the message handlers of a listener class that is subscribed for the first time.
+     * If the handlers generated at compile time could not be used, the error is reported to the
+     * publication error handlers of the bus before falling back to the handlers found by reflection.
+     */
+    protected MessageHandler[] getMessageHandlers(Class<?> listenerClass) {
+        MessageListener listener = metadataReader.getMessageListener(listenerClass);
+        Throwable compilationError = listener.getCompilationError();
+        if (compilationError != null && runtime.contains(IBusConfiguration.Properties.PublicationErrorHandlers)) {
+            InternalPublicationError error = new InternalPublicationError(compilationError,
+                    "Could not use the compiled listener of " + listenerClass.getName() + ", falling back to reflection");
+            Collection<IPublicationErrorHandler> errorHandlers = runtime.get(IBusConfiguration.Properties.PublicationErrorHandlers);
+            for (IPublicationErrorHandler handler : errorHandlers) {
+                handler.handleError(error);
+            }
+        }
+        return listener.getHandlers();
+    }
 
-    private void subscribe(Object listener, Subscription[] subscriptions) {
+    private void subscribe(Class<?> listenerClass, Collection<?> listeners, Subscription[] subscriptions) {
         WriteLock writeLock = readWriteLock.writeLock();
         try {
             writeLock.lock();
@@ -137,12 +225,12 @@ public class SubscriptionManager {
             // is not possible.
             // The alternative of using a write lock from the beginning would decrease performance dramatically
             // due to the read heavy read:write ratio
-            Subscription[] subscriptionsByListener = getSubscriptionsByListener(listener);
+            Subscription[] subscriptionsByListener = getSubscriptionsByListener(listenerClass);
 
             if (subscriptionsByListener == null) {
                 for (int i=0, n=subscriptions.length; i<n; i++) {
                     Subscription subscription = subscriptions[i];
-                    subscription.subscribe(listener);
+                    subscription.subscribeAll(listeners);
 
                     for (Class<?> messageType : subscription.getHandledMessageTypes()) {
                         // associate a subscription with a message type
@@ -155,14 +243,15 @@ public class SubscriptionManager {
                     }
                 }
 
-                subscriptionsPerListener.put(listener.getClass(), subscriptions);
+                subscriptionsPerListener.put(listenerClass, subscriptions);
+                invalidateDispatchTables(subscriptions);
             }
             // the rare case when multiple threads concurrently subscribed the same class for the first time
             // one will be first, all others will subscribe to the newly created subscriptions
             else {
                 for (int i=0, n=subscriptionsByListener.length; i<n; i++) {
                     Subscription existingSubscription = subscriptionsByListener[i];
-                    existingSubscription.subscribe(listener);
+                    existingSubscription.subscribeAll(listeners);
                 }
             }
         } finally {
@@ -170,39 +259,93 @@ public class SubscriptionManager {
         }
     }
 
+    // remove all cached dispatch tables that are affected by the given (new) subscriptions
+    // Note: This method is expected to be called while holding the write lock
+    private void invalidateDispatchTables(Subscription[] subscriptions) {
+        Iterator<Class> messageTypes = subscriptionsPerConcreteType.keySet().iterator();
+        while (messageTypes.hasNext()) {
+            Class messageType = messageTypes.next();
+            for (Subscription subscription : subscriptions) {
+                if (subscription.handlesMessageType(messageType)) {
+                    messageTypes.remove();
+                    break;
+                }
+            }
+        }
+    }
+
     // obtain the set of subscriptions for the given message type
     // Note: never returns null!
     public Collection<Subscription> getSubscriptionsByMessageType(Class messageType) {
-        Set<Subscription> subscriptions = new TreeSet<Subscription>(Subscription.SubscriptionByPriorityDesc);
+        return new ArrayList<Subscription>(Arrays.asList(getSortedSubscriptions(messageType)));
+    }
+
+    /**
+     * Get all subscriptions that match the given message type, sorted by priority (DESC). The returned array
+     * is shared between all publications of the same message type and must not be modified.
+     * The array is computed on first access and reused until a newly subscribed listener class
+     * defines a handler for the message type.
+     *
+     * @param messageType The concrete type of the published message
+     * @return An immutable, priority ordered array of subscriptions. Never null.
+     */
+    public Subscription[] getSortedSubscriptions(Class messageType) {
+        Subscription[] subscriptions = subscriptionsPerConcreteType.get(messageType);
+        if (subscriptions != null) {
+            return subscriptions;
+        }
         ReadLock readLock = readWriteLock.readLock();
         try {
             readLock.lock();
+            // the dispatch table is published while holding the read lock such that a concurrent
+            // subscription of a new listener class can not miss invalidating it
+            subscriptions = collectSubscriptions(messageType);
+            cacheDispatchTable(subscriptionsPerConcreteType, messageType, subscriptions);
+        } finally {
+            readLock.unlock();
+        }
+        return subscriptions;
+    }
 
-            Subscription subscription;
-            ArrayList<Subscription> subsPerMessage = subscriptionsPerMessage.get(messageType);
-
-            if (subsPerMessage != null) {
-                subscriptions.addAll(subsPerMessage);
+    // cache the dispatch table of a message type. When the cache is full, an arbitrary table is evicted first
+    // such that the cache stays bounded while the tables of frequently published types are quickly restored
+    static void cacheDispatchTable(ConcurrentHashMap<Class, Subscription[]> dispatchTables, Class messageType, Subscription[] subscriptions) {
+        if (dispatchTables.size() >= MaxDispatchTables) {
+            Iterator<Class> cached = dispatchTables.keySet().iterator();
+            if (cached.hasNext()) {
+                cached.next();
+                cached.remove();
             }
+        }
+        dispatchTables.put(messageType, subscriptions);
+    }
 
-            Class[] types = ReflectionUtils.getSuperTypes(messageType);
-            for (int i=0, n=types.length; i<n; i++) {
-                Class eventSuperType = types[i];
-                
-                ArrayList<Subscription> subs = subscriptionsPerMessage.get(eventSuperType);
-                if (subs != null) {
-                    for (int j = 0,m=subs.size(); j<m; j++) {
-                        subscription = subs.get(j);
-
-                        if (subscription.handlesMessageType(messageType)) {
-                            subscriptions.add(subscription);
-                        }
+    // collect all subscriptions for the given message type from the subscription maps
+    // Note: This method is expected to be called while holding the read lock
+    private Subscription[] collectSubscriptions(Class messageType) {
+        Set<Subscription> subscriptions = new TreeSet<Subscription>(Subscription.SubscriptionByPriorityDesc);
+        Subscription subscription;
+        ArrayList<Subscription> subsPerMessage = subscriptionsPerMessage.get(messageType);
+
+        if (subsPerMessage != null) {
+            subscriptions.addAll(subsPerMessage);
+        }
+
+        Class[] types = ReflectionUtils.getSuperTypeHierarchy(messageType);
+        for (int i=0, n=types.length; i<n; i++) {
+            Class eventSuperType = types[i];
+
+            ArrayList<Subscription> subs = subscriptionsPerMessage.get(eventSuperType);
+            if (subs != null) {
+                for (int j = 0,m=subs.size(); j<m; j++) {
+                    subscription = subs.get(j);
+
+                    if (subscription.handlesMessageType(messageType)) {
+                        subscriptions.add(subscription);
                     }
                 }
             }
-        }finally{
-            readLock.unlock();
         }
-        return subscriptions;
+        return subscriptions.toArray(new Subscription[subscriptions.size()]);
     }
 }
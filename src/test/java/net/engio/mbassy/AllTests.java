@@ -20,11 +20,31 @@ import org.junit.runners.Suite;
         MethodDispatchTest.class,
         StrongConcurrentSetTest.class,
         SubscriptionManagerTest.class,
+        CopyOnWriteSubscriptionManagerTest.class,
         SyncAsyncTest.class,
         SyncBusTest.MBassadorTest.class,
         SyncBusTest.SyncMessageBusTest.class,
         SynchronizedHandlerTest.class,
         WeakConcurrentSetTest.class,
+        NonBlockingConcurrentSetTest.class,
+        WeakNonBlockingConcurrentSetTest.class,
+        RingBufferQueueTest.class,
+        BatchPublicationTest.class,
+        FireAndForgetTest.class,
+        MetricsTest.class,
+        PartitionedDispatchTest.class,
+        WorkStealingDispatchTest.class,
+        ShardedDispatchTest.class,
+        BackpressureTest.class,
+        ConflationTest.class,
+        ParallelPublicationTest.class,
+        CompletionTest.class,
+        WatchdogTest.class,
+        CompiledListenerTest.class,
+        GeneratedHandlerInvocationTest.class,
+        ListenerIndexTest.class,
+        ConstantPoolTest.class,
+        ReflectionUtilsTest.class,
         AutoScanUsageTest.class
 })
 public class AllTests {
@@ -7,12 +7,15 @@ import net.engio.mbassy.bus.common.IMessageBus;
 import net.engio.mbassy.bus.config.BusConfiguration;
 import net.engio.mbassy.bus.config.Feature;
 import net.engio.mbassy.common.MessageBusTest;
+import net.engio.mbassy.common.RingBufferQueue;
 import net.engio.mbassy.listener.Handler;
 import net.engio.mbassy.listener.Invoke;
 import org.junit.Test;
 
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 /**
  *
@@ -57,6 +60,74 @@ public class AsyncFIFOBusTest extends MessageBusTest {
 
     }
 
+    @Test
+    public void testSingleThreadedSyncFIFOWithRingBuffer(){
+        BusConfiguration asyncFIFOConfig = new BusConfiguration();
+        asyncFIFOConfig.addFeature(Feature.SyncPubSub.Default());
+        asyncFIFOConfig.addFeature(Feature.AsynchronousHandlerInvocation.Default(1, 1));
+        asyncFIFOConfig.addFeature(Feature.AsynchronousMessageDispatch.RingBuffer(64, RingBufferQueue.WaitStrategy.Park).setNumberOfMessageDispatchers(1));
+        IMessageBus fifoBUs = new MBassador(asyncFIFOConfig);
+
+        List<SyncListener> listeners = new LinkedList<SyncListener>();
+        for(int i = 0; i < 1000 ; i++){
+            SyncListener listener = new SyncListener();
+            listeners.add(listener);
+            fifoBUs.subscribe(listener);
+        }
+
+        // prepare set of messages in increasing order
+        int[] messages = new int[1000];
+        for(int i = 0; i < messages.length ; i++){
+             messages[i] = i;
+        }
+        // publish in ascending order
+        for(Integer message : messages)
+            fifoBUs.post(message).asynchronously();
+
+        while(fifoBUs.hasPendingMessages())
+            pause(1000);
+
+        for(SyncListener listener : listeners){
+            assertEquals(messages.length, listener.receivedSync.size());
+            for(int i=0; i < messages.length; i++){
+                assertEquals(messages[i], listener.receivedSync.get(i));
+            }
+        }
+
+    }
+
+    @Test
+    public void testTakenPublicationsArePending() throws InterruptedException {
+        BusConfiguration config = new BusConfiguration();
+        config.addFeature(Feature.SyncPubSub.Default());
+        config.addFeature(Feature.AsynchronousHandlerInvocation.Default(1, 1));
+        config.addFeature(Feature.AsynchronousMessageDispatch.RingBuffer(64, RingBufferQueue.WaitStrategy.Park).setNumberOfMessageDispatchers(1));
+        IMessageBus bus = new MBassador(config);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        Object listener = new Object() {
+            @Handler
+            public void handle(Integer message) throws InterruptedException {
+                started.countDown();
+                release.await();
+            }
+        };
+        bus.subscribe(listener);
+        bus.post(1).asynchronously();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        // the publication has been taken from the queue by the dispatcher but is not yet dispatched
+        assertTrue(bus.hasPendingMessages());
+        release.countDown();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (bus.hasPendingMessages() && System.currentTimeMillis() < deadline) {
+            pause(10);
+        }
+        assertFalse(bus.hasPendingMessages());
+        // keep the listener reachable, it is referenced weakly by the bus
+        assertTrue(bus.unsubscribe(listener));
+        bus.shutdown();
+    }
+
     @Test
     public void testSingleThreadedSyncAsyncFIFO(){
         BusConfiguration asyncFIFOConfig = new BusConfiguration();
@@ -0,0 +1,260 @@
+package net.engio.mbassy;
+
+import net.engio.mbassy.bus.IMessagePublication;
+import net.engio.mbassy.bus.MBassador;
+import net.engio.mbassy.bus.common.DeadMessage;
+import net.engio.mbassy.bus.config.BackpressurePolicy;
+import net.engio.mbassy.bus.config.BusConfiguration;
+import net.engio.mbassy.bus.config.ConfigurationError;
+import net.engio.mbassy.bus.config.Feature;
+import net.engio.mbassy.bus.metrics.BusMetrics;
+import net.engio.mbassy.common.MessageBusTest;
+import net.engio.mbassy.listener.Handler;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests the backpressure policies that are applied if the bounded queue of pending publications is full
+ *
+ * @see BackpressurePolicy
+ */
+public class BackpressureTest extends MessageBusTest {
+
+    private static final int Capacity = 2;
+
+    @Test
+    public void testDropNewest() {
+        StalledListener listener = new StalledListener();
+        MBassador bus = stalledBus(Feature.AsynchronousMessageDispatch.Bounded(Capacity, BackpressurePolicy.DropNewest()), listener);
+
+        bus.post("a").asynchronously();
+        bus.post("b").asynchronously();
+        IMessagePublication dropped = bus.post("c").asynchronously();
+        bus.post("d").asynchronously();
+        assertFalse(dropped.isScheduled());
+        assertTrue(dropped.getCompletion().isCompletedExceptionally());
+        assertEquals(2L, bus.getDroppedMessageCount());
+
+        release(bus, listener);
+        assertEquals(Arrays.asList("stall", "a", "b"), listener.received);
+    }
+
+    @Test
+    public void testDropOldest() {
+        StalledListener listener = new StalledListener();
+        MBassador bus = stalledBus(Feature.AsynchronousMessageDispatch.Bounded(Capacity, BackpressurePolicy.DropOldest()), listener);
+
+        IMessagePublication dropped = bus.post("a").asynchronously();
+        bus.post("b").asynchronously();
+        bus.post("c").asynchronously();
+        bus.post("d").asynchronously();
+        assertFalse(dropped.isScheduled());
+        assertTrue(dropped.getCompletion().isCompletedExceptionally());
+        assertEquals(2L, bus.getDroppedMessageCount());
+
+        release(bus, listener);
+        assertEquals(Arrays.asList("stall", "c", "d"), listener.received);
+    }
+
+    @Test
+    public void testBlockInterrupted() {
+        StalledListener listener = new StalledListener();
+        MBassador bus = stalledBus(Feature.AsynchronousMessageDispatch.Bounded(Capacity, BackpressurePolicy.Block()), listener);
+
+        bus.post("a").asynchronously();
+        bus.post("b").asynchronously();
+        Thread.currentThread().interrupt();
+        IMessagePublication interrupted = bus.post("c").asynchronously();
+        // the interrupt is preserved for the caller
+        assertTrue(Thread.interrupted());
+        assertFalse(interrupted.isScheduled());
+        assertTrue(interrupted.getCompletion().isCompletedExceptionally());
+
+        release(bus, listener);
+        assertEquals(Arrays.asList("stall", "a", "b"), listener.received);
+    }
+
+    @Test
+    public void testSample() {
+        StalledListener listener = new StalledListener();
+        MBassador bus = stalledBus(Feature.AsynchronousMessageDispatch.Bounded(Capacity, BackpressurePolicy.Sample(2)), listener);
+
+        for (String message : Arrays.asList("a", "b", "c", "d", "e")) {
+            bus.post(message).asynchronously();
+        }
+        assertEquals(3L, bus.getDroppedMessageCount());
+
+        release(bus, listener);
+        assertEquals(Arrays.asList("stall", "c", "e"), listener.received);
+    }
+
+    @Test
+    public void testCallerRuns() {
+        StalledListener listener = new StalledListener();
+        MBassador bus = stalledBus(Feature.AsynchronousMessageDispatch.Bounded(Capacity, BackpressurePolicy.CallerRuns()), listener);
+
+        bus.post("a").asynchronously();
+        bus.post("b").asynchronously();
+        IMessagePublication publication = bus.post("c").asynchronously();
+        assertTrue(publication.isFinished());
+        assertEquals(Arrays.asList("c"), listener.received);
+        assertEquals(Thread.currentThread().getName(), listener.threads.get(0));
+        assertEquals(0L, bus.getDroppedMessageCount());
+
+        release(bus, listener);
+        assertEquals(Arrays.asList("c", "stall", "a", "b"), listener.received);
+    }
+
+    @Test
+    public void testBlockWithTimeout() {
+        StalledListener listener = new StalledListener();
+        MBassador bus = stalledBus(Feature.AsynchronousMessageDispatch.Bounded(Capacity,
+                BackpressurePolicy.BlockWithTimeout(50, TimeUnit.MILLISECONDS)), listener);
+
+        bus.post("a").asynchronously();
+        bus.post("b").asynchronously();
+        long start = System.nanoTime();
+        IMessagePublication dropped = bus.post("c").asynchronously();
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+        assertFalse(dropped.isScheduled());
+        assertEquals(1L, bus.getDroppedMessageCount());
+
+        release(bus, listener);
+        assertEquals(Arrays.asList("stall", "a", "b"), listener.received);
+    }
+
+    @Test
+    public void testBoundedPartitionedDispatch() {
+        StalledListener listener = new StalledListener();
+        MBassador bus = stalledBus(Feature.AsynchronousMessageDispatch.Partitioned(1)
+                .setQueueCapacity(Capacity).setBackpressure(BackpressurePolicy.DropNewest()), listener);
+
+        bus.post("a").asynchronously();
+        bus.post("b").asynchronously();
+        IMessagePublication dropped = bus.post("c").asynchronously();
+        assertFalse(dropped.isScheduled());
+        assertEquals(1L, bus.getDroppedMessageCount());
+
+        release(bus, listener);
+        assertEquals(Arrays.asList("stall", "a", "b"), listener.received);
+    }
+
+    @Test
+    public void testBoundedShardedDispatch() {
+        StalledListener listener = new StalledListener();
+        MBassador bus = stalledBus(Feature.AsynchronousMessageDispatch.Sharded(1, Feature.AsynchronousMessageDispatch.ShardSelection.RoundRobin)
+                .setQueueCapacity(Capacity).setBackpressure(BackpressurePolicy.DropNewest()), listener);
+
+        bus.post("a").asynchronously();
+        bus.post("b").asynchronously();
+        IMessagePublication dropped = bus.post("c").asynchronously();
+        assertFalse(dropped.isScheduled());
+        assertEquals(1L, bus.getDroppedMessageCount());
+
+        release(bus, listener);
+        assertEquals(Arrays.asList("stall", "a", "b"), listener.received);
+    }
+
+    @Test
+    public void testBoundedWorkStealingIsRejected() {
+        Feature.AsynchronousMessageDispatch dispatch = Feature.AsynchronousMessageDispatch.WorkStealing(1).setQueueCapacity(Capacity);
+        try {
+            createBus(new BusConfiguration()
+                    .addFeature(Feature.SyncPubSub.Default())
+                    .addFeature(Feature.AsynchronousHandlerInvocation.Default())
+                    .addFeature(dispatch));
+            fail("Expected a bounded work-stealing dispatch to be rejected");
+        } catch (ConfigurationError e) {
+            // expected
+        } finally {
+            dispatch.getDispatchPool().shutdown();
+        }
+    }
+
+    @Test
+    public void testPolicyPerMessageTypeWithDeadMessages() {
+        StalledListener listener = new StalledListener();
+        BusMetrics metrics = new BusMetrics();
+        Feature.AsynchronousMessageDispatch dispatch = Feature.AsynchronousMessageDispatch.Bounded(Capacity, BackpressurePolicy.Block())
+                .setBackpressure(Number.class, BackpressurePolicy.DropNewest().setReportDropped(true));
+        MBassador bus = stalledBus(dispatch, listener, new Feature.Metrics().setCollector(metrics));
+
+        bus.post(1).asynchronously();
+        bus.post(2L).asynchronously();
+        bus.post(3).asynchronously();
+        bus.publishAllAsync(Arrays.asList(4, 5));
+        assertEquals(3L, bus.getDroppedMessageCount());
+        assertEquals(3L, metrics.getDroppedMessageCount());
+        assertEquals(Arrays.<Object>asList(3, 4, 5), listener.dead);
+
+        release(bus, listener);
+    }
+
+    private MBassador stalledBus(Feature.AsynchronousMessageDispatch dispatch, StalledListener listener, Feature... features) {
+        BusConfiguration configuration = new BusConfiguration();
+        configuration.addFeature(Feature.SyncPubSub.Default())
+                .addFeature(Feature.AsynchronousHandlerInvocation.Default())
+                .addFeature(dispatch.setNumberOfMessageDispatchers(1));
+        for (Feature feature : features) {
+            configuration.addFeature(feature);
+        }
+        MBassador bus = createBus(configuration);
+        bus.subscribe(listener);
+        // let the only dispatcher wait such that the queue fills up
+        bus.post("stall").asynchronously();
+        try {
+            assertTrue(listener.stalled.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+        return bus;
+    }
+
+    private void release(MBassador bus, StalledListener listener) {
+        listener.stall.countDown();
+        while (bus.hasPendingMessages()) {
+            pause(10);
+        }
+        pause(100);
+        bus.shutdown();
+    }
+
+    public static class StalledListener {
+
+        private final CountDownLatch stall = new CountDownLatch(1);
+
+        private final CountDownLatch stalled = new CountDownLatch(1);
+
+        private final List<Object> received = Collections.synchronizedList(new LinkedList<Object>());
+
+        private final List<String> threads = Collections.synchronizedList(new LinkedList<String>());
+
+        private final List<Object> dead = Collections.synchronizedList(new LinkedList<Object>());
+
+        @Handler
+        public void handle(String message) throws InterruptedException {
+            if (message.equals("stall")) {
+                stalled.countDown();
+                stall.await();
+            }
+            received.add(message);
+            threads.add(Thread.currentThread().getName());
+        }
+
+        @Handler
+        public void handle(Number message) {
+        }
+
+        @Handler
+        public void handle(DeadMessage message) {
+            dead.add(message.getMessage());
+        }
+    }
+
+}
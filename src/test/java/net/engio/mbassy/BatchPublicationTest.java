@@ -0,0 +1,180 @@
+package net.engio.mbassy;
+
+import net.engio.mbassy.bus.BatchPublication;
+import net.engio.mbassy.bus.BusRuntime;
+import net.engio.mbassy.bus.CompositePublication;
+import net.engio.mbassy.bus.IMessagePublication;
+import net.engio.mbassy.bus.MBassador;
+import net.engio.mbassy.bus.SyncMessageBus;
+import net.engio.mbassy.bus.common.DeadMessage;
+import net.engio.mbassy.bus.common.PubSubSupport;
+import net.engio.mbassy.bus.config.BusConfiguration;
+import net.engio.mbassy.bus.config.Feature;
+import net.engio.mbassy.common.MessageBusTest;
+import net.engio.mbassy.listener.Handler;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tests publication of message batches with publishAll and publishAllAsync
+ */
+public class BatchPublicationTest extends MessageBusTest {
+
+    @Test
+    public void testHandlersReceiveWholeBatchInOrderOfPriority() {
+        MBassador bus = createBus(SyncAsync());
+        RecordingListener listener = new RecordingListener();
+        bus.subscribe(listener);
+
+        BatchPublication publication = bus.publishAll(Arrays.asList("a", "b", 1, "c", 2));
+
+        assertTrue(publication.isFinished());
+        assertFalse(publication.hasError());
+        assertEquals(5, publication.size());
+        assertEquals(Arrays.asList("a", "b", 1, "c", 2), publication.getMessage());
+        // messages are grouped by type, each handler sees all messages of a group before the next handler
+        assertEquals(Arrays.asList("high:a", "high:b", "high:c", "low:a", "low:b", "low:c", "int:1", "int:2"), listener.received);
+        for (IMessagePublication single : publication.getPublications()) {
+            assertTrue(single.isFinished());
+        }
+    }
+
+    @Test
+    public void testMessagesWithoutHandlersAreDeadMessages() {
+        SyncMessageBus<Object> bus = new SyncMessageBus<Object>(new BusConfiguration()
+                .addFeature(Feature.SyncPubSub.Default())
+                .addPublicationErrorHandler(new AssertionErrorHandler(true)));
+        RecordingListener listener = new RecordingListener();
+        bus.subscribe(listener);
+
+        IMessagePublication publication = bus.publishAll(Arrays.<Object>asList("a", 1L, 2L));
+
+        assertTrue(publication.isFinished());
+        assertEquals(Arrays.asList("high:a", "low:a", "dead:1", "dead:2"), listener.received);
+    }
+
+    @Test
+    public void testErrorsAreAggregated() {
+        MBassador bus = createBus(SyncAsync(false));
+        FailingListener listener = new FailingListener();
+        bus.subscribe(listener);
+
+        BatchPublication publication = bus.publishAll(Arrays.asList("ok", "fail", "ok"));
+
+        assertTrue(publication.isFinished());
+        assertTrue(publication.hasError());
+        assertNotNull(publication.getError());
+        assertEquals(3, listener.received.size());
+        assertFalse(publication.getPublications().get(0).hasError());
+        assertTrue(publication.getPublications().get(1).hasError());
+    }
+
+    @Test
+    public void testDefaultPublishesEachMessage() throws Exception {
+        final SyncMessageBus<Object> bus = new SyncMessageBus<Object>(new BusConfiguration()
+                .addFeature(Feature.SyncPubSub.Default())
+                .addPublicationErrorHandler(new AssertionErrorHandler(true)));
+        RecordingListener listener = new RecordingListener();
+        bus.subscribe(listener);
+        // an implementation that relies on the default implementation of publishAll
+        PubSubSupport<Object> decorator = new PubSubSupport<Object>() {
+            public void subscribe(Object listener) {
+                bus.subscribe(listener);
+            }
+
+            public boolean unsubscribe(Object listener) {
+                return bus.unsubscribe(listener);
+            }
+
+            public IMessagePublication publish(Object message) {
+                return bus.publish(message);
+            }
+
+            public BusRuntime getRuntime() {
+                return bus.getRuntime();
+            }
+        };
+
+        IMessagePublication publication = decorator.publishAll(Arrays.<Object>asList("a", 1, "b"));
+
+        assertTrue(publication instanceof CompositePublication);
+        assertTrue(publication.isFinished());
+        assertFalse(publication.hasError());
+        assertEquals(Arrays.asList("a", 1, "b"), publication.getMessage());
+        assertTrue(publication == publication.getCompletion().get());
+        // the messages are published one by one
+        assertEquals(Arrays.asList("high:a", "low:a", "int:1", "high:b", "low:b"), listener.received);
+    }
+
+    @Test
+    public void testEmptyBatch() {
+        MBassador bus = createBus(SyncAsync());
+        BatchPublication publication = bus.publishAll(Collections.emptyList());
+        assertTrue(publication.isFinished());
+        assertFalse(publication.hasError());
+        assertEquals(0, publication.size());
+    }
+
+    @Test
+    public void testAsynchronousBatch() {
+        MBassador bus = createBus(SyncAsync());
+        RecordingListener listener = new RecordingListener();
+        bus.subscribe(listener);
+
+        List<String> messages = new ArrayList<String>();
+        for (int i = 0; i < 100; i++) {
+            messages.add("m" + i);
+        }
+        IMessagePublication publication = bus.publishAllAsync(messages);
+        addPublication(publication);
+        waitForPublications(processingTimeInMS);
+
+        assertTrue(publication.isFinished());
+        assertEquals(200, listener.received.size());
+        assertEquals("high:m0", listener.received.get(0));
+        assertEquals("low:m0", listener.received.get(100));
+    }
+
+    public static class RecordingListener {
+
+        private final List<String> received = Collections.synchronizedList(new ArrayList<String>());
+
+        @Handler(priority = 1)
+        public void high(String message) {
+            received.add("high:" + message);
+        }
+
+        @Handler(priority = 0)
+        public void low(String message) {
+            received.add("low:" + message);
+        }
+
+        @Handler
+        public void integer(Integer message) {
+            received.add("int:" + message);
+        }
+
+        @Handler
+        public void dead(DeadMessage message) {
+            received.add("dead:" + message.getMessage());
+        }
+    }
+
+    public static class FailingListener {
+
+        private final List<String> received = Collections.synchronizedList(new ArrayList<String>());
+
+        @Handler
+        public void handle(String message) {
+            received.add(message);
+            if ("fail".equals(message)) {
+                throw new IllegalStateException("failed on purpose");
+            }
+        }
+    }
+
+}
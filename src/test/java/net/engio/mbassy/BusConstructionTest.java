@@ -7,8 +7,15 @@ import net.engio.mbassy.bus.config.Feature;
 import net.engio.mbassy.bus.config.IBusConfiguration;
 import net.engio.mbassy.bus.error.IPublicationErrorHandler;
 import net.engio.mbassy.common.AssertSupport;
+import net.engio.mbassy.listener.Handler;
+import net.engio.mbassy.listener.Invoke;
+import net.engio.mbassy.listener.Synchronized;
 import org.junit.Test;
 
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
 /**
  * Testing different ways of construction
  *
@@ -70,8 +77,48 @@ public class BusConstructionTest extends AssertSupport {
         assertTrue(bus.toString().contains("global bus"));
     }
 
+    @Test
+    public void testVirtualThreadConfiguration() throws InterruptedException {
+        MBassador bus = new MBassador(new BusConfiguration()
+                .addFeature(Feature.SyncPubSub.Default())
+                .addFeature(Feature.AsynchronousHandlerInvocation.VirtualThreads())
+                .addFeature(Feature.AsynchronousMessageDispatch.VirtualThreads())
+                .addPublicationErrorHandler(new IPublicationErrorHandler.ConsoleLogger()));
+        ThreadRecorder listener = new ThreadRecorder(4);
+        bus.subscribe(listener);
+        bus.post("message").asynchronously();
+        bus.post("message").asynchronously();
+        assertTrue(listener.done.await(5, TimeUnit.SECONDS));
+        for (Thread thread : listener.threads) {
+            assertTrue(thread.getName(), thread.isVirtual());
+        }
+        bus.shutdown();
+    }
 
+    public static class ThreadRecorder {
 
+        private final ConcurrentLinkedQueue<Thread> threads = new ConcurrentLinkedQueue<Thread>();
+        private final CountDownLatch done;
 
+        public ThreadRecorder(int expectedInvocations) {
+            done = new CountDownLatch(expectedInvocations);
+        }
+
+        @Handler
+        public void handleInDispatcher(String message) {
+            record();
+        }
+
+        @Handler(delivery = Invoke.Asynchronously)
+        @Synchronized
+        public void handleAsynchronously(String message) {
+            record();
+        }
+
+        private void record() {
+            threads.add(Thread.currentThread());
+            done.countDown();
+        }
+    }
 
 }
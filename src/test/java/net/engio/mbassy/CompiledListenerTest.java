@@ -0,0 +1,148 @@
+package net.engio.mbassy;
+
+import net.engio.mbassy.bus.MBassador;
+import net.engio.mbassy.bus.config.BusConfiguration;
+import net.engio.mbassy.bus.config.Feature;
+import net.engio.mbassy.bus.error.IPublicationErrorHandler;
+import net.engio.mbassy.bus.error.InternalPublicationError;
+import net.engio.mbassy.bus.error.PublicationError;
+import net.engio.mbassy.common.MessageBusTest;
+import net.engio.mbassy.listener.CompiledHandler;
+import net.engio.mbassy.listener.Handler;
+import net.engio.mbassy.listener.ICompiledListener;
+import net.engio.mbassy.listener.MessageHandler;
+import net.engio.mbassy.listener.MessageListener;
+import net.engio.mbassy.listener.MetadataReader;
+import net.engio.mbassy.listeners.CompiledListener;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Tests listeners whose handlers have been resolved at compile time
+ *
+ * @see net.engio.mbassy.listener.ICompiledListener
+ */
+public class CompiledListenerTest extends MessageBusTest {
+
+    @Test
+    public void testCompiledMetadata() throws Exception {
+        MessageListener listener = new MetadataReader().getMessageListener(CompiledListener.class);
+        assertEquals(3, listener.getHandlers().length);
+
+        MessageHandler stringHandler = getHandler(listener, String.class);
+        assertTrue(stringHandler.getInvoker() != null);
+        assertEquals(1, stringHandler.getPriority());
+        // the configuration is inherited from the overridden handler
+        MessageHandler integerHandler = getHandler(listener, Integer.class);
+        assertTrue(integerHandler.getInvoker() != null);
+        assertEquals(2, integerHandler.getPriority());
+        assertEquals(CompiledListener.class, integerHandler.getMethod().getDeclaringClass());
+        // private handlers can not be invoked by compiled code
+        assertTrue(getHandler(listener, Long.class).getInvoker() == null);
+    }
+
+    @Test
+    public void testListenersWithoutCompiledMetadata() {
+        MessageListener listener = new MetadataReader().getMessageListener(PlainListener.class);
+        assertEquals(1, listener.getHandlers().length);
+        assertTrue(listener.getHandlers()[0].getInvoker() == null);
+    }
+
+    @Test
+    public void testPublication() {
+        final List<PublicationError> errors = Collections.synchronizedList(new LinkedList<PublicationError>());
+        MBassador bus = createBus(new BusConfiguration()
+                .addFeature(Feature.SyncPubSub.Default())
+                .addFeature(Feature.AsynchronousHandlerInvocation.Default())
+                .addFeature(Feature.AsynchronousMessageDispatch.Default())
+                .addPublicationErrorHandler(new IPublicationErrorHandler() {
+                    @Override
+                    public void handleError(PublicationError error) {
+                        errors.add(error);
+                    }
+                }));
+        CompiledListener listener = new CompiledListener();
+        bus.subscribe(listener);
+
+        bus.post("message").now();
+        bus.post(1).now();
+        bus.post(2L).now();
+        assertEquals(Arrays.<Object>asList("message", 1, 2L), listener.received);
+
+        // checked exceptions of compiled invokers are reported unchanged
+        bus.post("fail").now();
+        assertEquals(1, errors.size());
+        assertEquals(Exception.class, errors.get(0).getCause().getClass());
+        assertEquals("Expected failure", errors.get(0).getCause().getMessage());
+    }
+
+    @Test
+    public void testBrokenCompiledListenerIsReported() {
+        final List<PublicationError> errors = Collections.synchronizedList(new LinkedList<PublicationError>());
+        MBassador bus = createBus(new BusConfiguration()
+                .addFeature(Feature.SyncPubSub.Default())
+                .addFeature(Feature.AsynchronousHandlerInvocation.Default())
+                .addFeature(Feature.AsynchronousMessageDispatch.Default())
+                .addPublicationErrorHandler(new IPublicationErrorHandler() {
+                    @Override
+                    public void handleError(PublicationError error) {
+                        errors.add(error);
+                    }
+                }));
+        BrokenListener listener = new BrokenListener();
+        bus.subscribe(listener);
+
+        // the handlers are resolved by reflection
+        bus.post("message").now();
+        assertEquals(1, listener.received.size());
+        assertEquals(1, errors.size());
+        assertTrue(errors.get(0) instanceof InternalPublicationError);
+        assertEquals(NoSuchMethodException.class, errors.get(0).getCause().getClass());
+
+        // the error is reported once per listener class
+        bus.subscribe(new BrokenListener());
+        assertEquals(1, errors.size());
+        assertTrue(bus.unsubscribe(listener));
+    }
+
+    private MessageHandler getHandler(MessageListener listener, Class<?> messageType) {
+        for (MessageHandler handler : listener.getHandlers()) {
+            if (handler.getHandledMessages()[0].equals(messageType)) {
+                return handler;
+            }
+        }
+        fail("No handler for " + messageType);
+        return null;
+    }
+
+    public static class PlainListener {
+
+        @Handler
+        public void handle(String message) {
+        }
+    }
+
+    public static class BrokenListener {
+
+        private final List<String> received = Collections.synchronizedList(new LinkedList<String>());
+
+        @Handler
+        public void handle(String message) {
+            received.add(message);
+        }
+    }
+
+    // an outdated compiled listener that refers to a handler which does not exist anymore
+    public static final class BrokenListener_MBassadorListener implements ICompiledListener {
+
+        @Override
+        public CompiledHandler[] getHandlers() throws ReflectiveOperationException {
+            throw new NoSuchMethodException("handle(java.lang.Integer)");
+        }
+    }
+
+}
@@ -0,0 +1,195 @@
+package net.engio.mbassy;
+
+import net.engio.mbassy.bus.IMessagePublication;
+import net.engio.mbassy.bus.MBassador;
+import net.engio.mbassy.bus.config.BusConfiguration;
+import net.engio.mbassy.bus.config.Feature;
+import net.engio.mbassy.bus.error.MessageBusException;
+import net.engio.mbassy.common.MessageBusTest;
+import net.engio.mbassy.listener.Handler;
+import net.engio.mbassy.listener.Invoke;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests the completion of publications including their asynchronous handler invocations
+ *
+ * @see IMessagePublication#getCompletion()
+ */
+public class CompletionTest extends MessageBusTest {
+
+    @Test
+    public void testCompletionIncludesAsynchronousHandlers() throws Exception {
+        MBassador bus = createBus(SyncAsync());
+        CompletionListener listener = new CompletionListener();
+        bus.subscribe(listener);
+
+        IMessagePublication publication = bus.post("message").now();
+        // the dispatch is finished but the asynchronous handler is still waiting
+        assertTrue(publication.isFinished());
+        CompletableFuture<IMessagePublication> completion = publication.getCompletion();
+        assertFalse(completion.isDone());
+
+        listener.release.countDown();
+        assertTrue(publication == completion.get(processingTimeInMS, TimeUnit.MILLISECONDS));
+        assertEquals(1, listener.sync.get());
+        assertEquals(1, listener.async.get());
+    }
+
+    @Test
+    public void testCompletionOfAsynchronousPublications() throws Exception {
+        MBassador bus = createBus(SyncAsync());
+        CompletionListener listener = new CompletionListener();
+        listener.release.countDown();
+        bus.subscribe(listener);
+
+        CompletableFuture<?>[] completions = new CompletableFuture<?>[100];
+        for (int i = 0; i < completions.length; i++) {
+            completions[i] = bus.post("message").asynchronously().getCompletion();
+        }
+        CompletableFuture.allOf(completions).get(processingTimeInMS, TimeUnit.MILLISECONDS);
+        assertEquals(100, listener.sync.get());
+        assertEquals(100, listener.async.get());
+
+        IMessagePublication batch = bus.publishAllAsync(Arrays.asList("first", "second"));
+        assertTrue(batch == batch.getCompletion().get(processingTimeInMS, TimeUnit.MILLISECONDS));
+        assertEquals(102, listener.async.get());
+    }
+
+    @Test
+    public void testCompletionWithoutHandlers() throws Exception {
+        MBassador bus = createBus(SyncAsync());
+        IMessagePublication publication = bus.post(new Object()).now();
+        assertTrue(publication.getCompletion().isDone());
+        assertTrue(publication == publication.getCompletion().get());
+    }
+
+    @Test
+    public void testExceptionalCompletion() throws Exception {
+        MBassador bus = createBus(SyncAsync(false));
+        bus.subscribe(new FailingListener());
+
+        IMessagePublication publication = bus.post(1).asynchronously();
+        try {
+            publication.getCompletion().get(processingTimeInMS, TimeUnit.MILLISECONDS);
+            fail("Expected the completion to fail");
+        } catch (ExecutionException e) {
+            assertTrue(publication.hasError());
+        }
+    }
+
+    @Test
+    public void testQueuedPublicationsFailOnShutdown() throws Exception {
+        MBassador bus = createBus(new BusConfiguration()
+                .addFeature(Feature.SyncPubSub.Default())
+                .addFeature(Feature.AsynchronousHandlerInvocation.Default())
+                .addFeature(Feature.AsynchronousMessageDispatch.Default().setNumberOfMessageDispatchers(1))
+                .addPublicationErrorHandler(new EmptyErrorHandler()));
+        StallingListener listener = new StallingListener();
+        bus.subscribe(listener);
+
+        // the only dispatcher is blocked by the first message, the others remain queued
+        bus.post(1).asynchronously();
+        assertTrue(listener.stalled.await(processingTimeInMS, TimeUnit.MILLISECONDS));
+        IMessagePublication queued = bus.post(2).asynchronously();
+        IMessagePublication batch = bus.publishAllAsync(Arrays.asList(3, 4));
+        bus.shutdown();
+
+        assertFailed(queued);
+        assertFailed(batch);
+        assertFalse(bus.hasPendingMessages());
+    }
+
+    @Test
+    public void testPublicationsAfterShutdownFail() throws Exception {
+        MBassador bus = createBus(SyncAsync());
+        bus.shutdown();
+
+        IMessagePublication publication = bus.post("message").asynchronously();
+        assertFalse(publication.isScheduled());
+        assertFailed(publication);
+    }
+
+    @Test
+    public void testRejectedHandlerInvocationCompletes() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        executor.shutdown();
+        MBassador bus = createBus(new BusConfiguration()
+                .addFeature(Feature.SyncPubSub.Default())
+                .addFeature(new Feature.AsynchronousHandlerInvocation().setExecutor(executor))
+                .addFeature(Feature.AsynchronousMessageDispatch.Default())
+                .addPublicationErrorHandler(new EmptyErrorHandler()));
+        CompletionListener listener = new CompletionListener();
+        bus.subscribe(listener);
+
+        // the invocation of the asynchronous handler is rejected by the executor
+        IMessagePublication publication = bus.post("message").now();
+        assertEquals(1, listener.sync.get());
+        try {
+            publication.getCompletion().get(processingTimeInMS, TimeUnit.MILLISECONDS);
+            fail("Expected the completion to fail");
+        } catch (ExecutionException e) {
+            assertTrue(publication.hasError());
+            assertTrue(publication.getError().getCause() instanceof RejectedExecutionException);
+        }
+    }
+
+    private void assertFailed(IMessagePublication publication) throws Exception {
+        try {
+            publication.getCompletion().get(processingTimeInMS, TimeUnit.MILLISECONDS);
+            fail("Expected the completion to fail");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof MessageBusException);
+        }
+    }
+
+    public static class StallingListener {
+
+        private final CountDownLatch stalled = new CountDownLatch(1);
+
+        @Handler
+        public void handle(Integer message) throws InterruptedException {
+            stalled.countDown();
+            // released by the interrupt of the dispatcher on shutdown
+            new CountDownLatch(1).await();
+        }
+    }
+
+    public static class CompletionListener {
+
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        private final AtomicInteger sync = new AtomicInteger(0);
+
+        private final AtomicInteger async = new AtomicInteger(0);
+
+        @Handler
+        public void sync(String message) {
+            sync.incrementAndGet();
+        }
+
+        @Handler(delivery = Invoke.Asynchronously)
+        public void async(String message) throws InterruptedException {
+            release.await();
+            async.incrementAndGet();
+        }
+    }
+
+    public static class FailingListener {
+
+        @Handler(delivery = Invoke.Asynchronously)
+        public void fail(Integer message) {
+            throw new IllegalStateException("Expected failure");
+        }
+    }
+
+}
@@ -295,6 +295,38 @@ public abstract class ConcurrentSetTest extends AssertSupport {
         }
     }
 
+    @Test
+    public void testRemoveAll() {
+        final List<Object> source = new ArrayList<Object>();
+        final Collection testSet = createSet();
+        for (int i = 0; i < numberOfElements; i++) {
+            Object candidate = new Object();
+            source.add(candidate);
+            testSet.add(candidate);
+        }
+        final List<Object> toRemove = source.subList(0, numberOfElements / 2);
+        final List<Object> toKeep = source.subList(numberOfElements / 2, numberOfElements);
+
+        // remove the same elements concurrently, only one thread can actually remove each element
+        ConcurrentExecutor.runConcurrent(new Runnable() {
+            @Override
+            public void run() {
+                testSet.removeAll(toRemove);
+            }
+        }, numberOfThreads);
+
+        assertEquals(toKeep.size(), testSet.size());
+        for (Object src : toRemove) {
+            assertFalse(testSet.contains(src));
+        }
+        for (Object src : toKeep) {
+            assertTrue(testSet.contains(src));
+        }
+        assertFalse(testSet.removeAll(toRemove));
+        assertTrue(testSet.removeAll(toKeep));
+        assertTrue(testSet.isEmpty());
+    }
+
     @Test
     public void testRemovalViaIterator() {
         final HashSet<Object> source = new HashSet<Object>();
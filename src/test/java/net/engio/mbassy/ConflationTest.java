@@ -0,0 +1,188 @@
+package net.engio.mbassy;
+
+import net.engio.mbassy.bus.IMessagePublication;
+import net.engio.mbassy.bus.MBassador;
+import net.engio.mbassy.bus.common.IPartitionKeyExtractor;
+import net.engio.mbassy.bus.config.BusConfiguration;
+import net.engio.mbassy.bus.config.Feature;
+import net.engio.mbassy.common.MessageBusTest;
+import net.engio.mbassy.listener.Handler;
+import net.engio.mbassy.listener.Invoke;
+import net.engio.mbassy.listener.PartitionKey;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests the conflation of messages of asynchronous handlers
+ *
+ * @see Handler#conflate()
+ */
+public class ConflationTest extends MessageBusTest {
+
+    @Test
+    public void testConflatedHandler() throws InterruptedException {
+        MBassador bus = createBus(singleThreaded(Feature.AsynchronousHandlerInvocation.Default(1, 1)));
+        QuoteListener listener = new QuoteListener();
+        bus.subscribe(listener);
+
+        // the first delivery blocks the only handler thread
+        bus.publish(new Quote("A", 0));
+        assertTrue(listener.entered.await(processingTimeInMS, TimeUnit.MILLISECONDS));
+        for (int i = 1; i <= 100; i++) {
+            bus.publish(new Quote("A", i));
+            bus.publish(new Quote("B", i));
+        }
+        listener.stall.countDown();
+        pause(processingTimeInMS);
+
+        // all intermediate quotes have been replaced by the latest one
+        assertEquals(Arrays.asList(0, 100), listener.conflated.get("A"));
+        assertEquals(Arrays.asList(100), listener.conflated.get("B"));
+        // handlers without conflation receive every message
+        assertEquals(101, listener.all.get("A").size());
+        assertEquals(100, listener.all.get("B").size());
+    }
+
+    @Test
+    public void testConflationConfiguredPerMessageType() throws InterruptedException {
+        MBassador bus = createBus(singleThreaded(Feature.AsynchronousHandlerInvocation.Default(1, 1)
+                .conflate(String.class, new IPartitionKeyExtractor<String>() {
+                    @Override
+                    public Object getKey(String message) {
+                        return message.substring(0, 1);
+                    }
+                })));
+        StatusListener listener = new StatusListener();
+        bus.subscribe(listener);
+
+        bus.publish("stall");
+        assertTrue(listener.entered.await(processingTimeInMS, TimeUnit.MILLISECONDS));
+        for (int i = 1; i <= 100; i++) {
+            bus.publish("x" + i);
+            bus.publish("y" + i);
+        }
+        listener.stall.countDown();
+        pause(processingTimeInMS);
+
+        assertEquals(3, listener.received.size());
+        assertEquals("stall", listener.received.get(0));
+        assertTrue(listener.received.contains("x100"));
+        assertTrue(listener.received.contains("y100"));
+    }
+
+    @Test
+    public void testRejectedDeliveryDoesNotBlockItsKey() throws Exception {
+        MBassador bus = createBus(singleThreaded(new Feature.AsynchronousHandlerInvocation().setExecutor(new RejectingExecutor(1)))
+                .addPublicationErrorHandler(new EmptyErrorHandler()));
+        QuoteListener listener = new QuoteListener();
+        listener.stall.countDown();
+        bus.subscribe(listener);
+
+        IMessagePublication rejected = bus.post(new Quote("A", 1)).now();
+        try {
+            rejected.getCompletion().get(processingTimeInMS, TimeUnit.MILLISECONDS);
+            fail("Expected the completion to fail");
+        } catch (ExecutionException e) {
+            assertTrue(rejected.getError().getCause() instanceof RejectedExecutionException);
+        }
+        // the next message of the same key is delivered
+        IMessagePublication delivered = bus.post(new Quote("A", 2)).now();
+        assertTrue(delivered == delivered.getCompletion().get(processingTimeInMS, TimeUnit.MILLISECONDS));
+        assertEquals(Arrays.asList(2), listener.conflated.get("A"));
+    }
+
+    private BusConfiguration singleThreaded(Feature.AsynchronousHandlerInvocation invocation) {
+        BusConfiguration configuration = new BusConfiguration();
+        configuration.addFeature(Feature.SyncPubSub.Default())
+                .addFeature(invocation)
+                .addFeature(Feature.AsynchronousMessageDispatch.Default());
+        return configuration;
+    }
+
+    // rejects the given number of tasks before it accepts any
+    private static class RejectingExecutor extends ThreadPoolExecutor {
+
+        private final AtomicInteger rejections;
+
+        private RejectingExecutor(int rejections) {
+            super(1, 1, 1, TimeUnit.MINUTES, new LinkedBlockingQueue<Runnable>());
+            this.rejections = new AtomicInteger(rejections);
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            if (rejections.getAndDecrement() > 0) {
+                throw new RejectedExecutionException("Expected rejection");
+            }
+            super.execute(task);
+        }
+    }
+
+    public static class Quote {
+
+        @PartitionKey
+        private final String instrument;
+
+        private final int price;
+
+        public Quote(String instrument, int price) {
+            this.instrument = instrument;
+            this.price = price;
+        }
+    }
+
+    public static class QuoteListener {
+
+        private final CountDownLatch entered = new CountDownLatch(1);
+
+        private final CountDownLatch stall = new CountDownLatch(1);
+
+        private final Map<String, List<Integer>> conflated = new ConcurrentHashMap<String, List<Integer>>();
+
+        private final Map<String, List<Integer>> all = new ConcurrentHashMap<String, List<Integer>>();
+
+        @Handler(delivery = Invoke.Asynchronously, conflate = true)
+        public void conflated(Quote quote) throws InterruptedException {
+            entered.countDown();
+            stall.await();
+            conflated.computeIfAbsent(quote.instrument, k -> Collections.synchronizedList(new ArrayList<Integer>()))
+                    .add(quote.price);
+        }
+
+        @Handler
+        public void all(Quote quote) {
+            all.computeIfAbsent(quote.instrument, k -> Collections.synchronizedList(new ArrayList<Integer>()))
+                    .add(quote.price);
+        }
+    }
+
+    public static class StatusListener {
+
+        private final CountDownLatch entered = new CountDownLatch(1);
+
+        private final CountDownLatch stall = new CountDownLatch(1);
+
+        private final List<String> received = Collections.synchronizedList(new ArrayList<String>());
+
+        @Handler(delivery = Invoke.Asynchronously)
+        public void handle(String status) throws InterruptedException {
+            entered.countDown();
+            stall.await();
+            received.add(status);
+        }
+    }
+
+}
@@ -0,0 +1,66 @@
+package net.engio.mbassy;
+
+import net.engio.mbassy.common.AssertSupport;
+import net.engio.mbassy.listener.Handler;
+import net.engio.mbassy.listeners.CompiledListener;
+import net.engio.mbassy.scan.ConstantPool;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.AccessFlag;
+import java.util.Arrays;
+
+/**
+ * Tests the constant pool reader that is used to reject classes before they are parsed by the classpath scanner.
+ */
+public class ConstantPoolTest extends AssertSupport {
+
+    private static final byte[] HandlerDescriptor = ConstantPool.encode("Lnet/engio/mbassy/listener/Handler;");
+
+    @Test
+    public void testFindsReferencedConstants() throws IOException {
+        ConstantPool listener = ConstantPool.read(readClass(CompiledListener.class));
+        assertTrue(listener.contains(HandlerDescriptor));
+        assertTrue(listener.contains(ConstantPool.encode("RuntimeVisibleAnnotations")));
+        assertFalse(listener.contains(ConstantPool.encode("Lnet/engio/mbassy/listener/Handler")));
+
+        ConstantPool plain = ConstantPool.read(readClass(ConstantPoolTest.class.getSuperclass()));
+        assertFalse(plain.contains(HandlerDescriptor));
+    }
+
+    @Test
+    public void testAccessFlags() throws IOException {
+        int annotation = AccessFlag.ANNOTATION.mask();
+        assertTrue((ConstantPool.read(readClass(Handler.class)).getAccessFlags() & annotation) != 0);
+        assertTrue((ConstantPool.read(readClass(CompiledListener.class)).getAccessFlags() & annotation) == 0);
+        // constant pools with all kinds of constants, including wide ones
+        assertTrue((ConstantPool.read(readClass(Long.class)).getAccessFlags() & AccessFlag.FINAL.mask()) != 0);
+        assertTrue((ConstantPool.read(readClass(Double.class)).getAccessFlags() & AccessFlag.PUBLIC.mask()) != 0);
+        assertTrue(ConstantPool.read(readClass(Double.class)).contains(ConstantPool.encode("java/lang/Double")));
+    }
+
+    @Test
+    public void testEncoding() {
+        assertTrue(Arrays.equals(new byte[]{'a', 'b'}, ConstantPool.encode("ab")));
+        // modified UTF-8 encodes the null character with two bytes
+        assertTrue(Arrays.equals(new byte[]{(byte) 0xC0, (byte) 0x80}, ConstantPool.encode("\u0000")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidClassFile() {
+        ConstantPool.read(new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10});
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTruncatedClassFile() throws IOException {
+        byte[] classFile = readClass(CompiledListener.class);
+        ConstantPool.read(Arrays.copyOf(classFile, 64));
+    }
+
+    private static byte[] readClass(Class<?> type) throws IOException {
+        try (InputStream in = type.getResourceAsStream("/" + type.getName().replace('.', '/') + ".class")) {
+            return in.readAllBytes();
+        }
+    }
+}
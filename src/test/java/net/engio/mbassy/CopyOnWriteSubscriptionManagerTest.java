@@ -0,0 +1,17 @@
+package net.engio.mbassy;
+
+import net.engio.mbassy.listener.MetadataReader;
+import net.engio.mbassy.subscription.CopyOnWriteSubscriptionManager;
+import net.engio.mbassy.subscription.SubscriptionFactory;
+import net.engio.mbassy.subscription.SubscriptionManager;
+
+/**
+ * Run all subscription manager tests against the lock-free copy-on-write registry.
+ */
+public class CopyOnWriteSubscriptionManagerTest extends SubscriptionManagerTest {
+
+    @Override
+    protected SubscriptionManager createSubscriptionManager() {
+        return new CopyOnWriteSubscriptionManager(new MetadataReader(), new SubscriptionFactory(), mockedRuntime());
+    }
+}
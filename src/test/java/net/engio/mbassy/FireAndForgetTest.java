@@ -0,0 +1,184 @@
+package net.engio.mbassy;
+
+import net.engio.mbassy.bus.MBassador;
+import net.engio.mbassy.bus.SyncMessageBus;
+import net.engio.mbassy.bus.common.DeadMessage;
+import net.engio.mbassy.bus.common.FilteredMessage;
+import net.engio.mbassy.bus.common.PubSubSupport;
+import net.engio.mbassy.bus.config.BusConfiguration;
+import net.engio.mbassy.bus.config.Feature;
+import net.engio.mbassy.bus.error.IPublicationErrorHandler;
+import net.engio.mbassy.bus.error.PublicationError;
+import net.engio.mbassy.common.MessageBusTest;
+import net.engio.mbassy.listener.Filter;
+import net.engio.mbassy.listener.Filters;
+import net.engio.mbassy.listener.Handler;
+import net.engio.mbassy.listener.Invoke;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests the fire-and-forget publication with fire()
+ */
+public class FireAndForgetTest extends MessageBusTest {
+
+    @Test
+    public void testFireDeliversToAllHandlers() {
+        ErrorRecorder errors = new ErrorRecorder();
+        for (PubSubSupport<Object> bus : buses(errors)) {
+            RecordingListener listener = new RecordingListener(bus);
+            bus.subscribe(listener);
+            for (int i = 0; i < 1000; i++) {
+                bus.fire("message");
+            }
+            assertEquals(1000, listener.received.size());
+        }
+        assertEquals(0, errors.errors.size());
+    }
+
+    @Test
+    public void testNestedFire() {
+        ErrorRecorder errors = new ErrorRecorder();
+        for (PubSubSupport<Object> bus : buses(errors)) {
+            RecordingListener listener = new RecordingListener(bus);
+            bus.subscribe(listener);
+            // the handler of the integer fires a string from within the running publication
+            bus.fire(42);
+            assertEquals(Collections.singletonList("nested 42"), listener.received);
+            assertEquals(Collections.<Object>singletonList(42), listener.integers);
+        }
+        assertEquals(0, errors.errors.size());
+    }
+
+    @Test
+    public void testErrorsAreReportedToErrorHandlers() {
+        ErrorRecorder errors = new ErrorRecorder();
+        for (PubSubSupport<Object> bus : buses(errors)) {
+            RecordingListener listener = new RecordingListener(bus);
+            bus.subscribe(listener);
+            bus.fire("fail");
+            bus.fire("message");
+            assertEquals(2, listener.received.size());
+        }
+        assertEquals(2, errors.errors.size());
+        assertEquals("fail", errors.messages.get(0));
+    }
+
+    @Test
+    public void testDeadAndFilteredMessages() {
+        ErrorRecorder errors = new ErrorRecorder();
+        for (PubSubSupport<Object> bus : buses(errors)) {
+            RecordingListener listener = new RecordingListener(bus);
+            bus.subscribe(listener);
+            Object unhandled = new Object();
+            // the only handler for a Long rejects all subtypes of Number
+            bus.fire(1L);
+            bus.fire(unhandled);
+            assertEquals(Collections.<Object>singletonList(unhandled), listener.dead);
+            assertEquals(Collections.<Object>singletonList(1L), listener.filtered);
+        }
+        assertEquals(0, errors.errors.size());
+    }
+
+    @Test
+    public void testAsynchronousHandlersKeepTheirPublication() throws InterruptedException {
+        final CountDownLatch done = new CountDownLatch(2);
+        final List<Object> published = Collections.synchronizedList(new ArrayList<Object>());
+        MBassador<Object> bus = new MBassador<Object>(SyncAsync(false).addPublicationErrorHandler(new IPublicationErrorHandler() {
+            @Override
+            public void handleError(PublicationError error) {
+                published.add(error.getPublishedMessage());
+                done.countDown();
+            }
+        }));
+        AsyncListener listener = new AsyncListener();
+        bus.subscribe(listener);
+        bus.fire("a");
+        bus.fire("b");
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        // each handler invocation still sees the message of the publication it was scheduled with
+        assertEquals(new HashSet<Object>(Arrays.asList("a", "b")), new HashSet<Object>(published));
+        bus.shutdown();
+    }
+
+    private List<PubSubSupport<Object>> buses(IPublicationErrorHandler errorHandler) {
+        List<PubSubSupport<Object>> buses = new ArrayList<PubSubSupport<Object>>();
+        buses.add(new MBassador<Object>(SyncAsync(false).addPublicationErrorHandler(errorHandler)));
+        buses.add(new SyncMessageBus<Object>(new BusConfiguration()
+                .addFeature(Feature.SyncPubSub.Default())
+                .addPublicationErrorHandler(errorHandler)));
+        return buses;
+    }
+
+    public static class ErrorRecorder implements IPublicationErrorHandler {
+
+        private final List<PublicationError> errors = new ArrayList<PublicationError>();
+        private final List<Object> messages = new ArrayList<Object>();
+
+        @Override
+        public void handleError(PublicationError error) {
+            errors.add(error);
+            messages.add(error.getPublishedMessage());
+        }
+    }
+
+    public static class AsyncListener {
+
+        @Handler(delivery = Invoke.Asynchronously)
+        public void handle(String message) throws InterruptedException {
+            // the error is reported after the publication of the next message started
+            Thread.sleep(50);
+            throw new IllegalStateException("failed on purpose");
+        }
+    }
+
+    public static class RecordingListener {
+
+        private final PubSubSupport<Object> bus;
+        private final List<String> received = new ArrayList<String>();
+        private final List<Object> integers = new ArrayList<Object>();
+        private final List<Object> dead = new ArrayList<Object>();
+        private final List<Object> filtered = new ArrayList<Object>();
+
+        public RecordingListener(PubSubSupport<Object> bus) {
+            this.bus = bus;
+        }
+
+        @Handler
+        public void handle(String message) {
+            received.add(message);
+            if ("fail".equals(message)) {
+                throw new IllegalStateException("failed on purpose");
+            }
+        }
+
+        @Handler
+        public void handle(Integer message) {
+            bus.fire("nested " + message);
+            integers.add(message);
+        }
+
+        @Handler(filters = @Filter(Filters.RejectSubtypes.class))
+        public void handle(Number message) {
+            // never invoked, all messages are subtypes of Number
+        }
+
+        @Handler
+        public void handle(DeadMessage message) {
+            dead.add(message.getMessage());
+        }
+
+        @Handler
+        public void handle(FilteredMessage message) {
+            filtered.add(message.getMessage());
+        }
+    }
+
+}
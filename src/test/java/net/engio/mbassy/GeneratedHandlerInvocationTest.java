@@ -0,0 +1,119 @@
+package net.engio.mbassy;
+
+import net.engio.mbassy.bus.BusRuntime;
+import net.engio.mbassy.bus.MessagePublication;
+import net.engio.mbassy.bus.config.IBusConfiguration;
+import net.engio.mbassy.bus.error.IPublicationErrorHandler;
+import net.engio.mbassy.bus.error.PublicationError;
+import net.engio.mbassy.common.AssertSupport;
+import net.engio.mbassy.dispatch.GeneratedHandlerInvocation;
+import net.engio.mbassy.dispatch.IHandlerInvocation;
+import net.engio.mbassy.dispatch.MethodHandleInvocation;
+import net.engio.mbassy.listener.Handler;
+import net.engio.mbassy.listener.MessageHandler;
+import net.engio.mbassy.listener.MetadataReader;
+import net.engio.mbassy.subscription.Subscription;
+import net.engio.mbassy.subscription.SubscriptionContext;
+import org.junit.Test;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * Tests the handler invocations that are generated per handler method.
+ */
+public class GeneratedHandlerInvocationTest extends AssertSupport {
+
+    private final List<PublicationError> errors = new LinkedList<PublicationError>();
+
+    private final Collection<IPublicationErrorHandler> errorHandlers = Collections.<IPublicationErrorHandler>singleton(
+            new IPublicationErrorHandler() {
+                @Override
+                public void handleError(PublicationError error) {
+                    errors.add(error);
+                }
+            });
+
+    private final BusRuntime runtime = new BusRuntime(null)
+            .add(IBusConfiguration.Properties.PublicationErrorHandlers, errorHandlers);
+
+    @Test
+    public void testInvocationClassPerHandler() {
+        Listener listener = new Listener();
+        IHandlerInvocation strings = GeneratedHandlerInvocation.create(context(String.class));
+        IHandlerInvocation integers = GeneratedHandlerInvocation.create(context(Integer.class));
+        // each handler is called from its own class
+        assertTrue(strings.getClass().isHidden());
+        assertTrue(integers.getClass().isHidden());
+        assertFalse(strings.getClass() == integers.getClass());
+
+        strings.invoke(listener, "a", publication("a"));
+        integers.invoke(listener, 1, publication(1));
+        assertEquals(Collections.singletonList("a"), listener.strings);
+        assertEquals(Collections.singletonList(1), listener.integers);
+    }
+
+    @Test
+    public void testCompiledInvoker() {
+        final List<Object> received = new LinkedList<Object>();
+        IHandlerInvocation invocation = GeneratedHandlerInvocation.create(context(String.class), new BiConsumer<Object, Object>() {
+            @Override
+            public void accept(Object listener, Object message) {
+                received.add(message);
+            }
+        });
+        assertTrue(invocation.getClass().isHidden());
+        invocation.invoke(new Listener(), "a", publication("a"));
+        assertEquals(Collections.singletonList("a"), received);
+    }
+
+    @Test
+    public void testErrorsAreReportedLikeMethodHandleInvocation() {
+        Listener listener = new Listener();
+        GeneratedHandlerInvocation.create(context(Long.class)).invoke(listener, 1L, publication(1L));
+        new MethodHandleInvocation(context(Long.class)).invoke(listener, 2L, publication(2L));
+
+        assertEquals(2, errors.size());
+        assertEquals(errors.get(1).getMessage(), errors.get(0).getMessage());
+        assertEquals("Expected failure", errors.get(0).getCause().getMessage());
+        assertTrue(listener == errors.get(0).getListener());
+    }
+
+    private SubscriptionContext context(Class<?> messageType) {
+        for (MessageHandler handler : new MetadataReader().getMessageListener(Listener.class).getHandlers()) {
+            if (handler.getHandledMessages()[0] == messageType) {
+                return new SubscriptionContext(runtime, handler, errorHandlers);
+            }
+        }
+        throw new IllegalArgumentException("No handler for " + messageType);
+    }
+
+    private MessagePublication publication(Object message) {
+        return new MessagePublication.Factory().createPublication(runtime, Collections.<Subscription>emptyList(), message);
+    }
+
+    public static class Listener {
+
+        private final List<String> strings = new LinkedList<String>();
+
+        private final List<Integer> integers = new LinkedList<Integer>();
+
+        @Handler
+        public void handle(String message) {
+            strings.add(message);
+        }
+
+        @Handler
+        public void handle(Integer message) {
+            integers.add(message);
+        }
+
+        @Handler
+        public void fail(Long message) {
+            throw new IllegalStateException("Expected failure");
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package net.engio.mbassy;
+
+import net.engio.mbassy.common.AssertSupport;
+import net.engio.mbassy.scan.ListenerIndex;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+/**
+ * Tests reading the build time listener index of class path directories and jars.
+ */
+public class ListenerIndexTest extends AssertSupport {
+
+    private static final String Index = "# generated\n"
+            + "com.example.listeners.First\n"
+            + "\n"
+            + "com.example.listeners.sub.Second$Nested\n"
+            + "com.example.other.Third\n"
+            + "com.examples.Fourth\n";
+
+    @Test
+    public void testDirectoryIndex() throws Exception {
+        File root = Files.createTempDirectory("index").toFile();
+        File packageDir = new File(root, "com/example/listeners");
+        packageDir.mkdirs();
+        File index = new File(root, ListenerIndex.Location);
+        index.getParentFile().mkdirs();
+        Files.write(index.toPath(), Index.getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(new LinkedHashSet<String>(Arrays.asList("com.example.listeners.First", "com.example.listeners.sub.Second$Nested")),
+                ListenerIndex.read(packageDir.toURI().toURL(), "com.example.listeners"));
+        assertEquals(new LinkedHashSet<String>(Arrays.asList("com.example.listeners.First", "com.example.listeners.sub.Second$Nested", "com.example.other.Third")),
+                ListenerIndex.read(new File(root, "com/example").toURI().toURL(), "com.example"));
+        assertEquals(4, ListenerIndex.read(root.toURI().toURL(), "").size());
+    }
+
+    @Test
+    public void testJarIndex() throws Exception {
+        File jar = File.createTempFile("index", ".jar");
+        JarOutputStream out = new JarOutputStream(new FileOutputStream(jar));
+        out.putNextEntry(new JarEntry("com/example/listeners/"));
+        out.closeEntry();
+        out.putNextEntry(new JarEntry(ListenerIndex.Location));
+        out.write(Index.getBytes(StandardCharsets.UTF_8));
+        out.closeEntry();
+        out.close();
+
+        URL packageResource = new URL("jar:" + jar.toURI().toURL() + "!/com/example/listeners");
+        assertEquals(new LinkedHashSet<String>(Arrays.asList("com.example.listeners.First", "com.example.listeners.sub.Second$Nested")),
+                ListenerIndex.read(packageResource, "com.example.listeners"));
+    }
+
+    @Test
+    public void testMissingIndex() throws Exception {
+        File root = Files.createTempDirectory("index").toFile();
+        File packageDir = new File(root, "com/example/listeners");
+        packageDir.mkdirs();
+        assertNull(ListenerIndex.read(packageDir.toURI().toURL(), "com.example.listeners"));
+
+        File jar = File.createTempFile("index", ".jar");
+        JarOutputStream out = new JarOutputStream(new FileOutputStream(jar));
+        out.putNextEntry(new JarEntry("com/example/listeners/"));
+        out.closeEntry();
+        out.close();
+        assertNull(ListenerIndex.read(new URL("jar:" + jar.toURI().toURL() + "!/com/example/listeners/"), "com.example.listeners"));
+    }
+
+}
@@ -1,6 +1,9 @@
 package net.engio.mbassy;
 
 import net.engio.mbassy.common.AssertSupport;
+import net.engio.mbassy.common.ConcurrentExecutor;
+import net.engio.mbassy.listener.Filter;
+import net.engio.mbassy.listener.Filters;
 import net.engio.mbassy.listener.MessageListener;
 import net.engio.mbassy.listener.MessageHandler;
 import net.engio.mbassy.listeners.SimpleHandler;
@@ -14,6 +17,7 @@ import java.io.BufferedReader;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static net.engio.mbassy.listener.MessageListener.ForMessage;
 
@@ -305,6 +309,91 @@ public class MetadataReaderTest extends AssertSupport {
         assertTrue(hasPriority3);
     }
 
+    @Test
+    public void testMetadataIsReadOncePerReader() {
+        MessageListener listener = reader.getMessageListener(MessageListener2.class);
+        assertTrue(listener == reader.getMessageListener(MessageListener2.class));
+        // each reader has its own metadata
+        assertFalse(listener == new MetadataReader().getMessageListener(MessageListener2.class));
+    }
+
+    @Test
+    public void testCachedMetadataCanNotBeModified() {
+        MessageListener listener = reader.getMessageListener(MessageListener2.class);
+        int handlers = listener.getHandlers().length;
+        try {
+            listener.addHandler(listener.getHandlers()[0]);
+            fail("Expected the cached listener to reject new handlers");
+        } catch (UnsupportedOperationException e) {
+            assertEquals(handlers, reader.getMessageListener(MessageListener2.class).getHandlers().length);
+        }
+        // listeners created by custom readers can be modified
+        MessageListener custom = new MessageListener(MessageListener2.class);
+        assertTrue(custom.addHandler(listener.getHandlers()[0]));
+        assertEquals(1, custom.getHandlers().length);
+    }
+
+    @Test
+    public void testConcurrentReadsShareMetadata() {
+        final MetadataReader concurrentReader = new MetadataReader();
+        final MessageListener[] listeners = new MessageListener[10];
+        final AtomicInteger index = new AtomicInteger();
+        ConcurrentExecutor.runConcurrent(new Runnable() {
+            @Override
+            public void run() {
+                listeners[index.getAndIncrement()] = concurrentReader.getMessageListener(TripleDiamondABC.class);
+            }
+        }, listeners.length);
+        for (MessageListener listener : listeners) {
+            assertTrue(listener == listeners[0]);
+        }
+        new ListenerValidator().expectHandlers(3, String.class).check(listeners[0]);
+    }
+
+    @Test
+    public void testFilterInstancesAreShared() {
+        MessageHandler first = reader.getMessageListener(FilteredListener1.class).getHandlers()[0];
+        MessageHandler second = reader.getMessageListener(FilteredListener2.class).getHandlers()[0];
+        assertEquals(1, first.getFilter().length);
+        assertTrue(first.getFilter()[0] instanceof Filters.RejectSubtypes);
+        assertTrue(first.getFilter()[0] == second.getFilter()[0]);
+    }
+
+    @Test
+    public void testInterfaceInheritedViaMultiplePaths() {
+        // the handler of the shared super interface must be found only once
+        MessageListener listener = reader.getMessageListener(SharedRootImpl.class);
+        new ListenerValidator().expectHandlers(1, String.class).check(listener);
+    }
+
+    public interface SharedRoot {
+        @Handler
+        void handle(String message);
+    }
+
+    public interface SharedRootLeft extends SharedRoot {
+    }
+
+    public interface SharedRootRight extends SharedRoot {
+    }
+
+    public static class SharedRootImpl implements SharedRootLeft, SharedRootRight {
+        @Override
+        public void handle(String message) {
+        }
+    }
+
+    public static class FilteredListener1 {
+        @Handler(filters = @Filter(Filters.RejectSubtypes.class))
+        public void handle(Object message) {
+        }
+    }
+
+    public static class FilteredListener2 {
+        @Handler(filters = @Filter(Filters.RejectSubtypes.class))
+        public void handle(String message) {
+        }
+    }
 
     // Define and assert expectations on handlers in a listener
     private class ListenerValidator {
@@ -80,4 +80,25 @@ public class MethodDispatchTest extends MessageBusTest {
         assertTrue(second.isFinished());
         assertNotNull(second.getError().toString());
     }
+
+    // handlers of non-public listeners are invoked through generated invokers as well
+    private static class PrivateListener {
+
+        private final AtomicInteger received = new AtomicInteger(0);
+
+        @Handler
+        private void handle(CharSequence s) {
+            received.incrementAndGet();
+        }
+    }
+
+    @Test
+    public void testDispatchToPrivateHandler() {
+        IMessageBus bus = createBus(SyncAsync());
+        PrivateListener listener = new PrivateListener();
+        bus.subscribe(listener);
+        IMessagePublication publication = bus.post("delivered to private handler").now();
+        assertEquals(1, listener.received.get());
+        assertFalse(publication.hasError());
+    }
 }
@@ -0,0 +1,124 @@
+package net.engio.mbassy;
+
+import net.engio.mbassy.bus.MBassador;
+import net.engio.mbassy.bus.common.DeadMessage;
+import net.engio.mbassy.bus.common.FilteredMessage;
+import net.engio.mbassy.bus.config.Feature;
+import net.engio.mbassy.bus.config.IBusConfiguration;
+import net.engio.mbassy.bus.metrics.BusMetrics;
+import net.engio.mbassy.bus.metrics.LatencyHistogram;
+import net.engio.mbassy.common.MessageBusTest;
+import net.engio.mbassy.listener.Filter;
+import net.engio.mbassy.listener.Filters;
+import net.engio.mbassy.listener.Handler;
+import net.engio.mbassy.listener.Invoke;
+import net.engio.mbassy.listener.MessageHandler;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+/**
+ * Tests the collection of metrics with {@link Feature.Metrics}
+ */
+public class MetricsTest extends MessageBusTest {
+
+    @Test
+    public void testMetricsAreCollected() {
+        BusMetrics metrics = new BusMetrics();
+        MBassador bus = createBus(SyncAsync().addFeature(new Feature.Metrics().setCollector(metrics)));
+        bus.subscribe(new MeasuredListener());
+
+        for (int i = 0; i < 10; i++) {
+            bus.publish("sync");
+        }
+        for (int i = 0; i < 5; i++) {
+            addPublication(bus.post("async").asynchronously());
+        }
+        bus.publishAll(Arrays.asList("batch", "batch"));
+        bus.fire("fire");
+        bus.publish(1L);
+        bus.publish(new Object());
+        waitForPublications(processingTimeInMS);
+        pause(processingTimeInMS);
+
+        assertEquals(18L, metrics.getPublicationCount(String.class));
+        assertEquals(1L, metrics.getPublicationCount(Long.class));
+        assertEquals(1L, metrics.getDeadMessageCount());
+        assertEquals(1L, metrics.getFilteredMessageCount());
+        assertEquals(5L, metrics.getQueueWaitTime().getCount());
+        assertTrue(metrics.getMaxQueueDepth() >= 1);
+
+        assertEquals(5, metrics.getHandlers().size());
+        for (MessageHandler handler : metrics.getHandlers()) {
+            BusMetrics.HandlerMetrics handlerMetrics = metrics.getHandlerMetrics(handler);
+            String name = handler.getMethod().getName();
+            if (name.equals("sync") || name.equals("async")) {
+                assertEquals(name, 18L, handlerMetrics.getInvocationCount());
+                assertTrue(name, handlerMetrics.getExecutionTime().getMax() >= 1000000);
+            }
+            if (name.equals("sync")) {
+                // the publication of fire() is only valid while it is dispatched synchronously
+                assertEquals(18L, handlerMetrics.getDispatchLatency().getCount());
+            }
+        }
+        // all asynchronous invocations waited in the executor
+        assertEquals(18L, metrics.getExecutorWaitTime().getCount());
+    }
+
+    @Test
+    public void testNoMetricsByDefault() {
+        MBassador bus = createBus(SyncAsync());
+        assertFalse(bus.getRuntime().contains(IBusConfiguration.Properties.MetricsCollector));
+    }
+
+    @Test
+    public void testHistogram() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0L, histogram.getValueAtPercentile(50));
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i * 1000);
+        }
+        histogram.record(-1);
+        assertEquals(100L, histogram.getCount());
+        assertEquals(100000L, histogram.getMax());
+        assertEquals(50500.0, histogram.getMean());
+        // power of two buckets are accurate within a factor of two
+        long median = histogram.getValueAtPercentile(50);
+        assertTrue(median >= 50000 && median < 100000);
+        assertEquals(100000L, histogram.getValueAtPercentile(100));
+    }
+
+    public static class MeasuredListener {
+
+        @Handler
+        public void sync(String message) {
+            pauseQuietly();
+        }
+
+        @Handler(delivery = Invoke.Asynchronously)
+        public void async(String message) {
+            pauseQuietly();
+        }
+
+        @Handler(filters = @Filter(Filters.RejectSubtypes.class))
+        public void rejected(Number message) {
+        }
+
+        @Handler
+        public void dead(DeadMessage message) {
+        }
+
+        @Handler
+        public void filtered(FilteredMessage message) {
+        }
+
+        private void pauseQuietly() {
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,17 @@
+package net.engio.mbassy;
+
+import net.engio.mbassy.common.NonBlockingConcurrentSet;
+
+import java.util.Collection;
+
+/**
+ * Run the concurrent set tests against the strongly referencing non-blocking set.
+ */
+public class NonBlockingConcurrentSetTest extends ConcurrentSetTest {
+
+    @Override
+    protected Collection createSet() {
+        return NonBlockingConcurrentSet.strong();
+    }
+
+}
@@ -0,0 +1,174 @@
+package net.engio.mbassy;
+
+import net.engio.mbassy.bus.IMessagePublication;
+import net.engio.mbassy.bus.MBassador;
+import net.engio.mbassy.bus.config.BusConfiguration;
+import net.engio.mbassy.bus.config.Feature;
+import net.engio.mbassy.common.MessageBusTest;
+import net.engio.mbassy.listener.Filter;
+import net.engio.mbassy.listener.Handler;
+import net.engio.mbassy.listener.IMessageFilter;
+import net.engio.mbassy.subscription.SubscriptionContext;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tests the concurrent invocation of handlers of equal priority configured by {@link Feature.SyncPubSub#Parallel}
+ */
+public class ParallelPublicationTest extends MessageBusTest {
+
+    private static final long HandlerTimeInMS = 100;
+
+    @Test
+    public void testHandlersOfEqualPriorityRunConcurrently() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        MBassador bus = createBus(new BusConfiguration()
+                .addFeature(Feature.SyncPubSub.Parallel(pool))
+                .addFeature(Feature.AsynchronousHandlerInvocation.Default())
+                .addFeature(Feature.AsynchronousMessageDispatch.Default()));
+        BandListener listener = new BandListener();
+        bus.subscribe(listener);
+
+        long start = System.nanoTime();
+        IMessagePublication publication = bus.post("message").now();
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue(publication.isFinished());
+        // the band of four handlers takes about as long as a single handler
+        assertTrue("took " + elapsed + "ms", elapsed < 3 * HandlerTimeInMS);
+        assertEquals(4, listener.band.get());
+        assertTrue(listener.threads.size() > 1);
+        // priority bands do not overlap
+        assertTrue(listener.highFinished.get() <= listener.bandStarted.get());
+        assertTrue(listener.bandFinished.get() <= listener.lowStarted.get());
+        pool.shutdown();
+    }
+
+    @Test
+    public void testSingleHandlerAndDeadMessage() {
+        MBassador bus = createBus(new BusConfiguration()
+                .addFeature(Feature.SyncPubSub.Parallel())
+                .addFeature(Feature.AsynchronousHandlerInvocation.Default())
+                .addFeature(Feature.AsynchronousMessageDispatch.Default()));
+        final AtomicInteger received = new AtomicInteger(0);
+        bus.subscribe(new Object() {
+            @Handler
+            public void handle(Integer message) {
+                received.incrementAndGet();
+            }
+        });
+        assertTrue(bus.post(1).now().isFinished());
+        assertTrue(bus.post("no handler").now().isFinished());
+        assertEquals(1, received.get());
+    }
+
+    @Test
+    public void testFailingSubscriptionDoesNotCutBandShort() {
+        MBassador bus = createBus(new BusConfiguration()
+                .addFeature(Feature.SyncPubSub.Parallel(new ForkJoinPool(4)))
+                .addFeature(Feature.AsynchronousHandlerInvocation.Default())
+                .addFeature(Feature.AsynchronousMessageDispatch.Default())
+                .addPublicationErrorHandler(new EmptyErrorHandler()));
+        FailingBandListener listener = new FailingBandListener();
+        bus.subscribe(listener);
+
+        bus.post("message").now();
+        // the publication returns only after all other handlers of the band are finished
+        assertEquals(2, listener.finished.get());
+        bus.shutdown();
+    }
+
+    public static class FailingFilter implements IMessageFilter<String> {
+
+        @Override
+        public boolean accepts(String message, SubscriptionContext context) {
+            throw new IllegalStateException("failed on purpose");
+        }
+    }
+
+    public static class FailingBandListener {
+
+        private final AtomicInteger finished = new AtomicInteger(0);
+
+        @Handler(filters = @Filter(FailingFilter.class))
+        public void fail(String message) {
+        }
+
+        @Handler
+        public void slow1(String message) throws InterruptedException {
+            Thread.sleep(HandlerTimeInMS);
+            finished.incrementAndGet();
+        }
+
+        @Handler
+        public void slow2(String message) throws InterruptedException {
+            Thread.sleep(HandlerTimeInMS);
+            finished.incrementAndGet();
+        }
+    }
+
+    public static class BandListener {
+
+        private final AtomicLong highFinished = new AtomicLong(0);
+        private final AtomicLong bandStarted = new AtomicLong(Long.MAX_VALUE);
+        private final AtomicLong bandFinished = new AtomicLong(0);
+        private final AtomicLong lowStarted = new AtomicLong(0);
+        private final AtomicInteger band = new AtomicInteger(0);
+        private final Set<String> threads = Collections.synchronizedSet(new HashSet<String>());
+
+        @Handler(priority = 2)
+        public void high(String message) {
+            work();
+            highFinished.set(System.nanoTime());
+        }
+
+        @Handler(priority = 1)
+        public void band1(String message) {
+            inBand();
+        }
+
+        @Handler(priority = 1)
+        public void band2(String message) {
+            inBand();
+        }
+
+        @Handler(priority = 1)
+        public void band3(String message) {
+            inBand();
+        }
+
+        @Handler(priority = 1)
+        public void band4(String message) {
+            inBand();
+        }
+
+        @Handler(priority = 0)
+        public void low(String message) {
+            lowStarted.set(System.nanoTime());
+        }
+
+        private void inBand() {
+            bandStarted.accumulateAndGet(System.nanoTime(), Math::min);
+            threads.add(Thread.currentThread().getName());
+            work();
+            band.incrementAndGet();
+            bandFinished.accumulateAndGet(System.nanoTime(), Math::max);
+        }
+
+        private void work() {
+            try {
+                Thread.sleep(HandlerTimeInMS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,220 @@
+package net.engio.mbassy;
+
+import net.engio.mbassy.bus.IMessagePublication;
+import net.engio.mbassy.bus.MBassador;
+import net.engio.mbassy.bus.common.IPartitionKeyExtractor;
+import net.engio.mbassy.bus.common.MessagePartitioner;
+import net.engio.mbassy.bus.config.BusConfiguration;
+import net.engio.mbassy.bus.config.IBusConfiguration;
+import net.engio.mbassy.bus.config.Feature;
+import net.engio.mbassy.common.MessageBusTest;
+import net.engio.mbassy.listener.Handler;
+import net.engio.mbassy.listener.PartitionKey;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests the ordered asynchronous dispatch of messages with equal partition keys using
+ * {@link Feature.AsynchronousMessageDispatch#Partitioned(int)}
+ */
+public class PartitionedDispatchTest extends MessageBusTest {
+
+    private static final int Keys = 8;
+    private static final int MessagesPerKey = 500;
+
+    @Test
+    public void testMessagesWithEqualKeysAreOrdered() {
+        MBassador bus = createBus(partitioned(Feature.AsynchronousMessageDispatch.Partitioned(4)));
+        OrderListener listener = new OrderListener();
+        bus.subscribe(listener);
+
+        for (int i = 0; i < MessagesPerKey; i++) {
+            for (int key = 0; key < Keys; key++) {
+                bus.post(new KeyedMessage("key" + key, i)).asynchronously();
+            }
+        }
+        waitUntilIdle(bus);
+
+        assertEquals(Keys, listener.received.size());
+        for (List<Integer> sequence : listener.received.values()) {
+            assertEquals(MessagesPerKey, sequence.size());
+            for (int i = 0; i < MessagesPerKey; i++) {
+                assertEquals(i, sequence.get(i).intValue());
+            }
+        }
+        // messages with equal keys are always processed by the same dispatcher
+        for (Set<String> threads : listener.threads.values()) {
+            assertEquals(1, threads.size());
+        }
+    }
+
+    @Test
+    public void testBatchesKeepTheOrderOfTheirPartitions() throws Exception {
+        MBassador bus = createBus(partitioned(Feature.AsynchronousMessageDispatch.Partitioned(4)));
+        OrderListener listener = new OrderListener();
+        bus.subscribe(listener);
+
+        IMessagePublication batch = null;
+        for (int i = 0; i < MessagesPerKey; i++) {
+            if (i % 2 == 0) {
+                for (int key = 0; key < Keys; key++) {
+                    bus.post(new KeyedMessage("key" + key, i)).asynchronously();
+                }
+            } else {
+                // the messages of a batch have different keys and are processed by different dispatchers
+                List<KeyedMessage> messages = new ArrayList<KeyedMessage>();
+                for (int key = 0; key < Keys; key++) {
+                    messages.add(new KeyedMessage("key" + key, i));
+                }
+                batch = bus.publishAllAsync(messages);
+            }
+        }
+        batch.getCompletion().get(processingTimeInMS, TimeUnit.MILLISECONDS);
+        waitUntilIdle(bus);
+        assertTrue(batch.isFinished());
+
+        assertEquals(Keys, listener.received.size());
+        for (List<Integer> sequence : listener.received.values()) {
+            assertEquals(MessagesPerKey, sequence.size());
+            for (int i = 0; i < MessagesPerKey; i++) {
+                assertEquals(i, sequence.get(i).intValue());
+            }
+        }
+    }
+
+    @Test
+    public void testConfiguredExtractor() {
+        MessagePartitioner partitioner = new MessagePartitioner()
+                .partitionBy(String.class, new IPartitionKeyExtractor<String>() {
+                    @Override
+                    public Object getKey(String message) {
+                        return message.substring(0, message.indexOf(':'));
+                    }
+                });
+        MBassador bus = createBus(partitioned(Feature.AsynchronousMessageDispatch.Partitioned(3).setPartitioner(partitioner)));
+        StringListener listener = new StringListener();
+        bus.subscribe(listener);
+
+        for (int i = 0; i < MessagesPerKey; i++) {
+            for (int key = 0; key < Keys; key++) {
+                bus.post(key + ":" + i).asynchronously();
+            }
+        }
+        waitUntilIdle(bus);
+
+        assertEquals(Keys, listener.received.size());
+        for (List<Integer> sequence : listener.received.values()) {
+            assertEquals(MessagesPerKey, sequence.size());
+            for (int i = 0; i < MessagesPerKey; i++) {
+                assertEquals(i, sequence.get(i).intValue());
+            }
+        }
+    }
+
+    @Test
+    public void testMessagesWithoutKeyAreDelivered() {
+        MBassador bus = createBus(partitioned(Feature.AsynchronousMessageDispatch.Partitioned(4)));
+        final AtomicInteger count = new AtomicInteger(0);
+        // listeners are referenced weakly, keep it reachable until all messages are delivered
+        Object listener = new Object() {
+            @Handler
+            public void handle(Integer message) {
+                count.incrementAndGet();
+            }
+        };
+        bus.subscribe(listener);
+
+        for (int i = 0; i < 1000; i++) {
+            bus.post(i).asynchronously();
+        }
+        waitUntilIdle(bus);
+        assertEquals(1000, count.get());
+        assertTrue(bus.unsubscribe(listener));
+    }
+
+    @Test
+    public void testPartitionOfKey() {
+        MessagePartitioner partitioner = new MessagePartitioner();
+        assertEquals("key", partitioner.getKey(new KeyedMessage("key", 0)));
+        assertEquals("key", partitioner.getKey(new SpecialKeyedMessage("key", 0)));
+        assertNull(partitioner.getKey("no key"));
+        assertEquals(-1, partitioner.getPartition("no key", 4));
+        for (int key = 0; key < 100; key++) {
+            int partition = partitioner.getPartition(new KeyedMessage("key" + key, 0), 4);
+            assertTrue(partition >= 0 && partition < 4);
+            assertEquals(partition, partitioner.getPartition(new SpecialKeyedMessage("key" + key, 1), 4));
+        }
+    }
+
+    private IBusConfiguration partitioned(Feature.AsynchronousMessageDispatch dispatch) {
+        return new BusConfiguration()
+                .addFeature(Feature.SyncPubSub.Default())
+                .addFeature(Feature.AsynchronousHandlerInvocation.Default())
+                .addFeature(dispatch);
+    }
+
+    private void waitUntilIdle(MBassador bus) {
+        while (bus.hasPendingMessages()) {
+            pause(10);
+        }
+        // the last message of each batch might still be processed
+        pause(processingTimeInMS);
+    }
+
+    public static class KeyedMessage {
+
+        @PartitionKey
+        private final String key;
+
+        private final int sequence;
+
+        public KeyedMessage(String key, int sequence) {
+            this.key = key;
+            this.sequence = sequence;
+        }
+    }
+
+    public static class SpecialKeyedMessage extends KeyedMessage {
+
+        public SpecialKeyedMessage(String key, int sequence) {
+            super(key, sequence);
+        }
+    }
+
+    public static class OrderListener {
+
+        private final Map<String, List<Integer>> received = new ConcurrentHashMap<String, List<Integer>>();
+
+        private final Map<String, Set<String>> threads = new ConcurrentHashMap<String, Set<String>>();
+
+        @Handler
+        public void handle(KeyedMessage message) {
+            received.computeIfAbsent(message.key, k -> Collections.synchronizedList(new ArrayList<Integer>()))
+                    .add(message.sequence);
+            threads.computeIfAbsent(message.key, k -> Collections.synchronizedSet(new HashSet<String>()))
+                    .add(Thread.currentThread().getName());
+        }
+    }
+
+    public static class StringListener {
+
+        private final Map<String, List<Integer>> received = new ConcurrentHashMap<String, List<Integer>>();
+
+        @Handler
+        public void handle(String message) {
+            int separator = message.indexOf(':');
+            received.computeIfAbsent(message.substring(0, separator), k -> Collections.synchronizedList(new ArrayList<Integer>()))
+                    .add(Integer.valueOf(message.substring(separator + 1)));
+        }
+    }
+
+}
@@ -0,0 +1,54 @@
+package net.engio.mbassy;
+
+import net.engio.mbassy.common.AssertSupport;
+import net.engio.mbassy.common.ReflectionUtils;
+import org.junit.Test;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Tests the cached resolution of type hierarchies that is used for message dispatch and listener metadata.
+ */
+public class ReflectionUtilsTest extends AssertSupport {
+
+    @Test
+    public void testSuperTypesAreDistinct() {
+        Class[] expected = new Class[]{Left.class, Root.class, Right.class, Base.class, Serializable.class, Object.class};
+        assertTrue(Arrays.equals(expected, ReflectionUtils.getSuperTypeHierarchy(Diamond.class)));
+        assertTrue(Arrays.equals(expected, ReflectionUtils.getSuperTypes(Diamond.class)));
+    }
+
+    @Test
+    public void testInterfaceHierarchy() {
+        assertTrue(Arrays.equals(new Class[]{Root.class}, ReflectionUtils.getSuperTypeHierarchy(Left.class)));
+        assertEquals(0, ReflectionUtils.getSuperTypeHierarchy(Root.class).length);
+        assertEquals(0, ReflectionUtils.getSuperTypeHierarchy(Object.class).length);
+    }
+
+    @Test
+    public void testHierarchyIsCached() {
+        Class[] hierarchy = ReflectionUtils.getSuperTypeHierarchy(Diamond.class);
+        assertTrue(hierarchy == ReflectionUtils.getSuperTypeHierarchy(Diamond.class));
+        // the uncached variant returns a copy that can be modified
+        Class[] copy = ReflectionUtils.getSuperTypes(Diamond.class);
+        assertFalse(hierarchy == copy);
+        copy[0] = null;
+        assertTrue(Left.class == ReflectionUtils.getSuperTypeHierarchy(Diamond.class)[0]);
+    }
+
+    public interface Root {
+    }
+
+    public interface Left extends Root {
+    }
+
+    public interface Right extends Root {
+    }
+
+    public static class Base implements Root, Serializable {
+    }
+
+    public static class Diamond extends Base implements Left, Right {
+    }
+}
@@ -0,0 +1,168 @@
+package net.engio.mbassy;
+
+import net.engio.mbassy.common.AssertSupport;
+import net.engio.mbassy.common.RingBufferQueue;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tests the ring buffer queue used for asynchronous message dispatch.
+ */
+public class RingBufferQueueTest extends AssertSupport {
+
+    @Test
+    public void testCapacityIsRoundedToPowerOfTwo() {
+        assertEquals(2, new RingBufferQueue<Integer>(1).capacity());
+        assertEquals(8, new RingBufferQueue<Integer>(5).capacity());
+        assertEquals(16, new RingBufferQueue<Integer>(16).capacity());
+    }
+
+    @Test
+    public void testFIFOAndBounds() {
+        RingBufferQueue<Integer> queue = new RingBufferQueue<Integer>(4);
+        assertTrue(queue.isEmpty());
+        assertNull(queue.poll());
+        for (int i = 0; i < 4; i++) {
+            assertTrue(queue.offer(i));
+        }
+        assertFalse(queue.offer(4));
+        assertEquals(4, queue.size());
+        assertEquals(0, queue.remainingCapacity());
+        assertEquals(0, queue.peek());
+        // wrap around several times
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < 4; i++) {
+                assertEquals(i, queue.poll());
+                assertTrue(queue.offer(i));
+            }
+        }
+        int expected = 0;
+        for (Integer element : queue) {
+            assertEquals(expected++, element);
+        }
+        assertEquals(4, expected);
+    }
+
+    @Test
+    public void testDrainToClaimsBatches() {
+        RingBufferQueue<Integer> queue = new RingBufferQueue<Integer>(16);
+        for (int i = 0; i < 10; i++) {
+            queue.offer(i);
+        }
+        List<Integer> batch = new ArrayList<Integer>();
+        assertEquals(4, queue.drainTo(batch, 4));
+        assertEquals(6, queue.drainTo(batch));
+        assertEquals(0, queue.drainTo(batch));
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i, batch.get(i));
+        }
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void testTimedOperations() throws InterruptedException {
+        for (RingBufferQueue.WaitStrategy strategy : RingBufferQueue.WaitStrategy.values()) {
+            RingBufferQueue<Integer> queue = new RingBufferQueue<Integer>(1, strategy);
+            assertNull(queue.poll(10, TimeUnit.MILLISECONDS));
+            assertTrue(queue.offer(1, 10, TimeUnit.MILLISECONDS));
+            assertTrue(queue.offer(2, 10, TimeUnit.MILLISECONDS));
+            assertFalse(queue.offer(3, 10, TimeUnit.MILLISECONDS));
+            assertEquals(1, queue.poll(10, TimeUnit.MILLISECONDS));
+        }
+    }
+
+    @Test
+    public void testTakeIsInterruptible() throws InterruptedException {
+        for (RingBufferQueue.WaitStrategy strategy : RingBufferQueue.WaitStrategy.values()) {
+            final RingBufferQueue<Integer> queue = new RingBufferQueue<Integer>(2, strategy);
+            final CountDownLatch interrupted = new CountDownLatch(1);
+            Thread consumer = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        queue.take();
+                    } catch (InterruptedException e) {
+                        interrupted.countDown();
+                    }
+                }
+            });
+            consumer.start();
+            pause(20);
+            consumer.interrupt();
+            assertTrue(strategy.name(), interrupted.await(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void testConcurrentProducersAndConsumers() throws InterruptedException {
+        for (RingBufferQueue.WaitStrategy strategy : RingBufferQueue.WaitStrategy.values()) {
+            runConcurrently(new RingBufferQueue<Long>(64, strategy), 4, 3, 20000);
+        }
+    }
+
+    private void runConcurrently(final RingBufferQueue<Long> queue, int numberOfProducers, int numberOfConsumers,
+                                 final int elementsPerProducer) throws InterruptedException {
+        final AtomicLong sum = new AtomicLong(0);
+        final AtomicLong count = new AtomicLong(0);
+        final long total = (long) numberOfProducers * elementsPerProducer;
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int p = 0; p < numberOfProducers; p++) {
+            threads.add(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        for (long i = 1; i <= elementsPerProducer; i++) {
+                            queue.put(i);
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }));
+        }
+        final CountDownLatch consumed = new CountDownLatch(1);
+        for (int c = 0; c < numberOfConsumers; c++) {
+            final boolean batching = c % 2 == 0;
+            threads.add(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    List<Long> batch = new ArrayList<Long>();
+                    try {
+                        while (count.get() < total) {
+                            Long element = queue.poll(1, TimeUnit.MILLISECONDS);
+                            if (element == null) continue;
+                            batch.add(element);
+                            if (batching) queue.drainTo(batch, 16);
+                            for (Long value : batch) {
+                                sum.addAndGet(value);
+                            }
+                            if (count.addAndGet(batch.size()) == total) {
+                                consumed.countDown();
+                            }
+                            batch.clear();
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        assertTrue(queue.getWaitStrategy().name(), consumed.await(30, TimeUnit.SECONDS));
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long expectedSum = (long) numberOfProducers * elementsPerProducer * (elementsPerProducer + 1) / 2;
+        assertEquals(total, count.get());
+        assertEquals(expectedSum, sum.get());
+        assertTrue(queue.isEmpty());
+    }
+
+}
@@ -0,0 +1,105 @@
+package net.engio.mbassy;
+
+import net.engio.mbassy.bus.MBassador;
+import net.engio.mbassy.bus.config.BusConfiguration;
+import net.engio.mbassy.bus.config.Feature;
+import net.engio.mbassy.bus.config.IBusConfiguration;
+import net.engio.mbassy.common.ConcurrentExecutor;
+import net.engio.mbassy.common.MessageBusTest;
+import net.engio.mbassy.listener.Handler;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests the asynchronous dispatch with sharded queues configured by
+ * {@link Feature.AsynchronousMessageDispatch#Sharded(int)}
+ */
+public class ShardedDispatchTest extends MessageBusTest {
+
+    @Test
+    public void testConcurrentProducers() {
+        for (Feature.AsynchronousMessageDispatch.ShardSelection selection : Feature.AsynchronousMessageDispatch.ShardSelection.values()) {
+            final MBassador bus = createBus(sharded(Feature.AsynchronousMessageDispatch.Sharded(4, selection)));
+            CountingListener listener = new CountingListener();
+            bus.subscribe(listener);
+
+            ConcurrentExecutor.runConcurrent(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 1000; i++) {
+                        bus.post("message").asynchronously();
+                    }
+                }
+            }, ConcurrentUnits);
+            waitUntilIdle(bus);
+
+            assertEquals(selection.name(), 1000 * ConcurrentUnits, listener.count.get());
+            bus.shutdown();
+        }
+    }
+
+    @Test
+    public void testIdleDispatchersSteal() {
+        MBassador bus = createBus(sharded(Feature.AsynchronousMessageDispatch.Sharded(4)));
+        SlowListener listener = new SlowListener();
+        bus.subscribe(listener);
+
+        // a single producer adds all publications to the same shard
+        for (int i = 0; i < 200; i++) {
+            bus.post("message").asynchronously();
+        }
+        waitUntilIdle(bus);
+
+        assertEquals(200, listener.count.get());
+        assertTrue(listener.threads.size() > 1);
+        bus.shutdown();
+    }
+
+    private IBusConfiguration sharded(Feature.AsynchronousMessageDispatch dispatch) {
+        return new BusConfiguration()
+                .addFeature(Feature.SyncPubSub.Default())
+                .addFeature(Feature.AsynchronousHandlerInvocation.Default())
+                .addFeature(dispatch);
+    }
+
+    private void waitUntilIdle(MBassador bus) {
+        while (bus.hasPendingMessages()) {
+            pause(10);
+        }
+        // the last publication of each dispatcher might still be processed
+        pause(processingTimeInMS);
+    }
+
+    public static class CountingListener {
+
+        private final AtomicInteger count = new AtomicInteger(0);
+
+        @Handler
+        public void handle(String message) {
+            count.incrementAndGet();
+        }
+    }
+
+    public static class SlowListener {
+
+        private final AtomicInteger count = new AtomicInteger(0);
+
+        private final Set<String> threads = Collections.synchronizedSet(new HashSet<String>());
+
+        @Handler
+        public void handle(String message) {
+            threads.add(Thread.currentThread().getName());
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            count.incrementAndGet();
+        }
+    }
+
+}
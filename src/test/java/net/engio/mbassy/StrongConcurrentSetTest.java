@@ -33,11 +33,6 @@ public class StrongConcurrentSetTest extends ConcurrentSetTest{
         createSet().containsAll(new HashSet<Object>());
     }
 
-    @Test(expected = UnsupportedOperationException.class)
-    public void testRemoveAll() {
-        createSet().removeAll(new HashSet<Object>());
-    }
-
     @Test(expected = UnsupportedOperationException.class)
     public void testRetainAll() {
         createSet().retainAll(new HashSet<Object>());
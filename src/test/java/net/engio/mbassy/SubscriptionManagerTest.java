@@ -11,8 +11,10 @@ import net.engio.mbassy.subscription.SubscriptionFactory;
 import net.engio.mbassy.subscription.SubscriptionManager;
 import org.junit.Test;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 
 /**
  * Test the subscriptions as generated and organized by the subscription manager. Tests use different sets of listeners
@@ -170,7 +172,7 @@ public class SubscriptionManagerTest extends AssertSupport {
     @Test
     public void testStrongListenerSubscription() throws Exception {
         ListenerFactory listeners = listeners(CustomInvocationListener.class);
-        SubscriptionManager subscriptionManager = new SubscriptionManager(new MetadataReader(), new SubscriptionFactory(), mockedRuntime());
+        SubscriptionManager subscriptionManager = createSubscriptionManager();
         ConcurrentExecutor.runConcurrent(TestUtil.subscriber(subscriptionManager, listeners), ConcurrentUnits);
 
         listeners.clear();
@@ -188,7 +190,7 @@ public class SubscriptionManagerTest extends AssertSupport {
                 Overloading.ListenerBase.class,
                 Overloading.ListenerSub.class);
 
-        SubscriptionManager subscriptionManager = new SubscriptionManager(new MetadataReader(), new SubscriptionFactory(), mockedRuntime());
+        SubscriptionManager subscriptionManager = createSubscriptionManager();
         ConcurrentExecutor.runConcurrent(TestUtil.subscriber(subscriptionManager, listeners), ConcurrentUnits);
 
         SubscriptionValidator expectedSubscriptions = new SubscriptionValidator(listeners)
@@ -202,7 +204,7 @@ public class SubscriptionManagerTest extends AssertSupport {
     public void testPrioritizedMessageHandlers() {
         ListenerFactory listeners = listeners(PrioritizedListener.class);
 
-        SubscriptionManager subscriptionManager = new SubscriptionManager(new MetadataReader(), new SubscriptionFactory(), mockedRuntime());
+        SubscriptionManager subscriptionManager = createSubscriptionManager();
         ConcurrentExecutor.runConcurrent(TestUtil.subscriber(subscriptionManager, listeners), ConcurrentUnits);
 
         SubscriptionValidator expectedSubscriptions = new SubscriptionValidator(listeners)
@@ -211,7 +213,108 @@ public class SubscriptionManagerTest extends AssertSupport {
         runTestWith(listeners, expectedSubscriptions);
     }
 
-    private BusRuntime mockedRuntime() {
+    @Test
+    public void testDispatchTableIsUpdatedForNewListenerClass() {
+        SubscriptionManager subscriptionManager = createSubscriptionManager();
+        subscriptionManager.subscribe(new PrioritizedListener());
+
+        Subscription[] dispatchTable = subscriptionManager.getSortedSubscriptions(StandardMessage.class);
+        assertEquals(4, dispatchTable.length);
+        // the same table is reused as long as the mapping does not change
+        assertTrue(dispatchTable == subscriptionManager.getSortedSubscriptions(StandardMessage.class));
+        // subscribing another instance of a known class does not change the mapping
+        subscriptionManager.subscribe(new PrioritizedListener());
+        assertTrue(dispatchTable == subscriptionManager.getSortedSubscriptions(StandardMessage.class));
+
+        // a new listener class with matching handlers invalidates the table
+        subscriptionManager.subscribe(new CustomInvocationListener());
+        Subscription[] updated = subscriptionManager.getSortedSubscriptions(StandardMessage.class);
+        assertEquals(5, updated.length);
+        int lastPriority = Integer.MAX_VALUE;
+        for (Subscription sub : updated) {
+            assertTrue(lastPriority >= sub.getPriority());
+            lastPriority = sub.getPriority();
+        }
+    }
+
+    @Test
+    public void testBulkSubscription() {
+        final ListenerFactory listeners = listeners(
+                ICountableListener.DefaultListener.class,
+                ICountableListener.AsyncListener.class,
+                ICountableListener.DisabledListener.class,
+                IMultipartMessageListener.DefaultListener.class,
+                IMultipartMessageListener.AsyncListener.class,
+                MessagesTypeListener.DefaultListener.class);
+
+        SubscriptionValidator expectedSubscriptions = new SubscriptionValidator(listeners)
+                .listener(ICountableListener.DefaultListener.class)
+                .handles(MultipartMessage.class, IMultipartMessage.class, ICountable.class, StandardMessage.class)
+                .listener(ICountableListener.AsyncListener.class)
+                .handles(MultipartMessage.class, IMultipartMessage.class, ICountable.class, StandardMessage.class)
+                .listener(IMultipartMessageListener.DefaultListener.class).handles(MultipartMessage.class, IMultipartMessage.class)
+                .listener(IMultipartMessageListener.AsyncListener.class).handles(MultipartMessage.class, IMultipartMessage.class)
+                .listener(MessagesTypeListener.DefaultListener.class).handles(MessageTypes.class);
+
+        // all units race to register the same listener classes for the first time
+        final SubscriptionManager subscriptionManager = createSubscriptionManager();
+        final List<Object> all = listeners.getAll();
+        ConcurrentExecutor.runConcurrent(new Runnable() {
+            @Override
+            public void run() {
+                subscriptionManager.subscribeAll(all);
+            }
+        }, ConcurrentUnits);
+
+        expectedSubscriptions.validate(subscriptionManager);
+
+        ConcurrentExecutor.runConcurrent(new Runnable() {
+            @Override
+            public void run() {
+                subscriptionManager.unsubscribeAll(all);
+            }
+        }, ConcurrentUnits);
+
+        listeners.clear();
+        expectedSubscriptions.validate(subscriptionManager);
+    }
+
+    @Test
+    public void testBulkSubscriptionOfKnownListenerClass() {
+        SubscriptionManager subscriptionManager = createSubscriptionManager();
+        PrioritizedListener subscribed = new PrioritizedListener();
+        subscriptionManager.subscribe(subscribed);
+        Subscription[] dispatchTable = subscriptionManager.getSortedSubscriptions(StandardMessage.class);
+
+        // already subscribed listeners, null values and objects without handlers are ignored
+        // listeners are referenced weakly and must be kept reachable
+        PrioritizedListener another = new PrioritizedListener();
+        CustomInvocationListener custom = new CustomInvocationListener();
+        subscriptionManager.subscribeAll(Arrays.asList(subscribed, another, null, new Object(), custom));
+
+        Subscription[] updated = subscriptionManager.getSortedSubscriptions(StandardMessage.class);
+        assertEquals(5, updated.length);
+        for (Subscription sub : updated) {
+            assertEquals(sub.belongsTo(PrioritizedListener.class) ? 2 : 1, sub.size());
+        }
+        for (Subscription sub : dispatchTable) {
+            assertTrue(sub.contains(subscribed));
+        }
+
+        assertFalse(subscriptionManager.unsubscribeAll(Arrays.asList(new PrioritizedListener(), new Object(), null)));
+        assertTrue(subscriptionManager.unsubscribeAll(Arrays.asList(subscribed, custom)));
+        for (Subscription sub : subscriptionManager.getSortedSubscriptions(StandardMessage.class)) {
+            assertEquals(sub.belongsTo(PrioritizedListener.class) ? 1 : 0, sub.size());
+            assertFalse(sub.contains(subscribed));
+            assertEquals(sub.belongsTo(PrioritizedListener.class), sub.contains(another));
+        }
+    }
+
+    protected SubscriptionManager createSubscriptionManager() {
+        return new SubscriptionManager(new MetadataReader(), new SubscriptionFactory(), mockedRuntime());
+    }
+
+    protected BusRuntime mockedRuntime() {
         return new BusRuntime(null)
                 .add(IBusConfiguration.Properties.PublicationErrorHandlers, Collections.EMPTY_SET)
                 .add(IBusConfiguration.Properties.AsynchronousHandlerExecutor, null);
@@ -226,7 +329,7 @@ public class SubscriptionManagerTest extends AssertSupport {
     }
 
     private void runTestWith(final ListenerFactory listeners, final SubscriptionValidator validator) {
-        final SubscriptionManager subscriptionManager = new SubscriptionManager(new MetadataReader(), new SubscriptionFactory(), mockedRuntime());
+        final SubscriptionManager subscriptionManager = createSubscriptionManager();
 
         ConcurrentExecutor.runConcurrent(TestUtil.subscriber(subscriptionManager, listeners), ConcurrentUnits);
 
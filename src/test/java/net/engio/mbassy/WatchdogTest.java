@@ -0,0 +1,158 @@
+package net.engio.mbassy;
+
+import net.engio.mbassy.bus.IMessagePublication;
+import net.engio.mbassy.bus.MBassador;
+import net.engio.mbassy.bus.SyncMessageBus;
+import net.engio.mbassy.bus.config.BusConfiguration;
+import net.engio.mbassy.bus.config.Feature;
+import net.engio.mbassy.bus.config.IBusConfiguration;
+import net.engio.mbassy.bus.error.IPublicationErrorHandler;
+import net.engio.mbassy.bus.error.PublicationError;
+import net.engio.mbassy.common.MessageBusTest;
+import net.engio.mbassy.listener.Handler;
+import net.engio.mbassy.listener.Invoke;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests the reporting of slow handlers and the deadlines of publications
+ *
+ * @see Feature.Watchdog
+ */
+public class WatchdogTest extends MessageBusTest {
+
+    @Test
+    public void testSlowHandlerIsReported() {
+        ErrorCollector errors = new ErrorCollector();
+        MBassador bus = createBus(new BusConfiguration()
+                .addFeature(Feature.SyncPubSub.Default())
+                .addFeature(Feature.AsynchronousHandlerInvocation.Default())
+                .addFeature(Feature.AsynchronousMessageDispatch.Default())
+                .addFeature(Feature.Watchdog.Threshold(100, TimeUnit.MILLISECONDS).setCheckInterval(10, TimeUnit.MILLISECONDS))
+                .addPublicationErrorHandler(errors));
+        SlowListener listener = new SlowListener();
+        bus.subscribe(listener);
+
+        bus.post(10).now();
+        bus.post("message").asynchronously();
+        pause(500);
+        listener.release.countDown();
+        pause(100);
+
+        // the slow handler is reported exactly once, the fast handler is not reported
+        assertEquals(1, errors.errors.size());
+        PublicationError error = errors.errors.get(0);
+        assertEquals("slow", error.getHandler().getName());
+        assertTrue(error.getListener() == listener);
+        assertEquals("message", error.getPublishedMessage());
+        assertTrue(error.getMessage().contains(SlowListener.class.getName() + ".slow"));
+        // the cause carries the stack trace of the blocked handler
+        boolean blockedInHandler = false;
+        for (StackTraceElement element : error.getCause().getStackTrace()) {
+            blockedInHandler |= element.getMethodName().equals("slow");
+        }
+        assertTrue(blockedInHandler);
+        bus.shutdown();
+    }
+
+    @Test
+    public void testExpiredInvocationsAreSkipped() throws Exception {
+        MBassador bus = createBus(new BusConfiguration()
+                .addFeature(Feature.SyncPubSub.Default())
+                .addFeature(Feature.AsynchronousHandlerInvocation.Default(1, 1))
+                .addFeature(Feature.AsynchronousMessageDispatch.Default()));
+        SlowListener listener = new SlowListener();
+        bus.subscribe(listener);
+
+        // the only handler thread is blocked by the first message
+        IMessagePublication blocking = bus.post("blocking").now();
+        IMessagePublication expiring = bus.post("expiring").expireAfter(50, TimeUnit.MILLISECONDS).now();
+        IMessagePublication lasting = bus.post("lasting").expireAfter(1, TimeUnit.MINUTES).now();
+        pause(100);
+        listener.release.countDown();
+
+        blocking.getCompletion().get(processingTimeInMS, TimeUnit.MILLISECONDS);
+        lasting.getCompletion().get(processingTimeInMS, TimeUnit.MILLISECONDS);
+        try {
+            expiring.getCompletion().get(processingTimeInMS, TimeUnit.MILLISECONDS);
+            fail("Expected the completion to fail");
+        } catch (ExecutionException e) {
+            assertTrue(expiring.isExpired());
+        }
+        assertFalse(lasting.isExpired());
+        assertEquals(2, listener.invocations.get());
+        bus.shutdown();
+    }
+
+    @Test
+    public void testExpiredDispatchIsSkipped() {
+        MBassador bus = createBus(new BusConfiguration()
+                .addFeature(Feature.SyncPubSub.Default())
+                .addFeature(Feature.AsynchronousHandlerInvocation.Default())
+                .addFeature(Feature.AsynchronousMessageDispatch.Default().setNumberOfMessageDispatchers(1)));
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger received = new AtomicInteger(0);
+        bus.subscribe(new Object() {
+            @Handler
+            public void handle(Integer message) throws InterruptedException {
+                release.await();
+                received.incrementAndGet();
+            }
+        });
+
+        // the only dispatcher is blocked by the first message
+        bus.post(1).asynchronously();
+        IMessagePublication expiring = bus.post(2).expireAfter(10, TimeUnit.MILLISECONDS).asynchronously();
+        pause(50);
+        release.countDown();
+        pause(100);
+
+        assertTrue(expiring.isExpired());
+        assertEquals(1, received.get());
+        bus.shutdown();
+    }
+
+    @Test
+    public void testSyncBusCreatesNoWatchdog() {
+        SyncMessageBus bus = new SyncMessageBus(new BusConfiguration()
+                .addFeature(Feature.SyncPubSub.Default())
+                .addFeature(Feature.Watchdog.Default()));
+        // the sync bus can not be shut down and must not start the thread of the watchdog
+        assertFalse(bus.getRuntime().contains(IBusConfiguration.Properties.HandlerWatchdog));
+    }
+
+    public static class SlowListener {
+
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        private final AtomicInteger invocations = new AtomicInteger(0);
+
+        @Handler(delivery = Invoke.Asynchronously)
+        public void slow(String message) throws InterruptedException {
+            release.await();
+            invocations.incrementAndGet();
+        }
+
+        @Handler
+        public void fast(Integer message) {
+        }
+    }
+
+    public static class ErrorCollector implements IPublicationErrorHandler {
+
+        private final List<PublicationError> errors = Collections.synchronizedList(new LinkedList<PublicationError>());
+
+        @Override
+        public void handleError(PublicationError error) {
+            errors.add(error);
+        }
+    }
+
+}
@@ -60,11 +60,65 @@ public class WeakConcurrentSetTest extends ConcurrentSetTest{
         // it must still contain all of the permanent objects
         // since different GC mechanisms can be used (not necessarily full, stop-the-world) not all dead objects
         // must have been collected
+        // the collected elements are reclaimed in the background such that the size shrinks eventually
+        long deadline = System.currentTimeMillis() + 5000;
+        while (testSetWeak.size() == numberOfElements && System.currentTimeMillis() < deadline) {
+            pause(10);
+        }
         assertTrue(permanentElements.size() <= testSetWeak.size() && testSetWeak.size() < numberOfElements);
         for (Object test : testSetWeak) {
             assertTrue(permanentElements.contains(test));
         }
     }
 
+    @Test
+    public void testReclamationWithoutIteration() {
+        final HashSet<Object> permanentElements = new HashSet<Object>();
+        final Collection testSetWeak = createSet();
+
+        for (int i = 0; i < numberOfElements; i++) {
+            Object candidate = new Object();
+            if (i % 2 == 0) {
+                permanentElements.add(candidate);
+            }
+            testSetWeak.add(candidate);
+        }
+        runGC();
+
+        // the garbage collected elements are reclaimed in the background
+        long start = System.currentTimeMillis();
+        while (testSetWeak.size() == numberOfElements && System.currentTimeMillis() - start < 5000) {
+            pause(10);
+        }
+        assertTrue(permanentElements.size() <= testSetWeak.size() && testSetWeak.size() < numberOfElements);
+        for (Object test : permanentElements) {
+            assertTrue(testSetWeak.contains(test));
+        }
+    }
+
+    @Test
+    public void testReclaimerShutdown() {
+        createSet().add(new Object());
+        assertTrue(isReclaimerAlive());
+
+        WeakConcurrentSet.shutdownReclaimer();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (isReclaimerAlive() && System.currentTimeMillis() < deadline) {
+            pause(10);
+        }
+        assertFalse(isReclaimerAlive());
+
+        // the reclaimer is started again when elements are added
+        testReclamationWithoutIteration();
+    }
+
+    private boolean isReclaimerAlive() {
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().equals("WeakConcurrentSet-Reclaimer") && thread.isAlive()) {
+                return true;
+            }
+        }
+        return false;
+    }
 
 }
@@ -0,0 +1,46 @@
+package net.engio.mbassy;
+
+import net.engio.mbassy.common.NonBlockingConcurrentSet;
+import org.junit.Test;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Random;
+
+/**
+ * Run the concurrent set tests against the weakly referencing non-blocking set.
+ */
+public class WeakNonBlockingConcurrentSetTest extends ConcurrentSetTest {
+
+    @Override
+    protected Collection createSet() {
+        return NonBlockingConcurrentSet.weak();
+    }
+
+    @Test
+    public void testCollectedElementsAreRemoved() {
+        final HashSet<Object> permanentElements = new HashSet<Object>();
+        final Collection testSetWeak = createSet();
+        final Random rand = new Random();
+
+        for (int i = 0; i < numberOfElements; i++) {
+            Object candidate = new Object();
+            if (rand.nextInt() % 3 == 0) {
+                permanentElements.add(candidate);
+            }
+            testSetWeak.add(candidate);
+        }
+
+        runGC();
+
+        // iterators never return collected elements
+        for (Object test : testSetWeak) {
+            assertTrue(permanentElements.contains(test));
+        }
+        // collected elements are expunged and do not count towards the size anymore
+        assertTrue(permanentElements.size() <= testSetWeak.size() && testSetWeak.size() < numberOfElements);
+        for (Object permanent : permanentElements) {
+            assertTrue(testSetWeak.contains(permanent));
+        }
+    }
+}
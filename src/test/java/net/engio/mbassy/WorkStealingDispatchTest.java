@@ -0,0 +1,103 @@
+package net.engio.mbassy;
+
+import net.engio.mbassy.bus.MBassador;
+import net.engio.mbassy.bus.config.BusConfiguration;
+import net.engio.mbassy.bus.config.ConfigurationError;
+import net.engio.mbassy.bus.config.Feature;
+import net.engio.mbassy.bus.config.IBusConfiguration;
+import net.engio.mbassy.common.MessageBusTest;
+import net.engio.mbassy.listener.Handler;
+import net.engio.mbassy.listener.Invoke;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests the asynchronous dispatch with a work-stealing pool configured by
+ * {@link Feature.AsynchronousMessageDispatch#WorkStealing()}
+ */
+public class WorkStealingDispatchTest extends MessageBusTest {
+
+    @Test
+    public void testPublicationsAndHandlersRunInPool() {
+        MBassador bus = createBus(new BusConfiguration()
+                .addFeature(Feature.SyncPubSub.Default())
+                .addFeature(Feature.AsynchronousHandlerInvocation.WorkStealing())
+                .addFeature(Feature.AsynchronousMessageDispatch.WorkStealing(4)));
+        PoolListener listener = new PoolListener();
+        bus.subscribe(listener);
+
+        for (int i = 0; i < 1000; i++) {
+            addPublication(bus.post("message").asynchronously());
+        }
+        addPublication(bus.publishAllAsync(Arrays.asList("first", "second")));
+        waitForPublications(processingTimeInMS);
+        while (bus.hasPendingMessages()) {
+            pause(10);
+        }
+        pause(processingTimeInMS);
+
+        assertEquals(1002, listener.sync.get());
+        assertEquals(1002, listener.async.get());
+        for (Thread thread : listener.threads) {
+            assertTrue(thread.getName(), thread instanceof ForkJoinWorkerThread);
+        }
+        bus.shutdown();
+    }
+
+    @Test
+    public void testSeparateHandlerExecutor() {
+        MBassador bus = createBus(new BusConfiguration()
+                .addFeature(Feature.SyncPubSub.Default())
+                .addFeature(Feature.AsynchronousHandlerInvocation.Default())
+                .addFeature(Feature.AsynchronousMessageDispatch.WorkStealing()));
+        PoolListener listener = new PoolListener();
+        bus.subscribe(listener);
+
+        for (int i = 0; i < 100; i++) {
+            addPublication(bus.post("message").asynchronously());
+        }
+        waitForPublications(processingTimeInMS);
+        pause(processingTimeInMS);
+
+        assertEquals(100, listener.sync.get());
+        assertEquals(100, listener.async.get());
+        bus.shutdown();
+    }
+
+    @Test(expected = ConfigurationError.class)
+    public void testHandlerInvocationRequiresPool() {
+        IBusConfiguration configuration = new BusConfiguration()
+                .addFeature(Feature.SyncPubSub.Default())
+                .addFeature(Feature.AsynchronousHandlerInvocation.WorkStealing())
+                .addFeature(Feature.AsynchronousMessageDispatch.Default());
+        createBus(configuration);
+    }
+
+    public static class PoolListener {
+
+        private final AtomicInteger sync = new AtomicInteger(0);
+
+        private final AtomicInteger async = new AtomicInteger(0);
+
+        private final Set<Thread> threads = Collections.synchronizedSet(new HashSet<Thread>());
+
+        @Handler
+        public void sync(String message) {
+            threads.add(Thread.currentThread());
+            sync.incrementAndGet();
+        }
+
+        @Handler(delivery = Invoke.Asynchronously)
+        public void async(String message) {
+            threads.add(Thread.currentThread());
+            async.incrementAndGet();
+        }
+    }
+
+}
@@ -0,0 +1,13 @@
+package net.engio.mbassy.listeners;
+
+import net.engio.mbassy.listener.Handler;
+
+/**
+ * The super class of {@link CompiledListener}, its handlers are inherited
+ */
+public abstract class AbstractCompiledListener {
+
+    @Handler(priority = 2)
+    public abstract void handle(Integer message);
+
+}
@@ -0,0 +1,35 @@
+package net.engio.mbassy.listeners;
+
+import net.engio.mbassy.listener.Handler;
+
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * A listener that has been processed by the annotation processor of the mbassador-processor module,
+ * see {@link CompiledListener_MBassadorListener}
+ */
+public class CompiledListener extends AbstractCompiledListener {
+
+    public final List<Object> received = Collections.synchronizedList(new LinkedList<Object>());
+
+    @Handler(priority = 1)
+    public void handle(String message) throws Exception {
+        if (message.equals("fail")) {
+            throw new Exception("Expected failure");
+        }
+        received.add(message);
+    }
+
+    @Override
+    public void handle(Integer message) {
+        received.add(message);
+    }
+
+    @Handler
+    private void handle(Long message) {
+        received.add(message);
+    }
+
+}
@@ -0,0 +1,36 @@
+package net.engio.mbassy.listeners;
+
+/**
+ * The message handlers of net.engio.mbassy.listeners.CompiledListener resolved at compile time.
+ * Generated by net.engio.mbassy.processor.ListenerProcessor, do not edit.
+ */
+public final class CompiledListener_MBassadorListener implements net.engio.mbassy.listener.ICompiledListener {
+
+    @Override
+    public net.engio.mbassy.listener.CompiledHandler[] getHandlers() throws ReflectiveOperationException {
+        ClassLoader loader = CompiledListener_MBassadorListener.class.getClassLoader();
+        java.lang.reflect.Method method0 = net.engio.mbassy.listener.CompiledHandler.findMethod(loader, "net.engio.mbassy.listeners.CompiledListener", "handle", "java.lang.String");
+        java.lang.reflect.Method method1 = net.engio.mbassy.listener.CompiledHandler.findMethod(loader, "net.engio.mbassy.listeners.CompiledListener", "handle", "java.lang.Long");
+        java.lang.reflect.Method method2 = net.engio.mbassy.listener.CompiledHandler.findMethod(loader, "net.engio.mbassy.listeners.CompiledListener", "handle", "java.lang.Integer");
+        java.lang.reflect.Method method3 = net.engio.mbassy.listener.CompiledHandler.findMethod(loader, "net.engio.mbassy.listeners.AbstractCompiledListener", "handle", "java.lang.Integer");
+        return new net.engio.mbassy.listener.CompiledHandler[]{
+            new net.engio.mbassy.listener.CompiledHandler(method0, method0, new java.util.function.BiConsumer<Object, Object>() {
+                @Override
+                public void accept(Object listener, Object message) {
+                    try {
+                        ((net.engio.mbassy.listeners.CompiledListener) listener).handle((java.lang.String) message);
+                    } catch (Throwable e) {
+                        throw net.engio.mbassy.listener.CompiledHandler.<RuntimeException>rethrow(e);
+                    }
+                }
+            }),
+            new net.engio.mbassy.listener.CompiledHandler(method1, method1, null),
+            new net.engio.mbassy.listener.CompiledHandler(method2, method3, new java.util.function.BiConsumer<Object, Object>() {
+                @Override
+                public void accept(Object listener, Object message) {
+                    ((net.engio.mbassy.listeners.CompiledListener) listener).handle((java.lang.Integer) message);
+                }
+            }),
+        };
+    }
+}